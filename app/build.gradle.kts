@@ -52,6 +52,7 @@ android {
 
 dependencies {
 
+    implementation(project(":core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
@@ -65,6 +66,7 @@ dependencies {
     implementation(libs.material3)
     implementation(libs.firebase.database)
     implementation(libs.firebase.auth)
+    implementation(libs.work.runtime)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
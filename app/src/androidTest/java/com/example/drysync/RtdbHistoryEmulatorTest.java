@@ -0,0 +1,131 @@
+package com.example.drysync;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.FirebaseDatabase;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bucketed history against the local emulators. Start them first:
+ * {@code firebase emulators:start --only auth,database} (ports from firebase.json; 10.0.2.2 is the
+ * host as seen from an Android emulator).
+ */
+@RunWith(AndroidJUnit4.class)
+public class RtdbHistoryEmulatorTest {
+
+    private static final String HOST = "10.0.2.2";
+    private static final long MINUTE = 60_000L, HOUR = 60 * MINUTE;
+    private static final long TIMEOUT_S = 30;
+
+    // 2026-01-01 10:00 UTC; three hours of minutes with value = minutes since BASE
+    private static final long BASE = HistoryLayout.parseHourKey("2026010110");
+    private static final int MINUTES = 180;
+
+    private static final String SERIES = "test-" + System.currentTimeMillis();
+    private static FirebaseDatabase db;
+    private static RtdbHistory history;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        FirebaseAuth auth = FirebaseAuth.getInstance();
+        auth.useEmulator(HOST, 9099);
+        Tasks.await(auth.signInAnonymously(), TIMEOUT_S, TimeUnit.SECONDS);
+
+        db = FirebaseDatabase.getInstance();
+        db.useEmulator(HOST, 9000);
+        history = new RtdbHistory(db);
+
+        for (int i = 0; i < MINUTES; i++) {
+            Tasks.await(history.writeMinute(BASE + i * MINUTE, Collections.singletonMap(SERIES, (float) i)),
+                    TIMEOUT_S, TimeUnit.SECONDS);
+        }
+        for (int h = 0; h < 3; h++) {
+            Tasks.await(history.rollUp(SERIES, BASE + h * HOUR), TIMEOUT_S, TimeUnit.SECONDS);
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        if (db == null) return;
+        for (HistoryLayout.Level level : HistoryLayout.Level.values()) {
+            Tasks.await(db.getReference(HistoryLayout.ROOT).child(level.node).child(SERIES).removeValue(),
+                    TIMEOUT_S, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void shortWindowReadsRawMinutesOfIntersectingBucketsOnly() throws Exception {
+        HistorySeries s = read(BASE + 30 * MINUTE, BASE + 90 * MINUTE, 50);
+        assertEquals(HistoryLayout.Level.RAW, s.level);
+        assertEquals(61, s.size());
+        assertEquals(BASE + 30 * MINUTE, s.time(0));
+        assertEquals(30f, s.average(0), 0f);
+        assertEquals(90f, s.average(s.size() - 1), 0f);
+    }
+
+    @Test
+    public void hoursWindowReadsHourlyRollups() throws Exception {
+        HistorySeries s = read(BASE, BASE + 3 * HOUR, 3);
+        assertEquals(HistoryLayout.Level.HOURLY, s.level);
+        assertEquals(3, s.size());
+        assertEquals(BASE + HOUR, s.time(1));
+        // second hour holds 60..119
+        assertEquals(60f, s.min(1), 0f);
+        assertEquals(119f, s.max(1), 0f);
+        assertEquals(89.5f, s.average(1), 0.001f);
+        assertEquals(60, s.count(1));
+    }
+
+    @Test
+    public void dayWindowReadsDailyRollup() throws Exception {
+        long day = HistoryLayout.parseDayKey("20260101");
+        HistorySeries s = read(day, day + 24 * HOUR, 1);
+        assertEquals(HistoryLayout.Level.DAILY, s.level);
+        assertEquals(1, s.size());
+        assertEquals(0f, s.min(0), 0f);
+        assertEquals(179f, s.max(0), 0f);
+        assertEquals(89.5f, s.average(0), 0.001f);
+        assertEquals(MINUTES, s.count(0));
+    }
+
+    @Test
+    public void emptyWindowReadsNothing() throws Exception {
+        HistorySeries s = read(BASE - 5 * HOUR, BASE - HOUR, 10);
+        assertEquals(0, s.size());
+    }
+
+    private static HistorySeries read(long from, long to, int minPoints) throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<HistorySeries> result = new AtomicReference<>();
+        AtomicReference<String> error = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() ->
+                history.read(SERIES, from, to, minPoints, new RtdbHistory.Callback() {
+                    @Override public void onHistory(HistorySeries series) {
+                        result.set(series);
+                        done.countDown();
+                    }
+
+                    @Override public void onError(String message) {
+                        error.set(message);
+                        done.countDown();
+                    }
+                }));
+        assertTrue("timed out", done.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertNull(error.get());
+        return result.get();
+    }
+}
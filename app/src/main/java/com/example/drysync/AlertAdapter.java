@@ -0,0 +1,91 @@
+package com.example.drysync;
+
+import android.text.format.DateUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Alert inbox rows, newest first: pages are appended at the end, live alerts inserted on top. */
+public class AlertAdapter extends RecyclerView.Adapter<AlertAdapter.VH> {
+
+    private final List<AlertInbox.Entry> entries = new ArrayList<>();
+
+    public AlertAdapter() {
+        setHasStableIds(true);
+    }
+
+    void appendPage(@NonNull List<AlertInbox.Entry> page) {
+        int start = entries.size();
+        long oldest = oldestId();
+        // skips entries that arrived live while the page was loading
+        for (AlertInbox.Entry e : page) if (e.id < oldest) entries.add(e);
+        notifyItemRangeInserted(start, entries.size() - start);
+    }
+
+    void addNewest(@NonNull AlertInbox.Entry entry) {
+        if (!entries.isEmpty() && entries.get(0).id >= entry.id) return;   // already in a loaded page
+        entries.add(0, entry);
+        notifyItemInserted(0);
+    }
+
+    void clear() {
+        int n = entries.size();
+        entries.clear();
+        notifyItemRangeRemoved(0, n);
+    }
+
+    /** Id of the oldest loaded entry, where the next page starts; Long.MAX_VALUE when empty. */
+    long oldestId() {
+        return entries.isEmpty() ? Long.MAX_VALUE : entries.get(entries.size() - 1).id;
+    }
+
+    @Override public int getItemCount() { return entries.size(); }
+
+    @Override public long getItemId(int position) { return entries.get(position).id; }
+
+    @NonNull @Override
+    public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_alert, parent, false);
+        return new VH(v);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position) {
+        holder.bind(entries.get(position).event);
+    }
+
+    static class VH extends RecyclerView.ViewHolder {
+        final TextView title, detail, time;
+
+        VH(@NonNull View itemView) {
+            super(itemView);
+            title = itemView.findViewById(R.id.alertTitle);
+            detail = itemView.findViewById(R.id.alertDetail);
+            time = itemView.findViewById(R.id.alertTime);
+        }
+
+        void bind(@NonNull AlertEvent e) {
+            String subject = e.slot == AlertEvent.ENVIRONMENT ? "Kiln" : "Wood Slot " + e.slot;
+            title.setText(subject + ": " + e.title);
+            detail.setText(e.raised ? "Raised" + valueText(e) : "Cleared" + valueText(e));
+            detail.setTextColor(ContextCompat.getColor(itemView.getContext(),
+                    e.raised ? R.color.brown : android.R.color.darker_gray));
+            time.setText(DateUtils.getRelativeTimeSpanString(e.timeMillis));
+        }
+
+        private static String valueText(AlertEvent e) {
+            if (Float.isNaN(e.value) || e.ruleId.equals("slot-complete")) return "";
+            String unit = e.ruleId.startsWith("temp") ? "°C" : "%";
+            return String.format(Locale.getDefault(), " at %.1f%s", e.value, unit);
+        }
+    }
+}
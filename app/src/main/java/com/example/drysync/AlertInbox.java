@@ -0,0 +1,117 @@
+package com.example.drysync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Raised and cleared alerts, newest first, in a local SQLite table. Pages are read by id
+ * (keyset paging: {@code id < last id seen}), so reading further down costs the same as the
+ * first page. The oldest entries are trimmed past {@link #MAX_ENTRIES}. Worker threads only.
+ */
+final class AlertInbox extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "alerts.db";
+    private static final int DB_VERSION = 1;
+    private static final String TABLE = "alerts";
+    private static final int MAX_ENTRIES = 5000;
+
+    static final int PAGE_SIZE = 50;
+
+    static final class Entry {
+        final long id;
+        final AlertEvent event;
+
+        Entry(long id, AlertEvent event) {
+            this.id = id;
+            this.event = event;
+        }
+    }
+
+    AlertInbox(@NonNull Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "time INTEGER NOT NULL, "
+                + "rule TEXT NOT NULL, "
+                + "title TEXT NOT NULL, "
+                + "slot INTEGER NOT NULL, "
+                + "raised INTEGER NOT NULL, "
+                + "value REAL)");
+        // latest state per (rule, slot), read on start
+        db.execSQL("CREATE INDEX alerts_rule_slot ON " + TABLE + " (rule, slot, id)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        onCreate(db);
+    }
+
+    @WorkerThread
+    @NonNull
+    Entry insert(@NonNull AlertEvent e) {
+        ContentValues v = new ContentValues(6);
+        v.put("time", e.timeMillis);
+        v.put("rule", e.ruleId);
+        v.put("title", e.title);
+        v.put("slot", e.slot);
+        v.put("raised", e.raised ? 1 : 0);
+        if (!Float.isNaN(e.value)) v.put("value", e.value);
+        long id = getWritableDatabase().insert(TABLE, null, v);
+        // trim now and then rather than on every insert
+        if (id % 100 == 0) trim();
+        return new Entry(id, e);
+    }
+
+    /** Up to {@code limit} entries older than {@code beforeId} (Long.MAX_VALUE for the newest). */
+    @WorkerThread
+    @NonNull
+    List<Entry> page(long beforeId, int limit) {
+        List<Entry> out = new ArrayList<>(limit);
+        try (Cursor c = getReadableDatabase().query(TABLE,
+                new String[]{"id", "time", "rule", "title", "slot", "raised", "value"},
+                "id < ?", new String[]{String.valueOf(beforeId)},
+                null, null, "id DESC", String.valueOf(limit))) {
+            while (c.moveToNext()) out.add(new Entry(c.getLong(0), read(c, 1)));
+        }
+        return out;
+    }
+
+    /** Alerts whose latest entry is a raise: what was still raised when the app last ran. */
+    @WorkerThread
+    @NonNull
+    List<AlertEvent> stillRaised() {
+        List<AlertEvent> out = new ArrayList<>();
+        try (Cursor c = getReadableDatabase().rawQuery(
+                "SELECT time, rule, title, slot, raised, value FROM " + TABLE
+                        + " WHERE id IN (SELECT MAX(id) FROM " + TABLE + " GROUP BY rule, slot)"
+                        + " AND raised = 1", null)) {
+            while (c.moveToNext()) out.add(read(c, 0));
+        }
+        return out;
+    }
+
+    private static AlertEvent read(Cursor c, int from) {
+        return new AlertEvent(c.getLong(from), c.getString(from + 1), c.getString(from + 2),
+                c.getInt(from + 3), c.getInt(from + 4) != 0,
+                c.isNull(from + 5) ? Float.NaN : c.getFloat(from + 5));
+    }
+
+    private void trim() {
+        getWritableDatabase().execSQL("DELETE FROM " + TABLE + " WHERE id <= "
+                + "(SELECT id FROM " + TABLE + " ORDER BY id DESC LIMIT 1 OFFSET " + MAX_ENTRIES + ")");
+    }
+}
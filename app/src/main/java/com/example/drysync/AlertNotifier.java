@@ -0,0 +1,59 @@
+package com.example.drysync;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+/**
+ * System notifications for alerts raised while no screen is open (in the foreground the
+ * Notifications tab shows them). One notification per rule and slot, replaced when it's raised
+ * again.
+ */
+final class AlertNotifier {
+
+    private static final String CHANNEL_ID = "kiln_alerts";
+
+    private AlertNotifier() { }
+
+    static void register(@NonNull DrySyncApp app) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Kiln alerts",
+                    NotificationManager.IMPORTANCE_DEFAULT);
+            channel.setDescription("Slots reaching target moisture or completing, and kiln climate out of range");
+            app.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+        AlertRepository.get(app).addListener(entry -> {
+            if (entry.event.raised && !app.isUiVisible()) show(app, entry.event);
+        });
+    }
+
+    private static void show(@NonNull Context context, @NonNull AlertEvent e) {
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        if (!manager.areNotificationsEnabled()) return;   // includes POST_NOTIFICATIONS not granted
+
+        Intent open = new Intent(context, SplashActivity.class)
+                .setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent content = PendingIntent.getActivity(context, 0, open, PendingIntent.FLAG_IMMUTABLE);
+        String subject = e.slot == AlertEvent.ENVIRONMENT ? "Kiln" : "Wood Slot " + e.slot;
+
+        try {
+            manager.notify((e.ruleId + "/" + e.slot).hashCode(), new NotificationCompat.Builder(context, CHANNEL_ID)
+                    .setSmallIcon(R.drawable.ic_notifications_24)
+                    .setContentTitle(subject)
+                    .setContentText(e.title)
+                    .setContentIntent(content)
+                    .setAutoCancel(true)
+                    .setWhen(e.timeMillis)
+                    .build());
+        } catch (SecurityException ignored) {
+            // permission revoked between the check and the post
+        }
+    }
+}
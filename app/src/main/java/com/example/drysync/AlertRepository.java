@@ -0,0 +1,186 @@
+package com.example.drysync;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the {@link AlertEngine} over the live sensor stream and keeps what it raises and clears in
+ * the {@link AlertInbox} that the Notifications tab pages through.
+ *
+ * Evaluation runs between {@link #start()} and {@link #stop()} (same span as
+ * {@link StatsRepository}), and a tick raises minimum-duration alerts for slots that went quiet.
+ * While nothing is started, {@link MonitorWorker} feeds it slots whose status changed through
+ * {@link #checkInBackground}. The alerts still raised in the inbox are restored first, so
+ * reopening the app doesn't report every Complete slot again. Main thread only; the inbox is
+ * written on its own background thread.
+ */
+public final class AlertRepository {
+
+    private static final String TAG = "AlertRepository";
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final long TICK_MS = 30_000L;
+
+    public interface Listener {
+        /** A new entry was written to the inbox. */
+        @MainThread void onAlert(@NonNull AlertInbox.Entry entry);
+    }
+
+    public interface PageCallback {
+        @MainThread void onPage(@NonNull List<AlertInbox.Entry> entries);
+    }
+
+    private static AlertRepository instance;
+
+    @MainThread
+    public static AlertRepository get(@NonNull Context context) {
+        if (instance == null) instance = new AlertRepository(context.getApplicationContext());
+        return instance;
+    }
+
+    // ---- rules: thresholds match the targets shown on Home and Stats ----
+    private static List<AlertRule> defaultRules() {
+        return Arrays.asList(
+                AlertRule.below("slot-dry", AlertRule.Source.SLOT_MOISTURE, "Reached target moisture",
+                        StatsRepository.TARGET_MOISTURE, StatsRepository.TARGET_MOISTURE + 1, 10 * MINUTE_MS),
+                AlertRule.above("slot-complete", AlertRule.Source.SLOT_COMPLETE, "Marked complete",
+                        1f, 0.5f, 0),
+                AlertRule.above("temp-high", AlertRule.Source.TEMPERATURE, "Temperature above 35°C",
+                        35f, 33f, 5 * MINUTE_MS),
+                AlertRule.below("temp-low", AlertRule.Source.TEMPERATURE, "Temperature below 20°C",
+                        20f, 22f, 5 * MINUTE_MS),
+                AlertRule.above("humid-high", AlertRule.Source.HUMIDITY, "Humidity above 60%",
+                        60f, 57f, 10 * MINUTE_MS),
+                AlertRule.below("humid-low", AlertRule.Source.HUMIDITY, "Humidity below 45%",
+                        45f, 48f, 10 * MINUTE_MS));
+    }
+
+    private final AlertInbox inbox;
+    private final AlertEngine engine = new AlertEngine(defaultRules(), this::write);
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> new Thread(r, "alert-inbox"));
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+    private int starts;
+    private boolean restored, subscribed;
+
+    private AlertRepository(Context app) {
+        inbox = new AlertInbox(app);
+    }
+
+    // ---- evaluation ----
+    private final SensorRepository.SlotListener slotListener =
+            reading -> engine.onSlot(System.currentTimeMillis(), reading);
+
+    private final SensorRepository.EnvironmentListener environmentListener =
+            (t, h) -> engine.onEnvironment(System.currentTimeMillis(), t, h);
+
+    private final Runnable tick = new Runnable() {
+        @Override public void run() {
+            engine.advanceTo(System.currentTimeMillis());
+            main.postDelayed(this, TICK_MS);
+        }
+    };
+
+    /** Starts evaluating; calls nest like {@link StatsRepository#start()}. */
+    @MainThread
+    public void start() {
+        if (starts++ > 0) return;
+        restoreThen(() -> {
+            if (starts > 0) subscribe();
+        });
+    }
+
+    @MainThread
+    public void stop() {
+        if (starts == 0 || --starts > 0) return;
+        if (!subscribed) return;
+        subscribed = false;
+        SensorRepository.get().removeSlotListener(slotListener);
+        SensorRepository.get().removeEnvironmentListener(environmentListener);
+        main.removeCallbacks(tick);
+    }
+
+    /**
+     * Evaluates slots read by {@link MonitorWorker} while nothing is started; {@code done} runs
+     * once the resulting alerts are in the inbox.
+     */
+    @MainThread
+    public void checkInBackground(@NonNull List<SlotReading> readings, @NonNull Runnable done) {
+        restoreThen(() -> {
+            long now = System.currentTimeMillis();
+            for (SlotReading r : readings) engine.onSlot(now, r);
+            engine.advanceTo(now);
+            // the inbox thread runs in order: this follows the writes just queued
+            io.execute(() -> main.post(done));
+        });
+    }
+
+    /** Restores what the inbox says is still raised (once per process), then runs {@code then}. */
+    private void restoreThen(Runnable then) {
+        if (restored) {
+            then.run();
+            return;
+        }
+        io.execute(() -> {
+            List<AlertEvent> raised = inbox.stillRaised();
+            main.post(() -> {
+                if (!restored) {
+                    for (AlertEvent e : raised) engine.restoreRaised(e.ruleId, e.slot);
+                    restored = true;
+                }
+                then.run();
+            });
+        });
+    }
+
+    private void subscribe() {
+        if (subscribed) return;
+        subscribed = true;
+        // replays the cached readings, which evaluates every slot once
+        SensorRepository.get().addSlotListener(slotListener);
+        SensorRepository.get().addEnvironmentListener(environmentListener);
+        main.postDelayed(tick, TICK_MS);
+    }
+
+    private void write(AlertEvent event) {
+        Log.d(TAG, "Alert " + event);
+        io.execute(() -> {
+            AlertInbox.Entry entry = inbox.insert(event);
+            main.post(() -> {
+                for (Listener l : new ArrayList<>(listeners)) l.onAlert(entry);
+            });
+        });
+    }
+
+    // ---- inbox ----
+
+    /** Entries older than {@code beforeId} (Long.MAX_VALUE for the newest), one page at a time. */
+    @MainThread
+    public void loadPage(long beforeId, @NonNull PageCallback callback) {
+        io.execute(() -> {
+            List<AlertInbox.Entry> page = inbox.page(beforeId, AlertInbox.PAGE_SIZE);
+            main.post(() -> callback.onPage(page));
+        });
+    }
+
+    @MainThread
+    public void addListener(@NonNull Listener l) {
+        listeners.add(l);
+    }
+
+    @MainThread
+    public void removeListener(@NonNull Listener l) {
+        listeners.remove(l);
+    }
+}
@@ -1,47 +1,139 @@
 package com.example.drysync;
 
+import android.annotation.SuppressLint;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 
-public class BatchAdapter extends ListAdapter<WoodBatch, BatchAdapter.VH> {
+/**
+ * Rows are kept in {@link BatchIndex#NEWEST_FIRST} order unless a search picked another sort.
+ * Single-row changes arrive through the {@link BatchIndex.Callback} methods; whole-list swaps
+ * (search results) go through {@link #submitList}. Batches with unsent writes
+ * ({@link #setPending}) show a "Not synced" tag, rebound with {@link #PAYLOAD_PENDING}.
+ */
+public class BatchAdapter extends RecyclerView.Adapter<BatchAdapter.VH> implements BatchIndex.Callback {
 
     public interface OnBatchClickListener {
         void onBatchClick(@NonNull WoodBatch batch);
     }
 
+    static final Object PAYLOAD_PENDING = "pending";
+
     private final OnBatchClickListener clickListener;
+    private final List<WoodBatch> items = new ArrayList<>();
+    private Comparator<WoodBatch> order = BatchIndex.NEWEST_FIRST;
+    private Set<String> pending = Collections.emptySet();
 
     public BatchAdapter(OnBatchClickListener clickListener) {
-        super(DIFF);
         setHasStableIds(true);
         this.clickListener = clickListener;
     }
 
-    private static final DiffUtil.ItemCallback<WoodBatch> DIFF =
-            new DiffUtil.ItemCallback<WoodBatch>() {
-                @Override
-                public boolean areItemsTheSame(@NonNull WoodBatch o, @NonNull WoodBatch n) {
-                    String a = o.getBatchId(), b = n.getBatchId();
-                    return a != null && a.equals(b);
-                }
-                @Override
-                public boolean areContentsTheSame(@NonNull WoodBatch o, @NonNull WoodBatch n) {
-                    return o.getTotalQuantity()     == n.getTotalQuantity()
-                            && o.getArrivalDateMillis() == n.getArrivalDateMillis()
-                            && o.getInRackCount()       == n.getInRackCount()
-                            && o.getFinishedCount()     == n.getFinishedCount();
+    static boolean sameContents(@NonNull WoodBatch o, @NonNull WoodBatch n) {
+        // pooled batches keep their instance while unchanged, so this is usually o == n
+        return o.sameContents(n);
+    }
+
+    private static boolean sameId(@NonNull WoodBatch o, @NonNull WoodBatch n) {
+        String a = o.getBatchId(), b = n.getBatchId();
+        return a != null && a.equals(b);
+    }
+
+    public WoodBatch getItem(int position) { return items.get(position); }
+
+    @Override public int getItemCount() { return items.size(); }
+
+    /** Replaces the rows with {@code next}, sorted newest first. */
+    public void submitList(@NonNull List<WoodBatch> next) {
+        submitList(next, BatchIndex.NEWEST_FIRST);
+    }
+
+    /**
+     * Replaces the rows with {@code next}, sorted by {@code nextOrder}. When that is the order
+     * the current rows are in, both lists are diffed with one linear merge.
+     */
+    @SuppressLint("NotifyDataSetChanged")
+    public void submitList(@NonNull List<WoodBatch> next, @NonNull Comparator<WoodBatch> nextOrder) {
+        if (nextOrder != order) {
+            // different sort: the merge below can't pair rows up, rebind everything once
+            order = nextOrder;
+            items.clear();
+            items.addAll(next);
+            notifyDataSetChanged();
+            return;
+        }
+        List<WoodBatch> old = new ArrayList<>(items);
+        int pos = 0, i = 0, j = 0;
+        while (i < old.size() || j < next.size()) {
+            if (i == old.size()) {
+                items.add(pos, next.get(j++));
+                notifyItemInserted(pos++);
+            } else if (j == next.size()) {
+                items.remove(pos);
+                notifyItemRemoved(pos);
+                i++;
+            } else {
+                WoodBatch o = old.get(i), n = next.get(j);
+                int c = order.compare(o, n);
+                if (c == 0 && sameId(o, n)) {
+                    items.set(pos, n);
+                    if (!sameContents(o, n)) notifyItemChanged(pos);
+                    pos++; i++; j++;
+                } else if (c < 0) {
+                    items.remove(pos);
+                    notifyItemRemoved(pos);
+                    i++;
+                } else {
+                    items.add(pos, n);
+                    notifyItemInserted(pos++);
+                    j++;
                 }
-            };
+            }
+        }
+    }
+
+    /** Batch ids with writes not yet confirmed by the server; only rows whose state flips rebind. */
+    public void setPending(@NonNull Set<String> batchIds) {
+        Set<String> old = pending;
+        pending = batchIds;
+        for (int i = 0; i < items.size(); i++) {
+            String id = items.get(i).getBatchId();
+            if (old.contains(id) != batchIds.contains(id)) notifyItemChanged(i, PAYLOAD_PENDING);
+        }
+    }
+
+    // ----- BatchIndex.Callback: one row at a time -----
+    @Override public void onInserted(int position, @NonNull WoodBatch batch) {
+        items.add(position, batch);
+        notifyItemInserted(position);
+    }
+
+    @Override public void onRemoved(int position, @NonNull WoodBatch batch) {
+        items.remove(position);
+        notifyItemRemoved(position);
+    }
+
+    @Override public void onChanged(int position, @NonNull WoodBatch batch) {
+        WoodBatch old = items.set(position, batch);
+        if (old == null || !sameContents(old, batch)) notifyItemChanged(position);
+    }
+
+    @Override public void onMoved(int fromPosition, int toPosition, @NonNull WoodBatch batch) {
+        items.add(toPosition, items.remove(fromPosition));
+        notifyItemMoved(fromPosition, toPosition);
+    }
 
     @Override public long getItemId(int position) {
         WoodBatch item = getItem(position);
@@ -60,13 +152,24 @@ public class BatchAdapter extends ListAdapter<WoodBatch, BatchAdapter.VH> {
     public void onBindViewHolder(@NonNull VH holder, int position) {
         WoodBatch item = getItem(position);
         holder.bind(item);
+        holder.bindPending(item != null && pending.contains(item.getBatchId()));
         holder.itemView.setOnClickListener(v -> {
             if (clickListener != null && item != null) clickListener.onBatchClick(item);
         });
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        WoodBatch item = getItem(position);
+        holder.bindPending(item != null && pending.contains(item.getBatchId()));
+    }
+
     static class VH extends RecyclerView.ViewHolder {
-        private final TextView tvBatchId, tvQuantity, tvExtra;
+        private final TextView tvBatchId, tvQuantity, tvExtra, tvPending;
         private final DateFormat df = DateFormat.getDateInstance();
 
         VH(@NonNull View itemView) {
@@ -74,6 +177,11 @@ public class BatchAdapter extends ListAdapter<WoodBatch, BatchAdapter.VH> {
             tvBatchId = itemView.findViewById(R.id.tvBatchId);
             tvQuantity = itemView.findViewById(R.id.tvQuantity);
             tvExtra   = itemView.findViewById(R.id.tvExtra);  // <-- now present in XML
+            tvPending = itemView.findViewById(R.id.tvPending);
+        }
+
+        void bindPending(boolean pending) {
+            tvPending.setVisibility(pending ? View.VISIBLE : View.GONE);
         }
 
         void bind(WoodBatch item) {
@@ -2,16 +2,20 @@ package com.example.drysync;
 
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.inputmethod.InputMethodManager;
+import android.widget.ImageButton;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.DividerItemDecoration;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -19,34 +23,57 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.chip.Chip;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.android.material.snackbar.Snackbar;
 import com.google.android.material.textfield.TextInputEditText;
-import com.google.firebase.database.*;
-
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Locale;
-import java.util.Random;
-import java.util.TimeZone;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+
+/**
+ * Inventory list, search and edit dialogs.
+ *
+ * Every mirrored batch is held in memory, in the list's {@link BatchIndex} and in the
+ * {@link BatchQueryEngine}: search, the facet filters and the other sort orders answer over the
+ * whole inventory within a frame, and the engine can only do that with every row indexed. The
+ * bounded window of pages this list once kept (while it paged /batches off the network) doesn't
+ * fit that, so it's gone. The network cost it guarded against is now the mirror's: rows come off
+ * disk, newest screenful first, and only changed batches are downloaded. At roughly half a
+ * kilobyte per batch across the index and engine, 50k batches is about 25 MB; past that, paging
+ * search itself into SQLite is the next step.
+ */
 public class BatchListFragment extends Fragment {
 
     private RecyclerView recycler;
     private TextInputEditText searchInput;
     private FloatingActionButton fab;
+    private ImageButton btnFilter;
 
     private BatchAdapter adapter;
-    private final List<WoodBatch> allBatches = new ArrayList<>();
-    private String currentQuery = "";
-
-    // Firebase (Realtime Database)
-    private DatabaseReference batchesRef;
-    private ValueEventListener batchesListener;
+    private final BatchIndex index = new BatchIndex();
+
+    // Search/sort/filter: queries run against the engine on SnapshotProcessor, debounced
+    private static final String QUERY_KEY = "inventory/query";
+    private static final long QUERY_DEBOUNCE_MS = 150L;
+    private final BatchQueryEngine engine = new BatchQueryEngine();
+    private BatchQuery query = BatchQuery.ALL;
+    private int arrivalDays;   // 0 = any; the window is re-anchored to "now" on each apply
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Runnable runQuery = this::runQuery;
+
+    // Rows come from the local mirror (BatchSync): the first screenful is read on its own so the
+    // list renders before the rest of the inventory is off disk
+    private static final int FIRST_SCREEN_ROWS = 50;
+
+    // Indexing happens on SnapshotProcessor; changes arriving meanwhile are conflated per id
+    private static final String INDEX_KEY = "inventory/batches";
+    private final Map<String, WoodBatch> pendingRows = new LinkedHashMap<>();   // null = removed
+    private boolean indexInFlight;
+    // past this many rows in one pass (the disk load), diff the list once instead of per row
+    private static final int BULK_ROWS = 20;
 
     public BatchListFragment() { super(R.layout.fragment_inventory); }
 
@@ -55,6 +82,7 @@ public class BatchListFragment extends Fragment {
         recycler = view.findViewById(R.id.batchRecycler);
         searchInput = view.findViewById(R.id.searchInput);
         fab = view.findViewById(R.id.fabAddBatch);
+        btnFilter = view.findViewById(R.id.btnFilter);
 
         // RecyclerView
         LinearLayoutManager lm = new LinearLayoutManager(requireContext());
@@ -64,100 +92,124 @@ public class BatchListFragment extends Fragment {
 
         adapter = new BatchAdapter(this::showEditDialog);
         recycler.setAdapter(adapter);
-
-        // Firebase ref to /batches
-        batchesRef = FirebaseDatabase.getInstance().getReference("batches");
-
-        // Live subscribe to /batches
-        batchesListener = new ValueEventListener() {
-            @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
-                List<WoodBatch> list = new ArrayList<>();
-                for (DataSnapshot child : snapshot.getChildren()) {
-                    // Try POJO first (requires no-arg ctor + setters)
-                    WoodBatch wb = child.getValue(WoodBatch.class);
-
-                    // Fallback/manual mapping (and alias key support)
-                    String id = valueAsString(child.child("batchId").getValue());
-                    Integer total = valueAsInt(child.child("totalQuantity").getValue());
-                    Long arrival = valueAsLong(child.child("arrivalDateMillis").getValue());
-
-                    // Read counts with alias support
-                    Integer inRack = firstInt(
-                            child.child("inRackCount").getValue(),
-                            child.child("inRack").getValue()           // alias
-                    );
-                    Integer finished = firstInt(
-                            child.child("finishedCount").getValue(),
-                            child.child("finished").getValue()        // alias
-                    );
-
-                    if (wb == null) {
-                        // Build manually if POJO mapping failed (e.g., no setters)
-                        if (id != null && total != null && arrival != null) {
-                            wb = new WoodBatch(id, total, arrival);
-                            // only set if your model has these methods; ignore otherwise
-                            try { wb.setInRackCount(inRack != null ? inRack : 0); } catch (Throwable ignored) {}
-                            try { wb.setFinishedCount(finished != null ? finished : 0); } catch (Throwable ignored) {}
-                        }
-                    } else {
-                        // POJO mapped — but make sure aliases also flow into fields if present
-                        try {
-                            if (inRack != null)    wb.setInRackCount(inRack);
-                            if (finished != null)  wb.setFinishedCount(finished);
-                        } catch (Throwable ignored) {}
-                    }
-
-                    if (wb != null) list.add(wb);
-                }
-                list.sort((a,b) -> Long.compare(b.getArrivalDateMillis(), a.getArrivalDateMillis()));
-                allBatches.clear();
-                allBatches.addAll(list);
-                filterAndShow(currentQuery);
-            }
-
-            // helpers
-            private String valueAsString(Object v) { return v == null ? null : String.valueOf(v); }
-            private Integer valueAsInt(Object v) {
-                if (v instanceof Number) return ((Number) v).intValue();
-                try { return v == null ? null : Integer.parseInt(String.valueOf(v)); } catch (Exception e) { return null; }
-            }
-            private Long valueAsLong(Object v) {
-                if (v instanceof Number) return ((Number) v).longValue();
-                try { return v == null ? null : Long.parseLong(String.valueOf(v)); } catch (Exception e) { return null; }
-            }
-            private Integer firstInt(Object... vals) {
-                for (Object v : vals) {
-                    Integer i = valueAsInt(v);
-                    if (i != null) return i;
-                }
-                return null;
-            }
-
-            @Override public void onCancelled(@NonNull DatabaseError error) {
-                // optional: log/toast
-            }
-        };
-        batchesRef.addValueEventListener(batchesListener);
+        adapter.setPending(BatchSync.get(requireContext()).getPendingIds());
+
+        // Disk first, then only the rows the sync changes; the sorted index reports the single
+        // row each one touched. Listening before the load keeps every change after the rows it follows.
+        index.setCallback(indexCallback);
+        BatchSync sync = BatchSync.get(requireContext());
+        sync.addListener(syncListener);
+        sync.load(FIRST_SCREEN_ROWS, (rows, last) -> {
+            if (getView() == null) return;   // view destroyed while reading
+            for (WoodBatch b : rows) enqueueRow(b.getBatchId(), b);
+        });
 
         fab.setOnClickListener(v -> showAddDialogAutoDate());
 
         // Search
         searchInput.addTextChangedListener(new TextWatcher() {
             @Override public void beforeTextChanged(CharSequence s, int st, int c, int a) {}
-            @Override public void onTextChanged(CharSequence s, int st, int b, int c) { filterAndShow(s == null ? "" : s.toString()); }
+            @Override public void onTextChanged(CharSequence s, int st, int b, int c) { setQuery(query.withText(s == null ? "" : s.toString())); }
             @Override public void afterTextChanged(Editable s) {}
         });
+        btnFilter.setOnClickListener(v -> showFilterDialog());
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
-        if (batchesRef != null && batchesListener != null) {
-            batchesRef.removeEventListener(batchesListener);
-            batchesListener = null;
+        BatchSync.get(requireContext()).removeListener(syncListener);
+        SnapshotProcessor.get().cancel(INDEX_KEY);
+        SnapshotProcessor.get().cancel(QUERY_KEY);
+        main.removeCallbacks(runQuery);
+        pendingRows.clear();
+        indexInFlight = false;
+        index.setCallback(null);
+        index.clear();
+        engine.clear();
+    }
+
+    // ---------- mirror -> worker -> index ----------
+    private final BatchSync.Listener syncListener = new BatchSync.Listener() {
+        @Override public void onBatchesChanged(@NonNull List<BatchMirror.Change> changes) {
+            for (BatchMirror.Change c : changes) enqueueRow(c.batchId, c.batch);
+        }
+
+        @Override public void onPendingChanged(@NonNull Set<String> batchIds) {
+            adapter.setPending(batchIds);
+        }
+
+        @Override public void onWriteDropped(@NonNull String batchId) {
+            View root = getView();
+            if (root == null) return;
+            Snackbar.make(root, "Couldn't save changes to " + batchId + "; showing the saved counts",
+                    Snackbar.LENGTH_LONG).show();
+        }
+    };
+
+    private void enqueueRow(String batchId, @Nullable WoodBatch batch) {
+        if (batchId == null) return;
+        // latest change per id wins while an indexing pass is running
+        pendingRows.put(batchId, batch);
+        drainPending();
+    }
+
+    private void drainPending() {
+        if (indexInFlight || pendingRows.isEmpty()) return;
+        indexInFlight = true;
+        final Map<String, WoodBatch> work = new LinkedHashMap<>(pendingRows);
+        pendingRows.clear();
+        SnapshotProcessor.get().submit(INDEX_KEY, () -> indexAll(engine, work), this::applyIndexed,
+                // the list still takes the rows; only search may miss them until they change again
+                error -> applyIndexed(work));
+    }
+
+    /** Keeps the search index in step, still off the main thread; hands the rows back. */
+    @WorkerThread
+    private static Map<String, WoodBatch> indexAll(@NonNull BatchQueryEngine engine, @NonNull Map<String, WoodBatch> work) {
+        for (Map.Entry<String, WoodBatch> e : work.entrySet()) {
+            if (e.getValue() == null) engine.remove(e.getKey());
+            else engine.upsert(e.getValue());
         }
+        return work;
     }
 
+    private void applyIndexed(@NonNull Map<String, WoodBatch> rows) {
+        boolean bulk = rows.size() > BULK_ROWS;
+        if (bulk) index.setCallback(null);
+        for (Map.Entry<String, WoodBatch> e : rows.entrySet()) {
+            if (e.getValue() != null) index.upsert(e.getValue());
+            else index.remove(e.getKey());
+        }
+        if (bulk) {
+            index.setCallback(indexCallback);
+            if (query.isDefault()) adapter.submitList(index.asList());
+            else scheduleQuery();
+        }
+        indexInFlight = false;
+        drainPending();
+    }
+
+    // ---------- index -> adapter ----------
+    private final BatchIndex.Callback indexCallback = new BatchIndex.Callback() {
+        @Override public void onInserted(int position, @NonNull WoodBatch batch) {
+            if (query.isDefault()) adapter.onInserted(position, batch);
+            else scheduleQuery();
+        }
+        @Override public void onRemoved(int position, @NonNull WoodBatch batch) {
+            if (query.isDefault()) adapter.onRemoved(position, batch);
+            else scheduleQuery();
+        }
+        @Override public void onChanged(int position, @NonNull WoodBatch batch) {
+            if (query.isDefault()) adapter.onChanged(position, batch);
+            else scheduleQuery();
+        }
+        @Override public void onMoved(int fromPosition, int toPosition, @NonNull WoodBatch batch) {
+            if (query.isDefault()) adapter.onMoved(fromPosition, toPosition, batch);
+            else scheduleQuery();
+        }
+    };
+
     // ---------- Add: auto date, only quantity ----------
     private void showAddDialogAutoDate() {
         View dialogView = LayoutInflater.from(requireContext())
@@ -183,7 +235,7 @@ public class BatchListFragment extends Fragment {
         if (c200 != null) c200.setOnClickListener(chipClick);
 
         final long arrivalNow = System.currentTimeMillis();
-        String autoId = generateBatchId();
+        String autoId = BatchSync.get(requireContext()).newBatchId();
         tvId.setText(autoId);
 
         btnSave.setEnabled(false);
@@ -216,15 +268,11 @@ public class BatchListFragment extends Fragment {
             // Build new batch object
             WoodBatch newBatch = new WoodBatch(autoId, qty, arrivalNow);
 
-            // Write to /batches/{batchId}
-            batchesRef.child(autoId)
-                    .setValue(newBatch)
-                    .addOnSuccessListener(unused -> {
-                        hideKeyboard(etQty);
-                        alert.dismiss(); // list refreshes via listener
-                        recycler.scrollToPosition(0);
-                    })
-                    .addOnFailureListener(e -> etQty.setError("Failed: " + e.getMessage()));
+            // Queued for /batches/{batchId}; the row shows right away, marked pending until sent
+            BatchSync.get(requireContext()).add(newBatch);
+            hideKeyboard(etQty);
+            alert.dismiss(); // list refreshes via listener
+            recycler.scrollToPosition(0);
         });
 
         alert.show();
@@ -285,29 +333,18 @@ public class BatchListFragment extends Fragment {
             int total  = batch.getTotalQuantity();
             if (inRack < 0 || done < 0 || inRack + done > total) return;
 
-            // If fully finished -> delete the node instead of updating.
+            // If fully finished -> delete the batch (a tombstone, so other devices drop it too)
             if ((inRack + done) == total) {
-                batchesRef.child(batch.getBatchId())
-                        .removeValue()
-                        .addOnSuccessListener(unused -> {
-                            // Optional: show a toast/snackbar here
-                            alert.dismiss(); // list auto-refreshes via your listener
-                        })
-                        .addOnFailureListener(e -> etFinished.setError("Delete failed: " + e.getMessage()));
+                BatchSync.get(requireContext()).delete(batch.getBatchId());
+                alert.dismiss(); // list auto-refreshes via your listener
                 return;
             }
 
-            // Otherwise update counts (write both new + legacy keys)
-            Map<String,Object> map = new HashMap<>();
-            map.put("inRackCount", inRack);
-            map.put("finishedCount", done);
-            map.put("inRack", inRack);     // legacy alias
-            map.put("finished", done);     // legacy alias
-
-            batchesRef.child(batch.getBatchId())
-                    .updateChildren(map)
-                    .addOnSuccessListener(unused -> alert.dismiss())
-                    .addOnFailureListener(e -> etFinished.setError("Failed: " + e.getMessage()));
+            // Otherwise send what this operator moved, not the totals they saw: another
+            // operator racking from the same batch meanwhile adds up instead of being overwritten
+            BatchSync.get(requireContext()).adjustCounts(batch.getBatchId(),
+                    inRack - batch.getInRackCount(), done - batch.getFinishedCount());
+            alert.dismiss();
         });
 
         btnCancel.setOnClickListener(v -> alert.dismiss());
@@ -321,44 +358,109 @@ public class BatchListFragment extends Fragment {
         catch (Exception ex) { return 0; }
     }
 
-    private void filterAndShow(String queryRaw) {
-        currentQuery = queryRaw == null ? "" : queryRaw.trim().toLowerCase(Locale.getDefault());
-        if (currentQuery.isEmpty()) {
-            adapter.submitList(new ArrayList<>(allBatches));
+    // ---------- search / sort / filter ----------
+    private void setQuery(@NonNull BatchQuery next) {
+        query = next;
+        main.removeCallbacks(runQuery);
+        if (next.isDefault()) {
+            // back to the live list driven by the index callbacks
+            SnapshotProcessor.get().cancel(QUERY_KEY);
+            adapter.submitList(index.asList());
             return;
         }
-        List<WoodBatch> filtered = new ArrayList<>();
-        for (WoodBatch wb : allBatches) {
-            String id = wb.getBatchId();
-            if (id != null && id.toLowerCase(Locale.getDefault()).contains(currentQuery)) {
-                filtered.add(wb);
-            }
-        }
-        adapter.submitList(filtered);
+        main.postDelayed(runQuery, QUERY_DEBOUNCE_MS);
     }
 
-    private void hideKeyboard(View anyView) {
-        try {
-            InputMethodManager imm = (InputMethodManager) requireContext().getSystemService(Context.INPUT_METHOD_SERVICE);
-            if (imm != null) imm.hideSoftInputFromWindow(anyView.getWindowToken(), 0);
-        } catch (Exception ignored) {}
+    private void scheduleQuery() {
+        main.removeCallbacks(runQuery);
+        main.postDelayed(runQuery, QUERY_DEBOUNCE_MS);
+    }
+
+    private void runQuery() {
+        final BatchQuery q = query;
+        SnapshotProcessor.get().submit(QUERY_KEY, () -> engine.query(q), result -> {
+            if (q == query) adapter.submitList(result, q.sort.comparator);
+        });
+    }
+
+    private void showFilterDialog() {
+        View dialogView = LayoutInflater.from(requireContext())
+                .inflate(R.layout.dialog_batch_filters, null, false);
+
+        ChipGroup groupSort    = dialogView.findViewById(R.id.chipGroupSort);
+        ChipGroup groupState   = dialogView.findViewById(R.id.chipGroupState);
+        ChipGroup groupArrival = dialogView.findViewById(R.id.chipGroupArrival);
+        TextInputEditText etMinRemaining = dialogView.findViewById(R.id.etMinRemaining);
+        MaterialButton btnReset = dialogView.findViewById(R.id.btnResetFilters);
+        MaterialButton btnApply = dialogView.findViewById(R.id.btnApplyFilters);
+
+        groupSort.check(SORT_CHIPS[query.sort.ordinal()]);
+        groupState.check(STATE_CHIPS[query.state.ordinal()]);
+        groupArrival.check(arrivalChipFor(arrivalDays));
+        if (query.minRemaining > 0) etMinRemaining.setText(String.valueOf(query.minRemaining));
+
+        final androidx.appcompat.app.AlertDialog alert =
+                new com.google.android.material.dialog.MaterialAlertDialogBuilder(requireContext())
+                        .setView(dialogView)
+                        .create();
+
+        btnReset.setOnClickListener(v -> {
+            arrivalDays = 0;
+            setQuery(BatchQuery.ALL.withText(query.text));
+            alert.dismiss();
+        });
+
+        btnApply.setOnClickListener(v -> {
+            BatchSort sort = BatchSort.values()[indexOf(SORT_CHIPS, groupSort.getCheckedChipId())];
+            BatchQuery.State state = BatchQuery.State.values()[indexOf(STATE_CHIPS, groupState.getCheckedChipId())];
+            arrivalDays = ARRIVAL_DAYS[indexOf(ARRIVAL_CHIPS, groupArrival.getCheckedChipId())];
+
+            BatchQuery next = BatchQuery.ALL.withText(query.text)
+                    .withSort(sort)
+                    .withState(state)
+                    .withRemaining(parseInt(etMinRemaining.getText()), Integer.MAX_VALUE);
+            if (arrivalDays > 0) next = next.withArrival(startOfDayDaysAgo(arrivalDays - 1), Long.MAX_VALUE);
+            setQuery(next);
+            hideKeyboard(etMinRemaining);
+            alert.dismiss();
+        });
+
+        alert.show();
+    }
+
+    // chip ids in BatchSort / BatchQuery.State ordinal order
+    private static final int[] SORT_CHIPS = {
+            R.id.chipSortNewest, R.id.chipSortOldest, R.id.chipSortMostRemaining, R.id.chipSortLeastRemaining };
+    private static final int[] STATE_CHIPS = {
+            R.id.chipStateAny, R.id.chipStateInRack, R.id.chipStateFinished, R.id.chipStateUntouched };
+    private static final int[] ARRIVAL_CHIPS = {
+            R.id.chipArrivalAny, R.id.chipArrivalToday, R.id.chipArrival7d, R.id.chipArrival30d };
+    private static final int[] ARRIVAL_DAYS = { 0, 1, 7, 30 };
+
+    private static int indexOf(int[] ids, int id) {
+        for (int i = 0; i < ids.length; i++) if (ids[i] == id) return i;
+        return 0;
     }
 
-    private String generateBatchId() {
-        Date now = Calendar.getInstance(TimeZone.getTimeZone("Asia/Manila")).getTime();
-        String datePart = new SimpleDateFormat("yyyyMMdd", Locale.getDefault()).format(now);
-        int serial = new Random().nextInt(9000) + 1000; // 1000–9999
-        return "BATCH-" + datePart + "-" + serial;
+    private static int arrivalChipFor(int days) {
+        for (int i = 0; i < ARRIVAL_DAYS.length; i++) if (ARRIVAL_DAYS[i] == days) return ARRIVAL_CHIPS[i];
+        return ARRIVAL_CHIPS[0];
     }
 
-    private Integer safeInt(Object o) {
-        if (o instanceof Number) return ((Number) o).intValue();
-        if (o instanceof String) try { return Integer.parseInt((String) o); } catch (Exception ignored){}
-        return null;
+    private static long startOfDayDaysAgo(int days) {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DAY_OF_YEAR, -days);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
     }
-    private Long safeLong(Object o) {
-        if (o instanceof Number) return ((Number) o).longValue();
-        if (o instanceof String) try { return Long.parseLong((String) o); } catch (Exception ignored){}
-        return null;
+
+    private void hideKeyboard(View anyView) {
+        try {
+            InputMethodManager imm = (InputMethodManager) requireContext().getSystemService(Context.INPUT_METHOD_SERVICE);
+            if (imm != null) imm.hideSoftInputFromWindow(anyView.getWindowToken(), 0);
+        } catch (Exception ignored) {}
     }
 }
@@ -0,0 +1,567 @@
+package com.example.drysync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Local copy of /batches in SQLite, plus the server time it is synced up to. Rows and the sync
+ * point are written in one transaction, so after a crash the next sync starts from a point the
+ * rows actually reflect. Tombstoned and removed batches are deleted outright; nothing else
+ * needs to remember them. Reads come back newest arrival first ({@link BatchIndex#NEWEST_FIRST}).
+ *
+ * The same database holds the outbox: writes the app made that the server hasn't confirmed.
+ * The batches table only ever holds what the server said; what the list shows is that row with
+ * the batch's queued writes laid over it ({@link #overlay}), so counts don't jump back while a
+ * write is on its way. Edits to a batch merge into its newest queued entry until that entry is
+ * handed out for sending; after that it's sealed (what was sent must be what is retried) and
+ * the next edit starts a new one. The sync point stays put while anything is queued.
+ *
+ * A server row for a batch with a sealed entry may already contain that write (the database's
+ * own echo of it, or the server's copy racing the ack), so laying the entry over it would count
+ * the increment twice. Such rows are held back ({@link #holdsServerRows}) and written once the
+ * entry is confirmed or dropped; until then the list keeps showing the previous row plus the
+ * outbox. Held rows live in memory only: the sync point hasn't moved past them, so after a
+ * restart the sync delivers them again. Worker threads only.
+ */
+final class BatchMirror extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "batches.db";
+    private static final int DB_VERSION = 3;
+    private static final String TABLE = "batches";
+    private static final String SYNC_TABLE = "sync";
+    private static final String SYNC_BATCHES = "batches";
+    private static final String OUTBOX_TABLE = "outbox";
+
+    private static final String[] COLUMNS = {"id", "arrival", "total", "in_rack", "finished"};
+    private static final String[] OUTBOX_COLUMNS =
+            {"id", "batch", "op", "replace_node", "fields", "increments", "attempts", "sealed"};
+
+    /** One batch as the list shows it; {@code batch} is null once it's deleted. */
+    static final class Change {
+        final String batchId;
+        @Nullable final WoodBatch batch;
+        final long updatedAt;
+
+        Change(@NonNull String batchId, @Nullable WoodBatch batch, long updatedAt) {
+            this.batchId = batchId;
+            this.batch = batch;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    /**
+     * A queued write: the whole node ({@code replace}), or fields to set plus counters to
+     * add to. {@code op} names the write on the server so a retry can't apply increments twice.
+     */
+    static final class Outgoing {
+        final long id;
+        final String batchId;
+        final String op;
+        final boolean replace;
+        final Map<String, Object> fields;
+        final Map<String, Long> increments;
+        final int attempts;
+        final boolean sealed;
+
+        Outgoing(long id, String batchId, String op, boolean replace, Map<String, Object> fields,
+                 Map<String, Long> increments, int attempts, boolean sealed) {
+            this.id = id;
+            this.batchId = batchId;
+            this.op = op;
+            this.replace = replace;
+            this.fields = fields;
+            this.increments = increments;
+            this.attempts = attempts;
+            this.sealed = sealed;
+        }
+    }
+
+    // server rows waiting for their batch's sealed entry to be confirmed, by batch id
+    private final Map<String, Change> held = new HashMap<>();
+
+    BatchMirror(@NonNull Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "id TEXT PRIMARY KEY, "
+                + "arrival INTEGER NOT NULL, "
+                + "total INTEGER NOT NULL, "
+                + "in_rack INTEGER NOT NULL, "
+                + "finished INTEGER NOT NULL, "
+                + "updated INTEGER NOT NULL)");
+        // list order, so reading the first screen doesn't sort the table
+        db.execSQL("CREATE INDEX batches_arrival ON " + TABLE + " (arrival DESC, id)");
+        db.execSQL("CREATE TABLE " + SYNC_TABLE + " (name TEXT PRIMARY KEY, synced_to INTEGER NOT NULL)");
+        createOutbox(db);
+    }
+
+    private static void createOutbox(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + OUTBOX_TABLE + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "batch TEXT NOT NULL, "
+                + "op TEXT NOT NULL, "
+                + "replace_node INTEGER NOT NULL, "
+                + "fields TEXT NOT NULL, "
+                + "increments TEXT NOT NULL, "
+                + "sealed INTEGER NOT NULL, "
+                + "attempts INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX outbox_batch ON " + OUTBOX_TABLE + " (batch, id)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion == 1) {
+            // the outbox is the only thing here that isn't a copy of the server
+            createOutbox(db);
+            return;
+        }
+        if (oldVersion == 2) {
+            // one entry per batch, absolute values only: carry them over as unsent entries
+            db.execSQL("ALTER TABLE " + OUTBOX_TABLE + " RENAME TO outbox_v2");
+            createOutbox(db);
+            db.execSQL("INSERT INTO " + OUTBOX_TABLE
+                    + " (batch, op, replace_node, fields, increments, sealed, attempts)"
+                    + " SELECT batch, lower(hex(randomblob(16))), replace_node, fields, '{}', 0, attempts"
+                    + " FROM outbox_v2 ORDER BY queued");
+            db.execSQL("DROP TABLE outbox_v2");
+            return;
+        }
+        // a copy of the server: start over and resync everything
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + SYNC_TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + OUTBOX_TABLE);
+        onCreate(db);
+    }
+
+    /** Largest server {@code updatedAt} applied so far; 0 before the first sync. */
+    @WorkerThread
+    long syncedTo() {
+        try (Cursor c = getReadableDatabase().query(SYNC_TABLE, new String[]{"synced_to"},
+                "name = ?", new String[]{SYNC_BATCHES}, null, null, null)) {
+            return c.moveToFirst() ? c.getLong(0) : 0L;
+        }
+    }
+
+    /**
+     * Writes server {@code changes} and, unless something is queued, moves the sync point up to
+     * the newest {@code updatedAt} among them: the local echo of an unconfirmed write carries an
+     * estimated server time, and persisting that could skip changes other devices made while we
+     * were offline.
+     *
+     * @return what the list shows for each batch whose row that changed (unchanged
+     *         re-deliveries are dropped)
+     */
+    @WorkerThread
+    @NonNull
+    List<Change> apply(@NonNull List<Change> changes) {
+        List<Change> applied = new ArrayList<>(changes.size());
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            long syncedTo = syncedTo();
+            long newest = syncedTo;
+            for (Change ch : changes) {
+                newest = Math.max(newest, ch.updatedAt);
+                List<Outgoing> queued = outgoing(db, ch.batchId);
+                if (holdsServerRows(queued)) {
+                    held.put(ch.batchId, ch);
+                    continue;
+                }
+                WoodBatch stored = find(db, ch.batchId);
+                if (!write(db, ch, stored)) continue;
+                if (queued.isEmpty()) {
+                    applied.add(ch);
+                } else {
+                    WoodBatch before = overlay(ch.batchId, stored, queued);
+                    WoodBatch after = overlay(ch.batchId, ch.batch, queued);
+                    if (!same(before, after)) applied.add(new Change(ch.batchId, after, ch.updatedAt));
+                }
+            }
+            if (newest > syncedTo && !hasOutgoing(db)) {
+                ContentValues v = new ContentValues(2);
+                v.put("name", SYNC_BATCHES);
+                v.put("synced_to", newest);
+                db.insertWithOnConflict(SYNC_TABLE, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return applied;
+    }
+
+    /**
+     * Server rows the mirror doesn't hold yet, such as the newest page fetched ahead of the first
+     * full sync. Rows already there are kept and the sync point stays where it is, since the
+     * sync still has to deliver everything else.
+     *
+     * @return what the list shows for each row added
+     */
+    @WorkerThread
+    @NonNull
+    List<Change> prefill(@NonNull List<Change> changes) {
+        List<Change> added = new ArrayList<>(changes.size());
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Change ch : changes) {
+                if (ch.batch == null || find(db, ch.batchId) != null) continue;
+                if (holdsServerRows(outgoing(db, ch.batchId))) continue;   // the sync brings it later
+                write(db, ch, null);
+                added.add(shown(db, ch.batchId));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return added;
+    }
+
+    /** Writes the server row (or deletes it for a null batch); true if it changed. */
+    private static boolean write(SQLiteDatabase db, Change ch, @Nullable WoodBatch stored) {
+        if (ch.batch == null) return db.delete(TABLE, "id = ?", new String[]{ch.batchId}) > 0;
+        ContentValues v = new ContentValues(6);
+        v.put("id", ch.batchId);
+        v.put("arrival", ch.batch.getArrivalDateMillis());
+        v.put("total", ch.batch.getTotalQuantity());
+        v.put("in_rack", ch.batch.getInRackCount());
+        v.put("finished", ch.batch.getFinishedCount());
+        v.put("updated", ch.updatedAt);
+        db.insertWithOnConflict(TABLE, null, v, SQLiteDatabase.CONFLICT_REPLACE);
+        return !ch.batch.sameContents(stored);
+    }
+
+    /** The server's batch with the queued writes applied in order; null if deleted or unknown. */
+    @Nullable
+    static WoodBatch overlay(@NonNull String batchId, @Nullable WoodBatch server, @NonNull List<Outgoing> queued) {
+        Map<String, Object> node = server == null ? null : WoodBatchCodec.encode(server);
+        for (Outgoing o : queued) {
+            if (o.replace) {
+                node = new HashMap<>(o.fields);
+                continue;
+            }
+            if (node == null) continue;   // edits to a batch we don't have show once it syncs
+            node.putAll(o.fields);
+            for (Map.Entry<String, Long> inc : o.increments.entrySet()) {
+                node.put(inc.getKey(), WoodBatchCodec.asLong(node.get(inc.getKey()), 0L) + inc.getValue());
+            }
+        }
+        return node == null ? null : WoodBatchCodec.decode(batchId, node);
+    }
+
+    /**
+     * Whether a server row for a batch with these queued writes has to wait: once an entry is
+     * sealed it may have been sent, and the row may already include it.
+     */
+    static boolean holdsServerRows(@NonNull List<Outgoing> queued) {
+        for (Outgoing o : queued) if (o.sealed) return true;
+        return false;
+    }
+
+    private static boolean same(@Nullable WoodBatch a, @Nullable WoodBatch b) {
+        return a == null ? b == null : a.sameContents(b);
+    }
+
+    /** What the list shows for the batch right now. */
+    private static Change shown(SQLiteDatabase db, String batchId) {
+        return new Change(batchId, overlay(batchId, find(db, batchId), outgoing(db, batchId)), 0L);
+    }
+
+    // ---------- outbox ----------
+
+    /**
+     * Queues a write. {@code replace} writes the whole node (a new batch or a tombstone) and
+     * supersedes what's queued and unsent; otherwise {@code fields} are set and
+     * {@code increments} added on the existing node, merged into the batch's unsent entry.
+     *
+     * @return what the list shows for the batch now, for listeners
+     */
+    @WorkerThread
+    @NonNull
+    Change enqueue(@NonNull String batchId, boolean replace, @NonNull Map<String, Object> fields,
+                   @NonNull Map<String, Long> increments) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Outgoing open = unsealed(db, batchId);
+            boolean mergedReplace = replace || (open != null && open.replace);
+            Map<String, Object> mergedFields = new HashMap<>();
+            Map<String, Long> mergedIncrements = new HashMap<>();
+            if (replace) {
+                mergedFields.putAll(fields);
+            } else if (open != null && open.replace) {
+                // still a new node: fold the edit into its values
+                mergedFields.putAll(open.fields);
+                mergedFields.putAll(fields);
+                for (Map.Entry<String, Long> inc : increments.entrySet()) {
+                    mergedFields.put(inc.getKey(), WoodBatchCodec.asLong(mergedFields.get(inc.getKey()), 0L) + inc.getValue());
+                }
+            } else {
+                if (open != null) {
+                    mergedFields.putAll(open.fields);
+                    mergedIncrements.putAll(open.increments);
+                }
+                mergedFields.putAll(fields);
+                for (Map.Entry<String, Long> inc : increments.entrySet()) {
+                    Long prev = mergedIncrements.get(inc.getKey());
+                    mergedIncrements.put(inc.getKey(), (prev == null ? 0L : prev) + inc.getValue());
+                }
+            }
+
+            ContentValues v = new ContentValues(7);
+            v.put("replace_node", mergedReplace ? 1 : 0);
+            v.put("fields", new JSONObject(mergedFields).toString());
+            v.put("increments", new JSONObject(mergedIncrements).toString());
+            if (open != null) {
+                db.update(OUTBOX_TABLE, v, "id = ?", new String[]{String.valueOf(open.id)});
+            } else {
+                v.put("batch", batchId);
+                v.put("op", UUID.randomUUID().toString());
+                v.put("sealed", 0);
+                v.put("attempts", 0);
+                db.insert(OUTBOX_TABLE, null, v);
+            }
+            Change local = shown(db, batchId);
+            db.setTransactionSuccessful();
+            return local;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * The oldest queued write of up to {@code limit} batches (one per batch, so they fit in one
+     * multi-path update), sealed: edits from now on queue behind them. Writes tried fewer times
+     * come first, so a refused one goes to the back and the others get through meanwhile.
+     */
+    @WorkerThread
+    @NonNull
+    List<Outgoing> takeOutgoing(int limit) {
+        List<Outgoing> out = new ArrayList<>();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            try (Cursor c = db.query(OUTBOX_TABLE, OUTBOX_COLUMNS,
+                    "id IN (SELECT MIN(id) FROM " + OUTBOX_TABLE + " GROUP BY batch)", null,
+                    null, null, "attempts, id", String.valueOf(limit))) {
+                while (c.moveToNext()) out.add(readOutgoing(c));
+            }
+            for (Outgoing o : out) {
+                db.execSQL("UPDATE " + OUTBOX_TABLE + " SET sealed = 1 WHERE id = ?", new Object[]{o.id});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return out;
+    }
+
+    /** Batch ids with a queued write. */
+    @WorkerThread
+    @NonNull
+    Set<String> outgoingIds() {
+        Set<String> out = new HashSet<>();
+        try (Cursor c = getReadableDatabase().query(true, OUTBOX_TABLE, new String[]{"batch"},
+                null, null, null, null, null, null)) {
+            while (c.moveToNext()) out.add(c.getString(0));
+        }
+        return out;
+    }
+
+    /**
+     * Removes writes the server confirmed (or rejected for good), and writes the server rows held
+     * back for them.
+     *
+     * @return what the list shows for those batches now
+     */
+    @WorkerThread
+    @NonNull
+    List<Change> remove(@NonNull List<Outgoing> done) {
+        List<Change> out = new ArrayList<>(done.size());
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Outgoing o : done) {
+                db.delete(OUTBOX_TABLE, "id = ?", new String[]{String.valueOf(o.id)});
+                Change row = held.get(o.batchId);
+                if (row != null && !holdsServerRows(outgoing(db, o.batchId))) {
+                    held.remove(o.batchId);
+                    write(db, row, find(db, o.batchId));
+                }
+                out.add(shown(db, o.batchId));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return out;
+    }
+
+    @WorkerThread
+    void failed(@NonNull List<Outgoing> sent) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Outgoing o : sent) {
+                db.execSQL("UPDATE " + OUTBOX_TABLE + " SET attempts = attempts + 1 WHERE id = ?", new Object[]{o.id});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Queued writes for the batch, oldest first. */
+    private static List<Outgoing> outgoing(SQLiteDatabase db, String batchId) {
+        List<Outgoing> out = new ArrayList<>(1);
+        try (Cursor c = db.query(OUTBOX_TABLE, OUTBOX_COLUMNS, "batch = ?", new String[]{batchId},
+                null, null, "id")) {
+            while (c.moveToNext()) out.add(readOutgoing(c));
+        }
+        return out;
+    }
+
+    @Nullable
+    private static Outgoing unsealed(SQLiteDatabase db, String batchId) {
+        try (Cursor c = db.query(OUTBOX_TABLE, OUTBOX_COLUMNS, "batch = ? AND sealed = 0",
+                new String[]{batchId}, null, null, "id DESC", "1")) {
+            return c.moveToFirst() ? readOutgoing(c) : null;
+        }
+    }
+
+    private static boolean hasOutgoing(SQLiteDatabase db) {
+        return DatabaseUtils.queryNumEntries(db, OUTBOX_TABLE) > 0;
+    }
+
+    private static Outgoing readOutgoing(Cursor c) {
+        Map<String, Object> fields = new HashMap<>();
+        Map<String, Long> increments = new HashMap<>();
+        try {
+            JSONObject json = new JSONObject(c.getString(4));
+            for (Iterator<String> it = json.keys(); it.hasNext(); ) {
+                String k = it.next();
+                fields.put(k, json.get(k));
+            }
+            json = new JSONObject(c.getString(5));
+            for (Iterator<String> it = json.keys(); it.hasNext(); ) {
+                String k = it.next();
+                increments.put(k, json.getLong(k));
+            }
+        } catch (JSONException ignored) {
+            // written by enqueue(), so it parses; an empty write is harmless either way
+        }
+        return new Outgoing(c.getLong(0), c.getString(1), c.getString(2), c.getInt(3) != 0,
+                fields, increments, c.getInt(6), c.getInt(7) != 0);
+    }
+
+    // ---------- reads ----------
+
+    /**
+     * Up to {@code limit} batches after {@code after} in list order ({@code null} for the
+     * newest, {@code limit} &lt; 0 for all of them), as the list shows them. Batches that exist
+     * only in the outbox so far are merged in where they fall.
+     */
+    @WorkerThread
+    @NonNull
+    List<WoodBatch> page(@Nullable WoodBatch after, int limit) {
+        String where = null;
+        String[] args = null;
+        if (after != null) {
+            // keyset: strictly past the last row read, same order as the index
+            String arrival = String.valueOf(after.getArrivalDateMillis());
+            where = "arrival < ? OR (arrival = ? AND id > ?)";
+            args = new String[]{arrival, arrival, after.getBatchId()};
+        }
+        SQLiteDatabase db = getReadableDatabase();
+        List<WoodBatch> rows = new ArrayList<>(limit > 0 ? limit : 64);
+        try (Cursor c = db.query(TABLE, COLUMNS, where, args, null, null,
+                "arrival DESC, id", limit < 0 ? null : String.valueOf(limit))) {
+            while (c.moveToNext()) rows.add(read(c));
+        }
+        Set<String> queued = outgoingIds();
+        if (queued.isEmpty()) return rows;
+
+        // the page ends at its last row, unless it's the last page
+        WoodBatch last = limit >= 0 && rows.size() == limit ? rows.get(rows.size() - 1) : null;
+        List<WoodBatch> out = new ArrayList<>(rows.size() + queued.size());
+        for (WoodBatch row : rows) {
+            if (queued.remove(row.getBatchId())) row = overlay(row.getBatchId(), row, outgoing(db, row.getBatchId()));
+            if (row != null) out.add(row);
+        }
+        for (String id : queued) {
+            if (find(db, id) != null) continue;   // a server row outside this page
+            WoodBatch local = overlay(id, null, outgoing(db, id));
+            if (local == null) continue;
+            if (after != null && BatchIndex.NEWEST_FIRST.compare(local, after) <= 0) continue;
+            if (last != null && BatchIndex.NEWEST_FIRST.compare(local, last) > 0) continue;
+            out.add(local);
+        }
+        Collections.sort(out, BatchIndex.NEWEST_FIRST);
+        return out;
+    }
+
+    /**
+     * The home tiles over the whole mirror as the list shows it: counted by SQLite over the
+     * server rows, then corrected for the batches with queued writes, so no row is read out
+     * except those.
+     */
+    @WorkerThread
+    @NonNull
+    BatchCounts counts(int lowStockThreshold) {
+        SQLiteDatabase db = getReadableDatabase();
+        String remaining = "(total - in_rack - finished)";
+        BatchCounts counts;
+        try (Cursor c = db.rawQuery("SELECT"
+                + " SUM(CASE WHEN " + remaining + " > 0 AND " + remaining + " < ? THEN 1 ELSE 0 END),"
+                + " SUM(CASE WHEN " + remaining + " > 0 THEN 1 ELSE 0 END)"
+                + " FROM " + TABLE, new String[]{String.valueOf(lowStockThreshold)})) {
+            counts = c.moveToFirst() ? new BatchCounts(c.getInt(0), c.getInt(1)) : new BatchCounts(0, 0);
+        }
+        for (String id : outgoingIds()) {
+            WoodBatch server = find(db, id);
+            WoodBatch shown = overlay(id, server, outgoing(db, id));
+            counts = counts.replace(countsOf(server, lowStockThreshold), countsOf(shown, lowStockThreshold));
+        }
+        return counts;
+    }
+
+    private static BatchCounts countsOf(@Nullable WoodBatch b, int lowStockThreshold) {
+        return BatchCounts.of(b == null ? Collections.<WoodBatch>emptyList() : Collections.singletonList(b),
+                lowStockThreshold);
+    }
+
+    @Nullable
+    private static WoodBatch find(SQLiteDatabase db, String batchId) {
+        try (Cursor c = db.query(TABLE, COLUMNS, "id = ?", new String[]{batchId}, null, null, null)) {
+            return c.moveToFirst() ? read(c) : null;
+        }
+    }
+
+    private static WoodBatch read(Cursor c) {
+        return new WoodBatch(c.getString(0), c.getInt(2), c.getLong(1), c.getInt(3), c.getInt(4));
+    }
+}
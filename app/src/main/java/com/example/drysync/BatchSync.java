@@ -0,0 +1,520 @@
+package com.example.drysync;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the {@link BatchMirror} in step with /batches and is the only writer of batches.
+ *
+ * While started (same span as {@link AlertRepository}) it listens to
+ * {@code orderByChild("updatedAt").startAt(syncedTo)}, so after the first install only batches
+ * written since the last sync cross the network, however large the inventory. Screens read the
+ * mirror ({@link #load}) and hear about changed rows from the {@link Listener}. Batch ids sort by
+ * creation time ({@link BatchIdGenerator}), so on the first sync the newest page is fetched by
+ * key first, and the list has rows before the whole inventory is in.
+ *
+ * Writes ({@link #add}, {@link #adjustCounts}, {@link #delete}) land in the mirror's outbox
+ * first, so they show at once and survive the process dying. The outbox is sent as one
+ * multi-path update a moment after the last edit (a burst of taps is one write), as soon as the
+ * connection comes back, and on leaving the app; rejected writes are retried with exponential
+ * backoff. Every write stamps {@code updatedAt} with {@link ServerValue#TIMESTAMP}, and deletes
+ * leave a tombstone so they show up in the sync query too.
+ *
+ * Counts change by {@link ServerValue#increment} rather than by overwriting them, so operators
+ * working the same batch add up instead of clobbering each other; the rules reject anything
+ * that would put more in the rack and finished than the batch holds. Each increment write also
+ * records its op id under {@code /batchOps/{batchId}}, in the same multi-path update, and the
+ * rules accept an op id only once: a retry of a write that landed without us hearing back is
+ * rejected, and recognised as done. The op ids live outside the batch node so the delta sync
+ * doesn't carry them, and are deleted once the write is confirmed. A node still on the legacy
+ * count aliases refuses increments; it is backfilled in a transaction and the write sent again.
+ * Main thread only; the mirror is read and written on its own thread.
+ */
+public final class BatchSync {
+
+    private static final String TAG = "BatchSync";
+    static final String BATCHES_PATH = "batches";
+    /** {@code batchOps/{batchId}/{op}}: time an increment write was applied. */
+    static final String OPS_PATH = "batchOps";
+
+    // re-read a little before the sync point: writes committed in the same moment may arrive late
+    private static final long SYNC_OVERLAP_MS = 5_000L;
+    // first sync: newest batches by key, fetched ahead of the full sync
+    private static final int FIRST_PAGE = 50;
+
+    // ---- outbox ----
+    private static final long COALESCE_MS = 2_000L;         // quiet time after an edit before sending
+    private static final long RETRY_BASE_MS = 2_000L;
+    private static final long RETRY_MAX_MS = 5 * 60_000L;
+    private static final int MAX_BATCHES_PER_WRITE = 100;
+    // sent on its own and rejected this often: give up and take the server's version
+    private static final int MAX_ATTEMPTS = 6;
+
+    public interface Listener {
+        /** Rows that changed in the mirror; {@code batch} is null for deleted ones. */
+        @MainThread void onBatchesChanged(@NonNull List<BatchMirror.Change> changes);
+
+        /** Batches with writes the server hasn't confirmed yet. */
+        @MainThread default void onPendingChanged(@NonNull Set<String> batchIds) {}
+
+        /** A write the server kept refusing was dropped; the row goes back to the server's version. */
+        @MainThread default void onWriteDropped(@NonNull String batchId) {}
+    }
+
+    public interface LoadCallback {
+        /** Rows newest first; {@code last} is false while more of the mirror is still coming. */
+        @MainThread void onRows(@NonNull List<WoodBatch> rows, boolean last);
+    }
+
+    public interface CountsCallback {
+        @MainThread void onCounts(@NonNull BatchCounts counts);
+    }
+
+    private static BatchSync instance;
+
+    @MainThread
+    public static BatchSync get(@NonNull Context context) {
+        if (instance == null) instance = new BatchSync(context.getApplicationContext());
+        return instance;
+    }
+
+    private final BatchMirror mirror;
+    private final DatabaseReference root = FirebaseDatabase.getInstance().getReference();
+    private final DatabaseReference batchesRef = root.child(BATCHES_PATH);
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> new Thread(r, "batch-mirror"));
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final BatchIdGenerator ids = new BatchIdGenerator(TimeZone.getTimeZone("Asia/Manila"), new SecureRandom());
+    private final List<Listener> listeners = new ArrayList<>();
+    private int starts;
+    @Nullable private Query query;
+    @Nullable private ChildEventListener childListener;
+
+    private final DatabaseReference connectedRef = FirebaseDatabase.getInstance().getReference(".info/connected");
+    private boolean connected, flushing;
+    private boolean oneAtATime;   // after a rejected multi-batch write, to find the write that's refused
+    private int failures;         // consecutive rejected writes
+    private Set<String> pendingIds = Collections.emptySet();
+    private final Runnable flushOutbox = this::flushOutbox;
+
+    // events since the last flush, latest per key; null snapshot = node removed
+    private final Map<String, DataSnapshot> pending = new LinkedHashMap<>();
+    private boolean flushPosted;
+
+    private BatchSync(Context app) {
+        mirror = new BatchMirror(app);
+    }
+
+    // ---- sync ----
+
+    /** Starts syncing; calls nest like {@link AlertRepository#start()}. */
+    @MainThread
+    public void start() {
+        if (starts++ > 0) return;
+        io.execute(() -> {
+            long syncedTo = mirror.syncedTo();
+            Set<String> outgoing = mirror.outgoingIds();
+            main.post(() -> {
+                setPending(outgoing);
+                if (starts > 0 && childListener == null) subscribe(syncedTo);
+            });
+        });
+        // fires right away when online: sends what a previous run left in the outbox
+        connectedRef.addValueEventListener(connectedListener);
+    }
+
+    @MainThread
+    public void stop() {
+        if (starts == 0 || --starts > 0) return;
+        if (query != null && childListener != null) query.removeEventListener(childListener);
+        query = null;
+        childListener = null;
+        connectedRef.removeEventListener(connectedListener);
+        // send the last burst now, before the app drops the connection
+        main.removeCallbacks(flushOutbox);
+        if (!pendingIds.isEmpty()) flushOutbox();
+        connected = false;
+    }
+
+    private final ValueEventListener connectedListener = new ValueEventListener() {
+        @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
+            boolean now = Boolean.TRUE.equals(snapshot.getValue());
+            boolean regained = now && !connected;
+            connected = now;
+            if (regained) {
+                failures = 0;
+                main.removeCallbacks(flushOutbox);
+                flushOutbox();
+            }
+        }
+
+        @Override public void onCancelled(@NonNull DatabaseError error) {
+            Log.w(TAG, "Connection state cancelled: " + error.getMessage());
+        }
+    };
+
+    private void subscribe(long syncedTo) {
+        Query q = batchesRef.orderByChild(WoodBatchCodec.UPDATED_AT);
+        // first sync: no bound, so batches written before updatedAt existed come along too
+        if (syncedTo > 0) q = q.startAt(syncedTo - SYNC_OVERLAP_MS);
+        else prefetchNewest();
+        Log.d(TAG, "Syncing batches updated since " + syncedTo);
+        query = q;
+        childListener = new ChildEventListener() {
+            @Override public void onChildAdded(@NonNull DataSnapshot child, @Nullable String prev) {
+                enqueue(child.getKey(), child);
+            }
+
+            @Override public void onChildChanged(@NonNull DataSnapshot child, @Nullable String prev) {
+                enqueue(child.getKey(), child);
+            }
+
+            @Override public void onChildMoved(@NonNull DataSnapshot child, @Nullable String prev) {}
+
+            @Override public void onChildRemoved(@NonNull DataSnapshot child) {
+                // hard delete (console, older app versions): tombstones arrive as changes
+                enqueue(child.getKey(), null);
+            }
+
+            @Override public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "Batch sync cancelled: " + error.getMessage());
+            }
+        };
+        q.addChildEventListener(childListener);
+    }
+
+    private void prefetchNewest() {
+        batchesRef.orderByKey().limitToLast(FIRST_PAGE).get().addOnSuccessListener(page -> {
+            Map<String, DataSnapshot> work = new LinkedHashMap<>();
+            for (DataSnapshot child : page.getChildren()) work.put(child.getKey(), child);
+            io.execute(() -> {
+                List<BatchMirror.Change> added = mirror.prefill(decode(work));
+                if (!added.isEmpty()) main.post(() -> notifyChanged(added));
+            });
+        });
+    }
+
+    private void enqueue(@Nullable String key, @Nullable DataSnapshot child) {
+        if (key == null) return;
+        pending.put(key, child);
+        // the initial burst of onChildAdded arrives in one go; write it as one transaction
+        if (!flushPosted) {
+            flushPosted = true;
+            main.post(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushPosted = false;
+        if (pending.isEmpty()) return;
+        final Map<String, DataSnapshot> work = new LinkedHashMap<>(pending);
+        pending.clear();
+        io.execute(() -> {
+            List<BatchMirror.Change> applied = mirror.apply(decode(work));
+            if (!applied.isEmpty()) main.post(() -> notifyChanged(applied));
+        });
+    }
+
+    @WorkerThread
+    private static List<BatchMirror.Change> decode(Map<String, DataSnapshot> work) {
+        List<BatchMirror.Change> out = new ArrayList<>(work.size());
+        for (Map.Entry<String, DataSnapshot> e : work.entrySet()) {
+            Object raw = e.getValue() != null ? e.getValue().getValue() : null;
+            String id = WoodBatchCodec.batchIdOf(e.getKey(), raw);
+            if (id == null) continue;
+            // tombstones and undecodable nodes both drop the row
+            out.add(new BatchMirror.Change(id, WoodBatchCodec.decode(e.getKey(), raw), WoodBatchCodec.updatedAtOf(raw)));
+        }
+        return out;
+    }
+
+    private void notifyChanged(List<BatchMirror.Change> changes) {
+        for (Listener l : new ArrayList<>(listeners)) l.onBatchesChanged(changes);
+    }
+
+    // ---- writes ----
+
+    /** Id for a batch created now; unique across devices and in creation order. */
+    @NonNull
+    public String newBatchId() {
+        return ids.next(System.currentTimeMillis());
+    }
+
+    @MainThread
+    public void add(@NonNull WoodBatch batch) {
+        queue(batch.getBatchId(), true, WoodBatchCodec.encode(batch), Collections.emptyMap());
+    }
+
+    /**
+     * Moves pieces by the given amounts, e.g. (+20, 0) racks 20 and (-15, +15) finishes 15 from
+     * the rack. Applied on top of whatever the server holds by then.
+     */
+    @MainThread
+    public void adjustCounts(@NonNull String batchId, int inRackDelta, int finishedDelta) {
+        if (inRackDelta == 0 && finishedDelta == 0) return;
+        Map<String, Long> increments = new HashMap<>();
+        if (inRackDelta != 0) increments.put(WoodBatchCodec.IN_RACK, (long) inRackDelta);
+        if (finishedDelta != 0) increments.put(WoodBatchCodec.FINISHED, (long) finishedDelta);
+        increments.put(WoodBatchCodec.REMAINING, -(long) (inRackDelta + finishedDelta));
+        queue(batchId, false, Collections.emptyMap(), increments);
+    }
+
+    /** Replaces the batch with a tombstone, so synced devices drop it too. */
+    @MainThread
+    public void delete(@NonNull String batchId) {
+        queue(batchId, true, WoodBatchCodec.tombstone(batchId), Collections.emptyMap());
+    }
+
+    private void queue(String batchId, boolean replace, Map<String, Object> fields, Map<String, Long> increments) {
+        Set<String> ids = new HashSet<>(pendingIds);
+        ids.add(batchId);
+        setPending(ids);
+        io.execute(() -> {
+            BatchMirror.Change local = mirror.enqueue(batchId, replace, fields, increments);
+            main.post(() -> notifyChanged(Collections.singletonList(local)));
+        });
+        // each edit restarts the quiet period; a backoff already running is left alone
+        if (failures == 0) {
+            main.removeCallbacks(flushOutbox);
+            main.postDelayed(flushOutbox, COALESCE_MS);
+        }
+    }
+
+    private void flushOutbox() {
+        if (flushing || !connected) return;   // regaining the connection flushes again
+        flushing = true;
+        final int limit = oneAtATime ? 1 : MAX_BATCHES_PER_WRITE;
+        io.execute(() -> {
+            List<BatchMirror.Outgoing> batch = mirror.takeOutgoing(limit);
+            main.post(() -> send(batch));
+        });
+    }
+
+    /** One multi-path update (from the root, for the op ids) for every queued batch. */
+    private void send(List<BatchMirror.Outgoing> batch) {
+        if (batch.isEmpty()) {
+            flushing = false;
+            return;
+        }
+        Map<String, Object> paths = new HashMap<>();
+        for (BatchMirror.Outgoing o : batch) {
+            if (o.replace) {
+                Map<String, Object> node = new HashMap<>(o.fields);
+                node.put(WoodBatchCodec.UPDATED_AT, ServerValue.TIMESTAMP);
+                paths.put(BATCHES_PATH + "/" + o.batchId, node);
+            } else {
+                String node = BATCHES_PATH + "/" + o.batchId + "/";
+                for (Map.Entry<String, Object> f : o.fields.entrySet()) paths.put(node + f.getKey(), f.getValue());
+                for (Map.Entry<String, Long> inc : o.increments.entrySet()) {
+                    paths.put(node + inc.getKey(), ServerValue.increment(inc.getValue()));
+                }
+                if (!o.increments.isEmpty()) paths.put(opPath(o), ServerValue.TIMESTAMP);
+                paths.put(node + WoodBatchCodec.UPDATED_AT, ServerValue.TIMESTAMP);
+            }
+        }
+        Log.d(TAG, "Sending " + batch.size() + " queued batch write(s)");
+        root.updateChildren(paths).addOnCompleteListener(t -> {
+            if (t.isSuccessful()) onSent(batch);
+            else onRejected(batch, t.getException());
+        });
+    }
+
+    private static String opPath(BatchMirror.Outgoing o) {
+        return OPS_PATH + "/" + o.batchId + "/" + o.op;
+    }
+
+    private void onSent(List<BatchMirror.Outgoing> batch) {
+        pruneOps(batch);
+        io.execute(() -> {
+            List<BatchMirror.Change> shown = mirror.remove(batch);
+            Set<String> outgoing = mirror.outgoingIds();
+            main.post(() -> {
+                flushing = false;
+                failures = 0;
+                oneAtATime = false;
+                setPending(outgoing);
+                notifyChanged(shown);
+                // edits made meanwhile, or more than fit in one write
+                if (!outgoing.isEmpty()) flushOutbox();
+            });
+        });
+    }
+
+    // the SDK holds writes while offline rather than failing them, so this is the server saying no
+    private void onRejected(List<BatchMirror.Outgoing> batch, @Nullable Exception e) {
+        final BatchMirror.Outgoing alone = batch.size() == 1 ? batch.get(0) : null;
+        if (alone != null && !alone.increments.isEmpty()) {
+            // an earlier try may have landed unheard, and the op id is what's refusing this one
+            root.child(opPath(alone)).get().addOnCompleteListener(t -> {
+                if (!t.isSuccessful()) onFailed(batch, e);
+                else if (t.getResult().exists()) onSent(batch);
+                else backfillThenResend(batch, e);
+            });
+            return;
+        }
+        onFailed(batch, e);
+    }
+
+    /**
+     * Increments on a node that only has the legacy count aliases would count from 0, so the
+     * rules refuse them. Writes the canonical counts from the aliases in a transaction (nothing
+     * is written if they're there already), then sends the same entry again.
+     */
+    private void backfillThenResend(List<BatchMirror.Outgoing> batch, @Nullable Exception e) {
+        final String batchId = batch.get(0).batchId;
+        batchesRef.child(batchId).runTransaction(new Transaction.Handler() {
+            private boolean backfilled;
+
+            @NonNull
+            @Override public Transaction.Result doTransaction(@NonNull MutableData current) {
+                Object raw = current.getValue();
+                backfilled = false;
+                // the first run may see an empty local cache; the server's value reruns it
+                if (raw == null) return Transaction.success(current);
+                Map<String, Object> fields = WoodBatchCodec.dropAliases(batchId, raw);
+                if (fields == null) return Transaction.abort();   // not legacy: refused for another reason
+                backfilled = true;
+                for (Map.Entry<String, Object> f : fields.entrySet()) current.child(f.getKey()).setValue(f.getValue());
+                current.child(WoodBatchCodec.UPDATED_AT).setValue(ServerValue.TIMESTAMP);
+                return Transaction.success(current);
+            }
+
+            @Override public void onComplete(@Nullable DatabaseError error, boolean committed,
+                                             @Nullable DataSnapshot data) {
+                if (error != null || !committed || !backfilled) {
+                    onFailed(batch, e);
+                    return;
+                }
+                Log.d(TAG, "Backfilled legacy counts of " + batchId);
+                flushing = false;
+                flushOutbox();
+            }
+        });
+    }
+
+    /** Op ids of confirmed writes: never sent again, so nothing needs them any more. */
+    private void pruneOps(List<BatchMirror.Outgoing> batch) {
+        Map<String, Object> paths = new HashMap<>();
+        for (BatchMirror.Outgoing o : batch) if (!o.increments.isEmpty()) paths.put(opPath(o), null);
+        if (paths.isEmpty()) return;
+        root.updateChildren(paths).addOnFailureListener(error -> Log.w(TAG, "Couldn't prune op ids", error));
+    }
+
+    private void onFailed(List<BatchMirror.Outgoing> batch, @Nullable Exception e) {
+        Log.w(TAG, "Batch write rejected (" + batch.size() + " batch(es))", e);
+        final BatchMirror.Outgoing alone = batch.size() == 1 ? batch.get(0) : null;
+        final boolean giveUp = alone != null && alone.attempts + 1 >= MAX_ATTEMPTS;
+        io.execute(() -> {
+            List<BatchMirror.Change> shown = giveUp
+                    ? mirror.remove(batch)
+                    : Collections.<BatchMirror.Change>emptyList();
+            if (!giveUp) mirror.failed(batch);
+            Set<String> outgoing = mirror.outgoingIds();
+            main.post(() -> {
+                flushing = false;
+                failures++;
+                if (alone == null) oneAtATime = true;
+                if (giveUp) {
+                    notifyChanged(shown);
+                    refetch(alone.batchId);
+                    for (Listener l : new ArrayList<>(listeners)) l.onWriteDropped(alone.batchId);
+                }
+                setPending(outgoing);
+                long delay = Math.min(RETRY_MAX_MS, RETRY_BASE_MS << Math.min(failures - 1, 16));
+                main.removeCallbacks(flushOutbox);
+                main.postDelayed(flushOutbox, delay);
+            });
+        });
+    }
+
+    /** Replaces the local row of a dropped write with what the server has. */
+    private void refetch(String batchId) {
+        Log.w(TAG, "Dropped write for " + batchId + " after " + MAX_ATTEMPTS + " attempts");
+        batchesRef.child(batchId).get().addOnSuccessListener(node -> enqueue(batchId, node));
+    }
+
+    private void setPending(Set<String> ids) {
+        if (ids.equals(pendingIds)) return;
+        pendingIds = Collections.unmodifiableSet(ids);
+        for (Listener l : new ArrayList<>(listeners)) l.onPendingChanged(pendingIds);
+    }
+
+    /** Batches with writes the server hasn't confirmed yet. */
+    @MainThread
+    @NonNull
+    public Set<String> getPendingIds() {
+        return pendingIds;
+    }
+
+    // ---- reads ----
+
+    /**
+     * Reads the whole mirror (the inventory searches all of it in memory, see
+     * {@link BatchListFragment}). With {@code firstRows} &gt; 0 the newest rows are delivered on
+     * their own first, so a list can render before the rest is read.
+     */
+    @MainThread
+    public void load(int firstRows, @NonNull LoadCallback callback) {
+        // one task: changes applied meanwhile are reported after the rows they follow
+        io.execute(() -> {
+            List<WoodBatch> first = firstRows > 0 ? mirror.page(null, firstRows) : null;
+            if (first != null && first.size() < firstRows) {
+                main.post(() -> callback.onRows(first, true));
+                return;
+            }
+            if (first != null) main.post(() -> callback.onRows(first, false));
+            WoodBatch after = first == null || first.isEmpty() ? null : first.get(first.size() - 1);
+            List<WoodBatch> rest = mirror.page(after, -1);
+            main.post(() -> callback.onRows(rest, true));
+        });
+    }
+
+    /** Home tile counts over the whole mirror, counted on the mirror's thread. */
+    @MainThread
+    public void counts(int lowStockThreshold, @NonNull CountsCallback callback) {
+        io.execute(() -> {
+            BatchCounts counts = mirror.counts(lowStockThreshold);
+            main.post(() -> callback.onCounts(counts));
+        });
+    }
+
+    @MainThread
+    public void addListener(@NonNull Listener l) {
+        listeners.add(l);
+    }
+
+    @MainThread
+    public void removeListener(@NonNull Listener l) {
+        listeners.remove(l);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.drysync;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.FirebaseDatabase;
+
+/**
+ * Keeps the Realtime Database socket open only while it's needed: while an activity is started,
+ * or while background work holds it ({@link #holdConnection()}). Otherwise the app goes offline a
+ * few seconds after the last activity stops, and {@link MonitorWorker} checks the kiln on its
+ * own schedule instead of leaving the radio awake.
+ */
+public class DrySyncApp extends Application {
+
+    private static final String TAG = "DrySyncApp";
+
+    // rides out rotations and activity switches, and outlasts SensorRepository's listener linger:
+    // coming back while a node is still listened to shouldn't have to reconnect and sync it again
+    private static final long OFFLINE_DELAY_MS = SensorRepository.LINGER_MS + 15_000L;
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private int startedActivities;   // main thread
+    private int holds;               // guarded by this
+    private volatile boolean uiVisible;
+    private boolean online = true;   // guarded by this; the SDK starts online
+
+    private final Runnable goOffline = this::updateConnection;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        registerActivityLifecycleCallbacks(new ActivityLifecycleCallbacks() {
+            @Override public void onActivityStarted(@NonNull Activity activity) {
+                if (startedActivities++ == 0) {
+                    uiVisible = true;
+                    main.removeCallbacks(goOffline);
+                    updateConnection();
+                }
+            }
+
+            @Override public void onActivityStopped(@NonNull Activity activity) {
+                if (--startedActivities == 0) {
+                    uiVisible = false;
+                    main.postDelayed(goOffline, OFFLINE_DELAY_MS);
+                }
+            }
+
+            @Override public void onActivityCreated(@NonNull Activity a, @Nullable Bundle b) {}
+            @Override public void onActivityResumed(@NonNull Activity a) {}
+            @Override public void onActivityPaused(@NonNull Activity a) {}
+            @Override public void onActivitySaveInstanceState(@NonNull Activity a, @NonNull Bundle b) {}
+            @Override public void onActivityDestroyed(@NonNull Activity a) {}
+        });
+
+        // before anything decodes a batch: whether the legacy aliases are still read
+        SchemaMigrator.get(this);
+        AlertNotifier.register(this);
+        MonitorWorker.schedule(this);
+    }
+
+    /** Whether any activity is started (readable from any thread). */
+    public boolean isUiVisible() {
+        return uiVisible;
+    }
+
+    /** Keeps the database online for background work; pair with {@link #releaseConnection()}. */
+    public synchronized void holdConnection() {
+        holds++;
+        updateConnection();
+    }
+
+    public synchronized void releaseConnection() {
+        if (holds > 0) holds--;
+        updateConnection();
+    }
+
+    private synchronized void updateConnection() {
+        boolean wanted = uiVisible || holds > 0;
+        if (wanted == online) return;
+        online = wanted;
+        Log.d(TAG, wanted ? "Going online" : "Going offline");
+        if (wanted) FirebaseDatabase.getInstance().goOnline();
+        else FirebaseDatabase.getInstance().goOffline();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.drysync;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/** Short text for a drying estimate: "Dry in ~6h (4–9h)", "Dry in ~3d (2d+)", "Dry". */
+final class EtaText {
+
+    private EtaText() { }
+
+    @NonNull
+    static String format(@Nullable DryingPredictor.Estimate e) {
+        if (e == null) return "ETA --";
+        if (e.isDry()) return "Dry";
+        // the band in the unit of the estimate, so "~30h (20–45h)" rather than mixing hours and days
+        boolean days = e.hours >= 48;
+        String band = Double.isInfinite(e.highHours)
+                ? amount(e.lowHours, days) + "+"
+                : amount(e.lowHours, days) + "–" + amount(e.highHours, days);
+        return "Dry in ~" + amount(e.hours, days) + " (" + band + ")";
+    }
+
+    private static String amount(double hours, boolean days) {
+        if (days) return Math.max(1, Math.round(hours / 24)) + "d";
+        if (hours < 1) return "<1h";
+        return Math.round(hours) + "h";
+    }
+}
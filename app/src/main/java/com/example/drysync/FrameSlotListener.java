@@ -0,0 +1,94 @@
+package com.example.drysync;
+
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Slot listener for screens: conflates what {@link SensorRepository} reports (newest reading per
+ * slot, moisture changes under {@link #VALUE_EPSILON} dropped, see {@link SlotConflator}) and
+ * hands it to {@code target} once per display frame, so a chatty sensor costs at most one round
+ * of view updates per frame. The first delivery after subscribing goes out at once, so a screen
+ * isn't blank for a frame.
+ *
+ * Only for drawing: stats, alerts and history listen to the repository directly and see every
+ * reading. Call {@link #cancel()} after removing it. What was shown is kept, and the replay of
+ * the next {@link SensorRepository#addSlotListener(SensorRepository.SlotListener)} is checked
+ * against it, so slots removed while it wasn't listening are taken off too. Main thread only.
+ */
+final class FrameSlotListener implements SensorRepository.SlotListener {
+
+    /** Moisture changes smaller than this (percentage points) aren't worth a redraw. */
+    private static final float VALUE_EPSILON = 0.05f;
+
+    private final SensorRepository.SlotListener target;
+    private final SlotConflator slots = new SlotConflator(VALUE_EPSILON);
+    private final Choreographer.FrameCallback flush = frameTimeNanos -> flush();
+    private boolean flushPosted;
+    @Nullable private Set<Integer> replayed;   // after cancel(): slots the re-subscribe replayed so far
+
+    FrameSlotListener(@NonNull SensorRepository.SlotListener target) {
+        this.target = target;
+    }
+
+    @Override public void onSlotChanged(@NonNull SlotReading reading) {
+        if (replayed != null) replayed.add(reading.getSlot());
+        slots.offer(reading);
+    }
+
+    @Override public void onSlotRemoved(int slot) {
+        slots.remove(slot);
+    }
+
+    @Override public void onSlotsFlushed() {
+        if (replayed != null) {
+            // the replay is every slot the repository knows: shown ones it left out are gone
+            for (SlotReading r : new ArrayList<>(slots.shown())) {
+                if (!replayed.contains(r.getSlot())) slots.remove(r.getSlot());
+            }
+            replayed = null;
+        }
+        if (!slots.hasPending() || flushPosted) return;
+        if (slots.shown().isEmpty()) {
+            flush();
+            return;
+        }
+        flushPosted = true;
+        Choreographer.getInstance().postFrameCallback(flush);
+    }
+
+    /** Stops the frame callback; the next subscribe's replay is reconciled against what's shown. */
+    @MainThread
+    void cancel() {
+        if (flushPosted) Choreographer.getInstance().removeFrameCallback(flush);
+        flushPosted = false;
+        replayed = new HashSet<>();
+    }
+
+    /** The screen's views were rebuilt: the next subscribe's replay draws every slot again. */
+    @MainThread
+    void forget() {
+        cancel();
+        replayed = null;
+        slots.clear();
+    }
+
+    private void flush() {
+        flushPosted = false;
+        List<SlotReading> changed = slots.drain();
+        if (changed.isEmpty()) return;
+        for (SlotReading r : changed) {
+            // drained removals are no longer shown
+            if (slots.shown(r.getSlot()) == null) target.onSlotRemoved(r.getSlot());
+            else target.onSlotChanged(r);
+        }
+        target.onSlotsFlushed();
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.drysync;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+import android.view.ViewParent;
+import android.widget.OverScroller;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Line chart of one history series over a time window, with pinch-zoom, pan and fling.
+ *
+ * Holds two levels of detail: a coarse overview of the whole extent and, once loaded, a finer
+ * detail covering the current window. Whichever fits the window is drawn, so the chart always
+ * shows something while {@link HistoryLoader} refines it after a gesture settles.
+ *
+ * Drawing allocates nothing: points stay in {@link PointBuffer}s, the visible ones are folded
+ * into per-pixel {@link PixelColumns} and traced into one reused {@link Path}, and the value
+ * labels are formatted into a char buffer. A frame costs one pass over the visible points plus
+ * four vertices per pixel, whether the window holds a hundred points or 100k.
+ */
+public class HistoryChartView extends View {
+
+    /** Called once a gesture (including its fling) has moved the window and come to rest. */
+    public interface OnWindowChangeListener {
+        void onWindowChanged(long fromMillis, long toMillis);
+    }
+
+    private static final long MIN_SPAN_MS = 10 * 60 * 1000L;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path path = new Path();
+    private final PixelColumns columns = new PixelColumns();
+
+    private final PointBuffer overview = new PointBuffer();
+    private final PointBuffer detail = new PointBuffer();
+    private long detailFrom, detailTo;
+    private boolean hasDetail;
+
+    private long extentFrom = Long.MAX_VALUE, extentTo = Long.MIN_VALUE;
+    private long windowFrom, windowTo;
+
+    // ---- labels: "12.3" + unit, written into one buffer ----
+    private final char[] label = new char[24];
+    private final char decimalSeparator;
+    private char[] unit = "%".toCharArray();
+
+    // ---- gestures ----
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+    private final OverScroller scroller;
+    private int flingLastX;
+    private boolean flinging, moved;
+    @Nullable private OnWindowChangeListener windowListener;
+
+    public HistoryChartView(Context context) {
+        this(context, null);
+    }
+
+    public HistoryChartView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        linePaint.setColor(ContextCompat.getColor(context, R.color.brown));
+        linePaint.setStrokeWidth(2 * density);
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeJoin(Paint.Join.ROUND);
+        labelPaint.setColor(ContextCompat.getColor(context, R.color.brown));
+        labelPaint.setTextSize(12 * getResources().getDisplayMetrics().scaledDensity);
+        decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+
+        scroller = new OverScroller(context);
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScaleBegin(ScaleGestureDetector detector) {
+                claimTouch();
+                return true;
+            }
+
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                // only the horizontal spread zooms time
+                float previous = detector.getPreviousSpanX(), current = detector.getCurrentSpanX();
+                float factor = previous > 0 && current > 0 ? current / previous : detector.getScaleFactor();
+                zoomBy(factor, detector.getFocusX());
+                return true;
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                if (!scroller.isFinished()) {
+                    scroller.forceFinished(true);
+                    flinging = false;
+                    moved = true;   // report where the interrupted fling stopped
+                }
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float dx, float dy) {
+                if (scaleDetector.isInProgress()) return false;
+                // mostly vertical drags belong to the scrolling parent
+                if (Math.abs(dx) < Math.abs(dy)) return false;
+                claimTouch();
+                panBy(dx);
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float vx, float vy) {
+                if (scaleDetector.isInProgress() || Math.abs(vx) < Math.abs(vy)) return false;
+                flingLastX = 0;
+                flinging = true;
+                scroller.fling(0, 0, (int) -vx, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 0);
+                postInvalidateOnAnimation();
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                setWindow(extentFrom, extentTo);
+                moved = true;
+                return true;
+            }
+        });
+    }
+
+    // ---- data ----
+
+    /** Range gestures may move the window within, in epoch millis. */
+    public void setExtent(long fromMillis, long toMillis) {
+        extentFrom = fromMillis;
+        extentTo = Math.max(fromMillis + 1, toMillis);
+        applyWindow(windowFrom, windowTo);
+    }
+
+    /** Time window shown, in epoch millis, kept inside the extent (which it becomes if unset). */
+    public void setWindow(long fromMillis, long toMillis) {
+        toMillis = Math.max(fromMillis + 1, toMillis);
+        if (extentFrom > extentTo) {
+            extentFrom = fromMillis;
+            extentTo = toMillis;
+        }
+        applyWindow(fromMillis, toMillis);
+    }
+
+    public long getWindowFrom() { return windowFrom; }
+    public long getWindowTo() { return windowTo; }
+
+    public void setOnWindowChangeListener(@Nullable OnWindowChangeListener listener) {
+        windowListener = listener;
+    }
+
+    /** Suffix of the value labels, e.g. "%" or "°C". */
+    public void setUnit(@NonNull String unit) {
+        this.unit = unit.toCharArray();
+        invalidate();
+    }
+
+    public void setOverview(@NonNull PointBuffer points) {
+        overview.copyFrom(points);
+        invalidate();
+    }
+
+    /** Finer points for [from, to]; drawn while the window stays inside that range. */
+    public void setDetail(@NonNull PointBuffer points, long fromMillis, long toMillis) {
+        detail.copyFrom(points);
+        detailFrom = fromMillis;
+        detailTo = toMillis;
+        hasDetail = true;
+        invalidate();
+    }
+
+    /** A live reading; a window ending at the previous newest point follows it, and so does the extent. */
+    public void addLivePoint(long timeMillis, float value) {
+        if (Float.isNaN(value)) return;
+        boolean following = windowTo >= lastTime() && scroller.isFinished();
+        if (overview.isEmpty() || timeMillis > overview.lastTime()) overview.add(timeMillis, value);
+        if (hasDetail && timeMillis >= detailFrom && (detail.isEmpty() || timeMillis > detail.lastTime())) {
+            detail.add(timeMillis, value);
+            detailTo = Math.max(detailTo, timeMillis);
+        }
+        if (extentFrom <= extentTo && timeMillis > extentTo) {
+            extentFrom += timeMillis - extentTo;
+            extentTo = timeMillis;
+        }
+        if (following && timeMillis > windowTo) {
+            long span = windowTo - windowFrom;
+            applyWindow(timeMillis - span, timeMillis);
+        } else {
+            invalidate();
+        }
+    }
+
+    private long lastTime() {
+        return overview.isEmpty() ? Long.MIN_VALUE : overview.lastTime();
+    }
+
+    // ---- gestures ----
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = scaleDetector.onTouchEvent(event);
+        handled |= gestureDetector.onTouchEvent(event);
+        int action = event.getActionMasked();
+        if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) && !flinging) {
+            settle();
+        }
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    public void computeScroll() {
+        if (scroller.computeScrollOffset()) {
+            int x = scroller.getCurrX();
+            int dx = x - flingLastX;
+            long before = windowFrom;
+            panBy(dx);
+            flingLastX = x;
+            if (dx != 0 && windowFrom == before) scroller.forceFinished(true);   // ran into an end
+            postInvalidateOnAnimation();
+        } else if (flinging) {
+            flinging = false;
+            settle();
+        }
+    }
+
+    private void claimTouch() {
+        ViewParent parent = getParent();
+        if (parent != null) parent.requestDisallowInterceptTouchEvent(true);
+    }
+
+    private void settle() {
+        if (!moved) return;
+        moved = false;
+        if (windowListener != null) windowListener.onWindowChanged(windowFrom, windowTo);
+    }
+
+    private void panBy(float dxPixels) {
+        float w = plotWidth();
+        if (w <= 0) return;
+        long shift = (long) (dxPixels / w * (windowTo - windowFrom));
+        if (shift == 0) return;
+        applyWindow(windowFrom + shift, windowTo + shift);
+        moved = true;
+    }
+
+    private void zoomBy(float factor, float focusX) {
+        float w = plotWidth();
+        if (w <= 0 || factor <= 0) return;
+        // the time under the fingers stays under the fingers
+        double at = Math.max(0, Math.min(1, (focusX - getPaddingLeft()) / w));
+        long span = windowTo - windowFrom;
+        long focus = windowFrom + (long) (at * span);
+        long newSpan = Math.max(MIN_SPAN_MS, Math.min(extentTo - extentFrom, (long) (span / factor)));
+        long from = focus - (long) (at * newSpan);
+        applyWindow(from, from + newSpan);
+        moved = true;
+    }
+
+    /** Moves the window, shifted back inside the extent, and redraws. */
+    private void applyWindow(long from, long to) {
+        if (extentFrom > extentTo) return;   // nothing set yet
+        long span = Math.max(1, Math.min(to - from, extentTo - extentFrom));
+        if (from + span > extentTo) from = extentTo - span;
+        if (from < extentFrom) from = extentFrom;
+        if (from == windowFrom && from + span == windowTo) return;
+        windowFrom = from;
+        windowTo = from + span;
+        postInvalidateOnAnimation();
+    }
+
+    private float plotWidth() {
+        return getWidth() - getPaddingLeft() - getPaddingRight();
+    }
+
+    // ---- drawing ----
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        columns.resize(Math.max(0, w - getPaddingLeft() - getPaddingRight()));
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        PointBuffer points = hasDetail && detailFrom <= windowFrom && detailTo >= windowTo ? detail : overview;
+        float left = getPaddingLeft(), top = getPaddingTop();
+        float w = plotWidth();
+        float h = getHeight() - top - getPaddingBottom();
+
+        // points inside the window, plus one on each side so the line runs to the edges
+        int first = points.indexAtOrAfter(windowFrom);
+        int end = points.indexAtOrAfter(windowTo);
+        int from = Math.max(0, first - 1);
+        int to = Math.min(points.size(), end + 1);
+        if (to - from < 2 || w <= 0 || h <= 0) {
+            canvas.drawText("No history yet", left, top + h / 2, labelPaint);
+            return;
+        }
+
+        columns.aggregate(points, first, end, windowFrom, windowTo);
+        float min = Math.min(columns.min(), Math.min(points.value(from), points.value(to - 1)));
+        float max = Math.max(columns.max(), Math.max(points.value(from), points.value(to - 1)));
+        float pad = Math.max(0.5f, (max - min) * 0.1f);
+        float yMin = min - pad;
+        float yScale = h / (max + pad - yMin);
+        float bottom = top + h;
+        double xScale = w / (double) (windowTo - windowFrom);
+
+        path.rewind();
+        boolean started = false;
+        if (from < first) {
+            path.moveTo(left + (float) ((points.time(from) - windowFrom) * xScale),
+                    bottom - (points.value(from) - yMin) * yScale);
+            started = true;
+        }
+        for (int c = 0, n = columns.columns(); c < n; c++) {
+            if (columns.isEmpty(c)) continue;
+            float x = left + c + 0.5f;
+            float yFirst = bottom - (columns.first(c) - yMin) * yScale;
+            if (started) path.lineTo(x, yFirst);
+            else path.moveTo(x, yFirst);
+            started = true;
+            if (columns.count(c) > 1) {
+                path.lineTo(x, bottom - (columns.min(c) - yMin) * yScale);
+                path.lineTo(x, bottom - (columns.max(c) - yMin) * yScale);
+                path.lineTo(x, bottom - (columns.last(c) - yMin) * yScale);
+            }
+        }
+        if (to > end) {
+            path.lineTo(left + (float) ((points.time(to - 1) - windowFrom) * xScale),
+                    bottom - (points.value(to - 1) - yMin) * yScale);
+        }
+
+        canvas.save();
+        canvas.clipRect(left, top, left + w, bottom);
+        canvas.drawPath(path, linePaint);
+        canvas.restore();
+
+        int n = formatLabel(max);
+        canvas.drawText(label, 0, n, left, top + labelPaint.getTextSize(), labelPaint);
+        n = formatLabel(min);
+        canvas.drawText(label, 0, n, left, bottom - 4, labelPaint);
+    }
+
+    /** Writes {@code value} with one decimal plus the unit into {@link #label}; returns the length. */
+    private int formatLabel(float value) {
+        long tenths = Math.round(value * 10.0);
+        boolean negative = tenths < 0;
+        if (negative) tenths = -tenths;
+        // digits right to left at the end of the buffer, then moved to the front
+        int p = label.length;
+        label[--p] = (char) ('0' + tenths % 10);
+        label[--p] = decimalSeparator;
+        long whole = tenths / 10;
+        do {
+            label[--p] = (char) ('0' + whole % 10);
+            whole /= 10;
+        } while (whole > 0 && p > 1);
+        if (negative && tenths != 0) label[--p] = '-';
+        int n = label.length - p;
+        System.arraycopy(label, p, label, 0, n);
+        int u = Math.min(unit.length, label.length - n);
+        System.arraycopy(unit, 0, label, n, u);
+        return n + u;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.drysync;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.io.IOException;
+
+/**
+ * Chart data for one history series, downsampled with {@link Lttb} to the chart's pixel width.
+ *
+ * {@link #loadOverview} reads the whole range once at one point per pixel; {@link #loadDetail}
+ * then re-reads only the window being looked at and downsamples it again, so the detail grows as
+ * the window shrinks while the overview covers the gap in the meantime. Reads come from the
+ * on-device store ({@link SensorHistory}); a window the device has no points for falls back to
+ * the shared /history buckets ({@link RtdbHistory}). A newer load supersedes an unfinished one.
+ */
+final class HistoryLoader {
+
+    private static final String TAG = "HistoryLoader";
+
+    interface Callback {
+        @MainThread void onOverview(@NonNull PointBuffer points);
+        @MainThread void onDetail(@NonNull PointBuffer points, long fromMillis, long toMillis);
+    }
+
+    private final SensorHistory history;
+    private final String series;
+    private final Callback callback;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private RtdbHistory rtdb;   // only created when the local store comes up empty
+
+    // bumped on the main thread for every request; results of older ones are dropped
+    private volatile int overviewGeneration, detailGeneration;
+    // full-resolution scan target, reused across loads (io thread only)
+    private final PointBuffer scratch = new PointBuffer(16 * 1024);
+
+    HistoryLoader(@NonNull Context context, @NonNull String series, @NonNull Callback callback) {
+        this.history = SensorHistory.get(context);
+        this.series = series;
+        this.callback = callback;
+    }
+
+    @MainThread
+    void loadOverview(long fromMillis, long toMillis, int width) {
+        final int gen = ++overviewGeneration;
+        history.io().execute(() -> {
+            long started = SystemClock.elapsedRealtime();
+            PointBuffer points = read(fromMillis, toMillis, width);
+            long took = SystemClock.elapsedRealtime() - started;
+            main.post(() -> {
+                if (gen != overviewGeneration) return;
+                Log.d(TAG, series + " overview: " + points.size() + " points in " + took + " ms");
+                if (!points.isEmpty()) callback.onOverview(points);
+                else loadRemote(fromMillis, toMillis, width, true, gen);
+            });
+        });
+    }
+
+    @MainThread
+    void loadDetail(long fromMillis, long toMillis, int width) {
+        final int gen = ++detailGeneration;
+        history.io().execute(() -> {
+            if (gen != detailGeneration) return;   // already superseded while queued
+            PointBuffer points = read(fromMillis, toMillis, width);
+            main.post(() -> {
+                if (gen != detailGeneration) return;
+                if (!points.isEmpty()) callback.onDetail(points, fromMillis, toMillis);
+                else loadRemote(fromMillis, toMillis, width, false, gen);
+            });
+        });
+    }
+
+    /** Drops every result still on its way, e.g. when the screen goes away. */
+    @MainThread
+    void cancel() {
+        overviewGeneration++;
+        detailGeneration++;
+    }
+
+    @WorkerThread
+    private PointBuffer read(long fromMillis, long toMillis, int width) {
+        scratch.clear();
+        try {
+            history.scan(series, fromMillis, toMillis, scratch::add);
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't read " + series, e);
+        }
+        PointBuffer out = new PointBuffer(Math.min(scratch.size(), width) + 2);
+        Lttb.downsample(scratch, 0, scratch.size(), width, out);
+        return out;
+    }
+
+    @MainThread
+    private void loadRemote(long fromMillis, long toMillis, int width, boolean overview, int gen) {
+        if (rtdb == null) rtdb = new RtdbHistory();
+        rtdb.read(series, fromMillis, toMillis, width, s -> {
+            if (gen != (overview ? overviewGeneration : detailGeneration)) return;
+            PointBuffer all = new PointBuffer(s.size());
+            for (int i = 0; i < s.size(); i++) all.add(s.time(i), s.average(i));
+            PointBuffer points = new PointBuffer(Math.min(all.size(), width) + 2);
+            Lttb.downsample(all, 0, all.size(), width, points);
+            if (points.isEmpty()) return;
+            if (overview) callback.onOverview(points);
+            else callback.onDetail(points, fromMillis, toMillis);
+        });
+    }
+}
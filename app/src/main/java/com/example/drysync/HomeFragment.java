@@ -11,26 +11,13 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
-
 public class HomeFragment extends Fragment {
 
-    // ---- paths (change if your schema differs) ----
-    private static final String SENSORS_PATH = "Sensors";
-    private static final String BATCHES_PATH = "batches";
-
     private TextView temp_text, humid_text;
 
     // Tiles
     private TextView tvActive, tvInactive, tvComplete, tvDrying, tvIncoming, tvAvailable;
-
-    // Firebase refs + listeners
-    private DatabaseReference sensorsRef, batchesRef;
-    private ValueEventListener sensorsListener, batchesListener;
+    private TextView tvNextDry;
 
     private static final int LOW_STOCK_THRESHOLD = 10;
 
@@ -43,27 +30,6 @@ public class HomeFragment extends Fragment {
         temp_text = view.findViewById(R.id.temperature_text);
         humid_text = view.findViewById(R.id.humidity_text);
 
-        FirebaseHelper.retrieveFloatData("Environment/Temperature", new FirebaseHelper.FloatDataCallback() {
-            @Override public void onFloatReceived(float value) {
-                temp_text.setText(value + "°C");
-                Log.e("FirebaseDebug", "Temperature: " + value);
-            }
-            @Override public void onError(String errorMessage) {
-                temp_text.setText(errorMessage);
-                Log.e("FirebaseDebug", "Error: " + errorMessage);
-            }
-        });
-        FirebaseHelper.retrieveFloatData("Environment/Humidity", new FirebaseHelper.FloatDataCallback() {
-            @Override public void onFloatReceived(float value) {
-                humid_text.setText(value + "%");
-                Log.e("FirebaseDebug", "Humidity: " + value);
-            }
-            @Override public void onError(String errorMessage) {
-                humid_text.setText(errorMessage);
-                Log.e("FirebaseDebug", "Error: " + errorMessage);
-            }
-        });
-
         // ---- Bind stats tiles ----
         tvActive   = view.findViewById(R.id.tvActive);
         tvInactive = view.findViewById(R.id.tvInactive);
@@ -71,121 +37,105 @@ public class HomeFragment extends Fragment {
         tvDrying   = view.findViewById(R.id.tvDrying);
         tvIncoming = view.findViewById(R.id.tvIncoming);
         tvAvailable= view.findViewById(R.id.tvAvailable);
+        tvNextDry  = view.findViewById(R.id.tvNextDry);
+        return view;
+    }
 
-        // ---- Realtime listeners ----
-        sensorsRef = FirebaseDatabase.getInstance().getReference(SENSORS_PATH);
-        batchesRef = FirebaseDatabase.getInstance().getReference(BATCHES_PATH);
-
-        attachSensorsListener();
-        attachBatchesListener();
+    // ---- Realtime listeners: only while the tab is in front (hidden tabs get paused) ----
+    @Override
+    public void onResume() {
+        super.onResume();
+        // Sensors + Environment come from the shared repository (one listener app-wide)
+        SensorRepository.get().addEnvironmentListener(environmentListener);
+        SensorRepository.get().addSlotListener(slotListener);
+        // batch tiles come from the local mirror, recounted when the sync changes it
+        BatchSync.get(requireContext()).addListener(batchesListener);
+        updateBatchTiles();
+    }
 
-        return view;
+    @Override
+    public void onPause() {
+        super.onPause();
+        // Detach listeners to avoid leaks
+        SensorRepository.get().removeEnvironmentListener(environmentListener);
+        SensorRepository.get().removeSlotListener(slotListener);
+        slotListener.cancel();
+        BatchSync.get(requireContext()).removeListener(batchesListener);
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
-        // Detach listeners to avoid leaks
-        if (sensorsRef != null && sensorsListener != null) {
-            sensorsRef.removeEventListener(sensorsListener);
-            sensorsListener = null;
-        }
-        if (batchesRef != null && batchesListener != null) {
-            batchesRef.removeEventListener(batchesListener);
-            batchesListener = null;
-        }
+        // a new view starts with empty tiles, so the next replay has to count every slot again
+        slotListener.forget();
     }
 
-    // ---------------- Sensors -> Active / Inactive / Complete / Drying ----------------
-    private void attachSensorsListener() {
-        sensorsListener = new ValueEventListener() {
-            @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
-                int active = 0, inactive = 0, complete = 0, drying = 0;
-
-                for (DataSnapshot slot : snapshot.getChildren()) {
-                    String status = null;
-                    Object raw = slot.child("Status").getValue();
-                    if (raw != null) status = String.valueOf(raw);
-
-                    String s = status == null ? "" : status.trim().toLowerCase();
-
-                    if (s.equals("inactive")) {
-                        inactive++;
-                    } else if (s.equals("complete")) {
-                        complete++;
-                    } else {
-                        // any other value means it's currently active and still drying
-                        active++;
-                        drying++;
-                    }
+    // ---------------- Environment -> Temperature / Humidity ----------------
+    private final SensorRepository.EnvironmentListener environmentListener =
+            new SensorRepository.EnvironmentListener() {
+                @Override public void onEnvironmentChanged(float temperature, float humidity) {
+                    setTextSafe(temp_text, Float.isNaN(temperature) ? "No data" : temperature + "°C");
+                    setTextSafe(humid_text, Float.isNaN(humidity) ? "No data" : humidity + "%");
                 }
 
-                setTextSafe(tvActive,   String.valueOf(active));
-                setTextSafe(tvInactive, String.valueOf(inactive));
-                setTextSafe(tvComplete, String.valueOf(complete));
-                setTextSafe(tvDrying,   String.valueOf(drying));
-            }
-
-            @Override public void onCancelled(@NonNull DatabaseError error) {
-                Log.w("HomeFragment", "Sensors listener cancelled: " + error.getMessage());
-            }
-        };
-        sensorsRef.addValueEventListener(sensorsListener);
-    }
-
-    // ---------------- Batches -> Incoming / Available ----------------
-    private void attachBatchesListener() {
-        batchesListener = new ValueEventListener() {
-            @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
-                int lowStock = 0;
-                int available = 0;
-
-                for (DataSnapshot batch : snapshot.getChildren()) {
-                    int total    = asInt(batch.child("totalQuantity").getValue(), 0);
-                    int inRack   = firstInt(batch.child("inRackCount").getValue(),
-                            batch.child("inRack").getValue());
-                    int finished = firstInt(batch.child("finishedCount").getValue(),
-                            batch.child("finished").getValue());
-
-                    int remaining = Math.max(0, total - inRack - finished);
-
-                    if (remaining > 0) available++;                                  // unchanged
-                    if (remaining > 0 && remaining < LOW_STOCK_THRESHOLD) lowStock++; // NEW
+                @Override public void onError(@NonNull String errorMessage) {
+                    setTextSafe(temp_text, errorMessage);
+                    setTextSafe(humid_text, errorMessage);
+                    Log.e("FirebaseDebug", "Error: " + errorMessage);
                 }
+            };
 
-                // Reuse tvIncoming to show Low Stock Batches
-                setTextSafe(tvIncoming, String.valueOf(lowStock));
-                setTextSafe(tvAvailable, String.valueOf(available));
-            }
+    // ---------------- Sensors -> Active / Inactive / Complete / Drying ----------------
+    // counts are recomputed at most once per frame, not once per changed slot
+    private final FrameSlotListener slotListener = new FrameSlotListener(new SensorRepository.SlotListener() {
+        @Override public void onSlotChanged(@NonNull SlotReading reading) {}
+
+        @Override public void onSlotsFlushed() {
+            updateSensorTiles();
+        }
+    });
+
+    private void updateSensorTiles() {
+        SlotCounts counts = SlotCounts.of(SensorRepository.get().getSlots());
+        setTextSafe(tvActive,   String.valueOf(counts.active));
+        setTextSafe(tvInactive, String.valueOf(counts.inactive));
+        setTextSafe(tvComplete, String.valueOf(counts.complete));
+        setTextSafe(tvDrying,   String.valueOf(counts.drying));
+        updateNextDry();
+    }
 
-            @Override public void onCancelled(@NonNull DatabaseError error) {
-                Log.w("HomeFragment", "Batches listener cancelled: " + error.getMessage());
+    // the drying slot predicted to reach target moisture first
+    private void updateNextDry() {
+        StatsRepository stats = StatsRepository.get();
+        int nextSlot = -1;
+        DryingPredictor.Estimate next = null;
+        for (SlotReading slot : SensorRepository.get().getSlots()) {
+            if (!slot.isDrying()) continue;
+            DryingPredictor.Estimate e = stats.dryingEstimate(slot.getSlot());
+            if (e != null && !e.isDry() && (next == null || e.hours < next.hours)) {
+                next = e;
+                nextSlot = slot.getSlot();
             }
-        };
-        batchesRef.addValueEventListener(batchesListener);
+        }
+        setTextSafe(tvNextDry, next == null
+                ? "Next dry: --"
+                : "Next dry: Slot " + nextSlot + " · " + EtaText.format(next));
     }
 
+    // ---------------- Batches -> Incoming / Available ----------------
+    private final BatchSync.Listener batchesListener = changes -> updateBatchTiles();
+
+    // counted by the mirror off the main thread; no rows come back
+    private void updateBatchTiles() {
+        BatchSync.get(requireContext()).counts(LOW_STOCK_THRESHOLD, tiles -> {
+            // Reuse tvIncoming to show Low Stock Batches
+            setTextSafe(tvIncoming, String.valueOf(tiles.lowStock));
+            setTextSafe(tvAvailable, String.valueOf(tiles.available));
+        });
+    }
 
     // ---------------- helpers ----------------
     private void setTextSafe(TextView tv, String txt) {
         if (tv != null) tv.setText(txt);
     }
-
-    private int asInt(Object v, int def) {
-        if (v instanceof Number) return ((Number) v).intValue();
-        if (v instanceof String) {
-            try { return Integer.parseInt((String) v); } catch (Exception ignore) {}
-        }
-        return def;
-    }
-
-    private int firstInt(Object... vals) {
-        for (Object v : vals) {
-            if (v instanceof Number) return ((Number) v).intValue();
-            if (v instanceof String) {
-                try { return Integer.parseInt((String) v); } catch (Exception ignore) {}
-            }
-        }
-        return 0;
-    }
 }
@@ -1,8 +1,11 @@
 // MainActivity.java
 package com.example.drysync;
 
+import android.Manifest;
 import android.annotation.SuppressLint;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.view.MenuItem;
 import android.view.View;
@@ -12,10 +15,14 @@ import android.widget.LinearLayout;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 import androidx.core.view.GravityCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.Lifecycle;
 
 // ⬇️ Add these for immersive mode
 import androidx.core.view.WindowCompat;
@@ -25,6 +32,8 @@ import androidx.core.view.WindowInsetsControllerCompat;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.navigation.NavigationView;
 
+import java.util.ArrayDeque;
+
 public class MainActivity extends AppCompatActivity implements NavigationView.OnNavigationItemSelectedListener {
 
     // Bottom nav
@@ -35,7 +44,16 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     private DrawerLayout drawerLayout;
     private NavigationView navigationView;
     private ImageView burgerIcon;
-    
+
+    // Tabs are created once and switched with show/hide; hidden tabs are capped at STARTED so
+    // they get onPause and park their listeners. Drawer pages sit on top, at most one deep.
+    private static final String[] TAB_TAGS = { "tab_home", "tab_inventory", "tab_stats", "tab_rack" };
+    private static final int TAB_HOME = 0, TAB_INVENTORY = 1, TAB_STATS = 2, TAB_RACK = 3;
+    private static final String PAGE_STACK = "page";
+    private static final String STATE_TAB_HISTORY = "tab_history";
+    // Back walks through recently used tabs; each tab appears once, so this never exceeds TAB_TAGS
+    private final ArrayDeque<Integer> tabHistory = new ArrayDeque<>();
+
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -46,6 +64,9 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         // 🔻 Enable immersive after content view is set
         enableImmersiveMode();
 
+        // background alerts (MonitorWorker) post notifications; Android 13+ asks for that
+        requestNotificationPermission();
+
         // Drawer wiring
         drawerLayout = findViewById(R.id.drawerLayout);
         navigationView = findViewById(R.id.navigationView);
@@ -70,11 +91,45 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         setupBottomNav();
 
         if (savedInstanceState == null) {
-            loadFragment(new HomeFragment());
-            setSelectedTab(navHome);
+            showTab(TAB_HOME);
+        } else {
+            // the FragmentManager restores the tab fragments (and their hidden state) itself
+            int[] history = savedInstanceState.getIntArray(STATE_TAB_HISTORY);
+            if (history != null) for (int t : history) tabHistory.addLast(t);
+            if (getSupportFragmentManager().getBackStackEntryCount() == 0) setSelectedTab(tabs[currentTab()]);
         }
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // 24h stats, the minute history and the alert rules keep sampling while the app is visible,
+        // whichever tab is in front; the batch mirror syncs over the same span
+        StatsRepository.get().start();
+        SensorHistory.get(this).start();
+        AlertRepository.get(this).start();
+        BatchSync.get(this).start();
+        SchemaMigrator.get(this).migrate();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        BatchSync.get(this).stop();
+        AlertRepository.get(this).stop();
+        SensorHistory.get(this).stop();
+        StatsRepository.get().stop();
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        int[] history = new int[tabHistory.size()];
+        int i = 0;
+        for (int t : tabHistory) history[i++] = t;
+        outState.putIntArray(STATE_TAB_HISTORY, history);
+    }
+
     // ⬇️ Immersive mode helper
     private void enableImmersiveMode() {
         WindowCompat.setDecorFitsSystemWindows(getWindow(), false);
@@ -93,23 +148,26 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         if (hasFocus) enableImmersiveMode();
     }
 
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU) return;
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                == PackageManager.PERMISSION_GRANTED) return;
+        ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.POST_NOTIFICATIONS}, 0);
+    }
+
     private void setupBottomNav() {
         tabs = new LinearLayout[]{ navHome, navInventory, navStats, navRack };
 
         View.OnClickListener navClick = v -> {
             int id = v.getId();
             if (id == R.id.nav_home) {
-                loadFragment(new HomeFragment());
-                setSelectedTab(navHome);
+                showTab(TAB_HOME);
             } else if (id == R.id.nav_inventory) {
-                loadFragment(new BatchListFragment());
-                setSelectedTab(navInventory);
+                showTab(TAB_INVENTORY);
             } else if (id == R.id.nav_stats) {
-                loadFragment(new StatsFragment());
-                setSelectedTab(navStats);
+                showTab(TAB_STATS);
             } else if (id == R.id.nav_rack) {
-                loadFragment(new RackFragment());
-                setSelectedTab(navRack);
+                showTab(TAB_RACK);
             }
         };
 
@@ -132,12 +190,65 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
                 .start();
     }
 
-    // Load fragments into the same container the bottom nav uses
-    private void loadFragment(Fragment fragment) {
-        FragmentTransaction tx = getSupportFragmentManager().beginTransaction();
+    // ---------- tabs: retained, switched with show/hide ----------
+    private static Fragment newTab(int tab) {
+        switch (tab) {
+            case TAB_INVENTORY: return new BatchListFragment();
+            case TAB_STATS:     return new StatsFragment();
+            case TAB_RACK:      return new RackFragment();
+            default:            return new HomeFragment();
+        }
+    }
+
+    private int currentTab() {
+        return tabHistory.isEmpty() ? TAB_HOME : tabHistory.peekLast();
+    }
+
+    private void showTab(int tab) {
+        FragmentManager fm = getSupportFragmentManager();
+        // leaving a drawer page: it's dropped, not kept under the tab
+        fm.popBackStackImmediate(PAGE_STACK, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+
+        FragmentTransaction tx = fm.beginTransaction();
+        tx.setReorderingAllowed(true);
+        for (int i = 0; i < TAB_TAGS.length; i++) {
+            Fragment f = fm.findFragmentByTag(TAB_TAGS[i]);
+            if (i == tab) {
+                if (f == null) {
+                    f = newTab(i);
+                    tx.add(R.id.fragment_container, f, TAB_TAGS[i]);
+                } else {
+                    tx.show(f);
+                }
+                tx.setMaxLifecycle(f, Lifecycle.State.RESUMED);
+                tx.setPrimaryNavigationFragment(f);
+            } else if (f != null) {
+                tx.hide(f);
+                tx.setMaxLifecycle(f, Lifecycle.State.STARTED);
+            }
+        }
+        tx.commit();
+
+        tabHistory.remove(tab);
+        tabHistory.addLast(tab);
+        setSelectedTab(tabs[tab]);
+    }
+
+    // ---------- drawer pages: one on top of the current tab ----------
+    private void openPage(Fragment page) {
+        FragmentManager fm = getSupportFragmentManager();
+        fm.popBackStackImmediate(PAGE_STACK, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+
+        FragmentTransaction tx = fm.beginTransaction();
         tx.setReorderingAllowed(true);
-        tx.replace(R.id.fragment_container, fragment);
-        tx.addToBackStack(null);
+        Fragment tab = fm.findFragmentByTag(TAB_TAGS[currentTab()]);
+        if (tab != null) {
+            // both ops are reversed when the page is popped
+            tx.hide(tab);
+            tx.setMaxLifecycle(tab, Lifecycle.State.STARTED);
+        }
+        tx.add(R.id.fragment_container, page);
+        tx.addToBackStack(PAGE_STACK);
         tx.commit();
     }
 
@@ -149,17 +260,17 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
         clearBottomSelection();
 
         if (id == R.id.nav_profile) {
-            loadFragment(new ProfileFragment());
+            openPage(new ProfileFragment());
         } else if (id == R.id.nav_notifications) {
-            loadFragment(new NotificationsFragment());
+            openPage(new NotificationsFragment());
         } else if (id == R.id.nav_settings) {
-            loadFragment(new SettingsFragment());
+            openPage(new SettingsFragment());
         } else if (id == R.id.nav_help) {
-            loadFragment(new HelpFragment());
+            openPage(new HelpFragment());
         } else if (id == R.id.nav_about) {
-            loadFragment(new AboutFragment());
+            openPage(new AboutFragment());
         } else if (id == R.id.nav_privacy) {
-            loadFragment(new PrivacyFragment());
+            openPage(new PrivacyFragment());
         } else if (id == R.id.nav_logout) {
             confirmLogout();
         }
@@ -191,11 +302,19 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             return;
         }
 
-        Fragment current = getSupportFragmentManager().findFragmentById(R.id.fragment_container);
-        if (current instanceof HomeFragment) {
-            finish();
+        FragmentManager fm = getSupportFragmentManager();
+        if (fm.getBackStackEntryCount() > 0) {
+            // close the drawer page, back to the tab underneath
+            fm.popBackStack();
+            setSelectedTab(tabs[currentTab()]);
+        } else if (tabHistory.size() > 1) {
+            tabHistory.pollLast();
+            showTab(tabHistory.peekLast());
+        } else if (currentTab() != TAB_HOME) {
+            tabHistory.clear();
+            showTab(TAB_HOME);
         } else {
-            getSupportFragmentManager().popBackStack();
+            finish();
         }
     }
 
@@ -0,0 +1,125 @@
+package com.example.drysync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background kiln check while no screen is open: every {@link #PERIOD_MIN} minutes, on a
+ * network and with the battery not low, it goes online just long enough to read /Sensors once,
+ * compares each slot's status with the one it saw last time, and only if a status changed hands
+ * those slots to the alert pipeline ({@link AlertRepository#checkInBackground}). Moisture-only
+ * changes don't wake it; the live screens evaluate those.
+ */
+public class MonitorWorker extends Worker {
+
+    private static final String TAG = "MonitorWorker";
+    private static final String WORK_NAME = "kiln-monitor";
+    private static final long PERIOD_MIN = 15;   // WorkManager's minimum
+    private static final long FETCH_TIMEOUT_S = 60;
+    private static final long ALERTS_TIMEOUT_S = 30;
+
+    // last status seen per slot, "s<slot>" -> status
+    private static final String PREFS = "monitor_status";
+
+    public MonitorWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    static void schedule(@NonNull Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(MonitorWorker.class, PERIOD_MIN, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        DrySyncApp app = (DrySyncApp) getApplicationContext();
+        // the live listeners already cover an open screen
+        if (app.isUiVisible()) return Result.success();
+
+        app.holdConnection();
+        try {
+            DataSnapshot sensors = Tasks.await(
+                    FirebaseDatabase.getInstance().getReference(SensorRepository.SENSORS_PATH).get(),
+                    FETCH_TIMEOUT_S, TimeUnit.SECONDS);
+            SharedPreferences.Editor seen = getApplicationContext()
+                    .getSharedPreferences(PREFS, Context.MODE_PRIVATE).edit();
+            List<SlotReading> changed = changedStatuses(sensors, seen);
+            Log.d(TAG, changed.size() + " slot(s) changed status");
+            if (!awaitAlerts(changed)) {
+                // statuses not saved: the next run sees the same changes and checks them again
+                Log.w(TAG, "Alert check timed out");
+                return Result.retry();
+            }
+            seen.apply();
+            return Result.success();
+        } catch (Exception e) {
+            Log.w(TAG, "Kiln check failed", e);
+            return Result.retry();
+        } finally {
+            app.releaseConnection();
+        }
+    }
+
+    /**
+     * Slots whose status differs from the last check. The new statuses go into {@code seen}, to be
+     * applied once their alerts are in the inbox.
+     */
+    private List<SlotReading> changedStatuses(@NonNull DataSnapshot sensors, @NonNull SharedPreferences.Editor seen) {
+        SharedPreferences prefs = getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        List<SlotReading> changed = new ArrayList<>();
+        for (DataSnapshot child : sensors.getChildren()) {
+            int slot;
+            try { slot = Integer.parseInt(child.getKey()); } catch (Exception e) { continue; }
+
+            SlotReading r = new SlotReading(slot,
+                    SlotReading.asStatus(child.child("Status").getValue()),
+                    SlotReading.asValue(child.child("Value").getValue()));
+            String key = "s" + slot;
+            String status = r.getStatus() == null ? "" : r.getStatus();
+            if (status.equals(prefs.getString(key, null))) continue;
+            seen.putString(key, status);
+            changed.add(r);
+        }
+        return changed;
+    }
+
+    /**
+     * Runs the alert pipeline (main thread) and waits until its entries are written; false if that
+     * took longer than {@link #ALERTS_TIMEOUT_S}.
+     */
+    private boolean awaitAlerts(@NonNull List<SlotReading> changed) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        new Handler(Looper.getMainLooper()).post(() ->
+                AlertRepository.get(getApplicationContext()).checkInBackground(changed, done::countDown));
+        return done.await(ALERTS_TIMEOUT_S, TimeUnit.SECONDS);
+    }
+}
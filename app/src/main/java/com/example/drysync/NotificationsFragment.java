@@ -5,13 +5,107 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.TextView;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
 
+/**
+ * Alert inbox ({@link AlertRepository}): newest first, one page from SQLite at a time as the list
+ * nears its end. While the tab is in front new alerts are inserted on top; coming back to it
+ * reloads from the newest page.
+ */
 public class NotificationsFragment extends Fragment {
+
+    private static final int LOAD_AHEAD_ROWS = 10;
+
+    private RecyclerView recycler;
+    private TextView empty;
+    private LinearLayoutManager lm;
+    private final AlertAdapter adapter = new AlertAdapter();
+
+    private boolean loading, exhausted;
+    private int generation;   // bumped on reload; pages of an older load are dropped
+
+    private final AlertRepository.Listener alertListener = entry -> {
+        adapter.addNewest(entry);
+        if (lm != null && lm.findFirstVisibleItemPosition() == 0) recycler.scrollToPosition(0);
+        updateEmpty();
+    };
+
     @Nullable @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         return inflater.inflate(R.layout.fragment_notification, container, false);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        recycler = view.findViewById(R.id.alertRecycler);
+        empty = view.findViewById(R.id.alertEmpty);
+
+        lm = new LinearLayoutManager(requireContext());
+        recycler.setLayoutManager(lm);
+        recycler.setHasFixedSize(true);
+        recycler.addItemDecoration(new DividerItemDecoration(requireContext(), lm.getOrientation()));
+        recycler.setAdapter(adapter);
+
+        recycler.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy > 0 && lm.findLastVisibleItemPosition() >= adapter.getItemCount() - LOAD_AHEAD_ROWS) {
+                    loadNextPage();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        AlertRepository.get(requireContext()).addListener(alertListener);
+        generation++;
+        loading = false;
+        exhausted = false;
+        adapter.clear();
+        loadNextPage();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        AlertRepository.get(requireContext()).removeListener(alertListener);
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (recycler != null) recycler.setAdapter(null);
+        recycler = null;
+        empty = null;
+        lm = null;
+    }
+
+    private void loadNextPage() {
+        if (loading || exhausted) return;
+        loading = true;
+        final int gen = generation;
+        AlertRepository.get(requireContext()).loadPage(adapter.oldestId(), page -> onPage(gen, page));
+    }
+
+    private void onPage(int gen, @NonNull List<AlertInbox.Entry> page) {
+        if (gen != generation) return;
+        loading = false;
+        exhausted = page.size() < AlertInbox.PAGE_SIZE;
+        adapter.appendPage(page);
+        updateEmpty();
+    }
+
+    private void updateEmpty() {
+        if (empty != null) empty.setVisibility(adapter.getItemCount() == 0 && exhausted ? View.VISIBLE : View.GONE);
+    }
+}
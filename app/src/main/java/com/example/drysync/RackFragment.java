@@ -1,27 +1,42 @@
 package com.example.drysync;
 
 import android.content.Intent;
-import android.graphics.Color;
 import android.os.Bundle;
-import android.text.Layout;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.GridLayout;
-import android.widget.LinearLayout;
-import android.widget.Switch;
-import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
-
-import java.util.Objects;
+import androidx.recyclerview.widget.DefaultItemAnimator;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 public class RackFragment extends Fragment {
 
+    // a card is at least this wide; wider screens get more columns
+    private static final int SLOT_MIN_WIDTH_DP = 160;
+    private static final int MIN_COLUMNS = 2;
+    // pooled cards per type: a couple of screens' worth, enough for fast flings through big kilns
+    private static final int POOLED_SLOT_VIEWS = 30;
+
+    private RecyclerView recycler;
+    private SlotAdapter adapter;
+    // outlives the view, so re-creating it while the fragment is kept reuses the inflated cards
+    private final RecyclerView.RecycledViewPool slotPool = new RecyclerView.RecycledViewPool();
+
+    // cards are rebound at most once per frame
+    private final FrameSlotListener slotListener = new FrameSlotListener(new SensorRepository.SlotListener() {
+        @Override public void onSlotChanged(@NonNull SlotReading reading) {
+            if (adapter != null) adapter.setSlot(reading);
+        }
+
+        @Override public void onSlotRemoved(int slot) {
+            if (adapter != null) adapter.removeSlot(slot);
+        }
+    });
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
@@ -30,74 +45,48 @@ public class RackFragment extends Fragment {
 
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
-        GridLayout gridLayout = view.findViewById(R.id.my_grid_layout);  // Make sure this ID exists in fragment_rack.xml
-        LayoutInflater inflater = LayoutInflater.from(getContext());
-
-        for (int i = 1; i <= 10; i++) {
-            View slotView = inflater.inflate(R.layout.slot_item, gridLayout, false);
-
-            TextView title = slotView.findViewById(R.id.slotTitle);
-            TextView TVvalue = slotView.findViewById(R.id.valueText);
-            Switch statusSwitch = slotView.findViewById(R.id.statusSwitch);
-            LinearLayout layout = slotView.findViewById(R.id.layout);
-
-            title.setText("Wood Slot " + i );
-
-            final int slotNumber = i;
-
-            FirebaseHelper.retrieveStringData("Sensors/" + i + "/Status", new FirebaseHelper.StringDataCallback() {
-                @Override
-                public void onStringReceived(String value) {
-                    Log.d("FirebaseDebug", "Retrieved Status:" + value);
-                    if (Objects.equals(value, "Inactive")){
-                        TVvalue.setVisibility(View.INVISIBLE);
-                        statusSwitch.setVisibility(View.INVISIBLE);
-                        layout.setBackground(ContextCompat.getDrawable(requireContext(), R.drawable.rack_background));
-                    } else {
-                        TVvalue.setVisibility(View.VISIBLE);
-                        statusSwitch.setVisibility(View.VISIBLE);
-                        layout.setBackground(ContextCompat.getDrawable(requireContext(), R.drawable.rack_background_inactive));
-                        title.setTextColor(Color.WHITE);
-                        TVvalue.setTextColor(Color.WHITE);
-                    }
-
-                    if (Objects.equals(value, "Complete")){
-                        statusSwitch.setChecked(true);
-                    } else {
-                        statusSwitch.setChecked(false);
-                    }
-                }
-
-                @Override
-                public void onError(String errorMessage) {
-                    Log.e("FirebaseDebug", "Error: " + errorMessage);
-                }
-            });
-            FirebaseHelper.retrieveFloatData("Sensors/" + i + "/Value", new FirebaseHelper.FloatDataCallback() {
-                @Override
-                public void onFloatReceived(float value) {
-                    Log.d("FirebaseDebug", "Retrieved Value:" + value);
-                    TVvalue.setText(value + "%");
-                }
-
-                @Override
-                public void onError(String errorMessage) {
-                    Log.e("FirebaseDebug", "Error: " + errorMessage);
-                    TVvalue.setText("Error");
-                }
-            });
-
-            //slotView.setOnClickListener(v -> openSlotDetails(slotNumber));
-
-            GridLayout.LayoutParams params = new GridLayout.LayoutParams();
-            params.width = 0;
-            params.height = 350;
-            params.bottomMargin = 50;
-            params.columnSpec = GridLayout.spec(GridLayout.UNDEFINED, 1f);
-            params.rowSpec = GridLayout.spec(GridLayout.UNDEFINED, 1f);
-            slotView.setLayoutParams(params);
-            gridLayout.addView(slotView);
+        recycler = view.findViewById(R.id.rackRecycler);
+
+        float widthDp = getResources().getConfiguration().screenWidthDp;
+        int columns = Math.max(MIN_COLUMNS, (int) (widthDp / SLOT_MIN_WIDTH_DP));
+        recycler.setLayoutManager(new GridLayoutManager(requireContext(), columns));
+        recycler.setHasFixedSize(true);
+
+        slotPool.setMaxRecycledViews(SlotAdapter.TYPE_SLOT, POOLED_SLOT_VIEWS);
+        recycler.setRecycledViewPool(slotPool);
+
+        // value-only updates rebind in place; no cross-fade between two copies of the card
+        RecyclerView.ItemAnimator animator = recycler.getItemAnimator();
+        if (animator instanceof DefaultItemAnimator) {
+            ((DefaultItemAnimator) animator).setSupportsChangeAnimations(false);
         }
+
+        adapter = new SlotAdapter(this::openSlotDetails);
+        recycler.setAdapter(adapter);
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        // Live values from the shared /Sensors listener (replays the cached state immediately)
+        SensorRepository.get().addSlotListener(slotListener);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        SensorRepository.get().removeSlotListener(slotListener);
+        slotListener.cancel();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // hands the attached cards back to slotPool
+        if (recycler != null) recycler.setAdapter(null);
+        recycler = null;
+        adapter = null;
+        slotListener.forget();
     }
 
     private void openSlotDetails(int slotNumber) {
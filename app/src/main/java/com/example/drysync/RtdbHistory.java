@@ -0,0 +1,289 @@
+package com.example.drysync;
+
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the bucketed history under /history (layout in {@link HistoryLayout}).
+ *
+ * A read fetches only the bucket nodes intersecting the window, at the coarsest level that still
+ * gives the chart enough points, so a week costs ~168 hourly rollups instead of 10k minutes.
+ * Writes are idempotent: raw points are keyed by minute and rollups are recomputed from the level
+ * below, so several devices publishing the same minute don't double count. Raw minutes are only
+ * kept for a while ({@link #pruneRaw}); the rollups stay.
+ */
+public final class RtdbHistory {
+
+    private static final String TAG = "RtdbHistory";
+    private static final long HOUR = HistoryLayout.Level.HOURLY.bucketMillis;
+    /** Raw hours deleted per round trip: a day of one series, ~1440 values. */
+    private static final int PRUNE_PAGE = 24;
+
+    public interface Callback {
+        @MainThread void onHistory(@NonNull HistorySeries series);
+        @MainThread default void onError(@NonNull String message) {}
+    }
+
+    /** One read of some buckets and who is waiting on it. */
+    private static final class Waiter {
+        final long fromMillis, toMillis;
+        final Callback cb;
+
+        Waiter(long fromMillis, long toMillis, Callback cb) {
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.cb = cb;
+        }
+    }
+
+    // reads on the wire by query (main thread only): every screen has its own instance, and
+    // reopening one before the first read came back asks for the same buckets again
+    private static final Map<String, List<Waiter>> inFlight = new HashMap<>();
+
+    private final DatabaseReference root;
+
+    public RtdbHistory() {
+        this(FirebaseDatabase.getInstance());
+    }
+
+    public RtdbHistory(@NonNull FirebaseDatabase db) {
+        root = db.getReference(HistoryLayout.ROOT);
+    }
+
+    // ---------------- reading ----------------
+
+    /**
+     * Loads {@code series} over [from, to] with at least {@code minPoints} points where the data
+     * allows (see {@link HistoryLayout#pick}). Decoding runs off the main thread; a newer read of
+     * the same series and level supersedes an unfinished one. A read of the same buckets as one
+     * still on the wire joins it rather than fetching them again.
+     */
+    @MainThread
+    public void read(@NonNull String series, long fromMillis, long toMillis, int minPoints, @NonNull Callback cb) {
+        HistoryLayout.Level level = HistoryLayout.pick(fromMillis, toMillis, minPoints);
+        String startKey = level.key(fromMillis), endKey = level.key(toMillis);
+        DatabaseReference node = root.child(level.node).child(series);
+        String query = node + "?" + startKey + ".." + endKey;
+
+        List<Waiter> waiting = inFlight.get(query);
+        if (waiting != null) {
+            waiting.add(new Waiter(fromMillis, toMillis, cb));
+            return;
+        }
+        waiting = new ArrayList<>(1);
+        waiting.add(new Waiter(fromMillis, toMillis, cb));
+        inFlight.put(query, waiting);
+
+        node.orderByKey()
+                .startAt(startKey)
+                .endAt(endKey)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        List<Waiter> joined = inFlight.remove(query);
+                        // one task for all of them, so the newer-supersedes rule doesn't drop any
+                        SnapshotProcessor.get().submit("history/" + series + "/" + level.node, () -> {
+                            List<HistorySeries> out = new ArrayList<>(joined.size());
+                            for (Waiter w : joined) out.add(decode(level, snapshot, w.fromMillis, w.toMillis));
+                            return out;
+                        }, decoded -> {
+                            for (int i = 0; i < joined.size(); i++) joined.get(i).cb.onHistory(decoded.get(i));
+                        });
+                    }
+
+                    @Override public void onCancelled(@NonNull DatabaseError error) {
+                        Log.w(TAG, "History read failed: " + error.getMessage());
+                        for (Waiter w : inFlight.remove(query)) w.cb.onError(error.getMessage());
+                    }
+                });
+    }
+
+    @WorkerThread
+    static HistorySeries decode(HistoryLayout.Level level, DataSnapshot snapshot, long from, long to) {
+        int buckets = (int) snapshot.getChildrenCount();
+        HistorySeries out = new HistorySeries(level, level == HistoryLayout.Level.RAW ? buckets * 60 : buckets);
+        // children arrive in key (= time) order
+        for (DataSnapshot bucket : snapshot.getChildren()) {
+            long start = level.parseKey(bucket.getKey());
+            if (start < 0) continue;
+            if (level != HistoryLayout.Level.RAW) {
+                out.add(start, Rollup.decode(bucket.getValue()));
+                continue;
+            }
+            for (DataSnapshot minute : bucket.getChildren()) {
+                long offset = HistoryLayout.parseMinuteKey(minute.getKey());
+                long t = start + offset;
+                if (offset < 0 || t < from || t > to) continue;
+                out.addRaw(t, SlotReading.asValue(minute.getValue()));
+            }
+        }
+        return out;
+    }
+
+    // ---------------- writing ----------------
+
+    /** Adds one minute's values for several series in a single multi-path update. */
+    @NonNull
+    public Task<Void> writeMinute(long timeMillis, @NonNull Map<String, Float> values) {
+        String hour = HistoryLayout.hourKey(timeMillis), minute = HistoryLayout.minuteKey(timeMillis);
+        Map<String, Object> update = new HashMap<>();
+        for (Map.Entry<String, Float> e : values.entrySet()) {
+            if (e.getValue() == null || Float.isNaN(e.getValue())) continue;
+            update.put(HistoryLayout.Level.RAW.node + "/" + e.getKey() + "/" + hour + "/" + minute,
+                    (double) e.getValue());
+        }
+        return root.updateChildren(update);
+    }
+
+    /**
+     * Recomputes the hourly rollup of the hour holding {@code hourMillis} from its raw minutes,
+     * then that day's rollup from its hours. Call once an hour is over.
+     */
+    @NonNull
+    public Task<Void> rollUp(@NonNull String series, long hourMillis) {
+        return rollUp(series, hourMillis, hourMillis + HOUR);
+    }
+
+    /**
+     * Recomputes the hourly rollups of every hour in [from, to) that has raw minutes, then the
+     * daily rollups of the days they fall in: one ranged read and one write per level, however
+     * many hours were missed.
+     */
+    @NonNull
+    public Task<Void> rollUp(@NonNull String series, long fromMillis, long toMillis) {
+        TaskCompletionSource<Void> done = new TaskCompletionSource<>();
+        if (toMillis <= fromMillis) {
+            done.setResult(null);
+            return done.getTask();
+        }
+        root.child(HistoryLayout.Level.RAW.node).child(series)
+                .orderByKey()
+                .startAt(HistoryLayout.hourKey(fromMillis))
+                .endAt(HistoryLayout.hourKey(toMillis - 1))
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        Map<String, Object> update = new HashMap<>();
+                        String firstDay = null, lastDay = null;
+                        for (DataSnapshot bucket : snapshot.getChildren()) {
+                            String hourKey = bucket.getKey();
+                            if (HistoryLayout.parseHourKey(hourKey) < 0) continue;
+                            Rollup hour = new Rollup();
+                            for (DataSnapshot minute : bucket.getChildren()) {
+                                hour.add(SlotReading.asValue(minute.getValue()));
+                            }
+                            if (hour.isEmpty()) continue;
+                            update.put(hourKey, hour.encode());
+                            // children arrive in key (= time) order
+                            if (firstDay == null) firstDay = hourKey.substring(0, 8);
+                            lastDay = hourKey.substring(0, 8);
+                        }
+                        if (update.isEmpty()) {
+                            done.setResult(null);
+                            return;
+                        }
+                        String from = firstDay, to = lastDay;
+                        root.child(HistoryLayout.Level.HOURLY.node).child(series)
+                                .updateChildren(update)
+                                .addOnSuccessListener(v -> rollUpDays(series, from, to, done))
+                                .addOnFailureListener(done::setException);
+                    }
+
+                    @Override public void onCancelled(@NonNull DatabaseError error) {
+                        Log.w(TAG, "Roll-up of " + series + " failed: " + error.getMessage());
+                        done.setException(error.toException());
+                    }
+                });
+        return done.getTask();
+    }
+
+    private void rollUpDays(String series, String firstDay, String lastDay, TaskCompletionSource<Void> done) {
+        root.child(HistoryLayout.Level.HOURLY.node).child(series)
+                .orderByKey()
+                .startAt(firstDay + "00")
+                .endAt(lastDay + "23")
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        Map<String, Rollup> days = new HashMap<>();
+                        for (DataSnapshot hour : snapshot.getChildren()) {
+                            String key = hour.getKey();
+                            if (HistoryLayout.parseHourKey(key) < 0) continue;
+                            Rollup day = days.get(key.substring(0, 8));
+                            if (day == null) days.put(key.substring(0, 8), day = new Rollup());
+                            day.merge(Rollup.decode(hour.getValue()));
+                        }
+                        Map<String, Object> update = new HashMap<>();
+                        for (Map.Entry<String, Rollup> e : days.entrySet()) {
+                            if (!e.getValue().isEmpty()) update.put(e.getKey(), e.getValue().encode());
+                        }
+                        if (update.isEmpty()) {
+                            done.setResult(null);
+                            return;
+                        }
+                        root.child(HistoryLayout.Level.DAILY.node).child(series)
+                                .updateChildren(update)
+                                .addOnSuccessListener(v -> done.setResult(null))
+                                .addOnFailureListener(done::setException);
+                    }
+
+                    @Override public void onCancelled(@NonNull DatabaseError error) {
+                        Log.w(TAG, "Roll-up of " + series + "/" + firstDay + ".." + lastDay + " failed: "
+                                + error.getMessage());
+                        done.setException(error.toException());
+                    }
+                });
+    }
+
+    /**
+     * Deletes {@code series}' raw hour buckets that ended at or before {@code beforeMillis}, a page
+     * of {@link #PRUNE_PAGE} hours per round trip. Their rollups stay; roll them up first. The
+     * result is the number of hours deleted.
+     */
+    @NonNull
+    public Task<Integer> pruneRaw(@NonNull String series, long beforeMillis) {
+        TaskCompletionSource<Integer> done = new TaskCompletionSource<>();
+        pruneRaw(series, HistoryLayout.hourKey(beforeMillis - HOUR), 0, done);
+        return done.getTask();
+    }
+
+    private void pruneRaw(String series, String lastHourKey, int deleted, TaskCompletionSource<Integer> done) {
+        DatabaseReference raw = root.child(HistoryLayout.Level.RAW.node).child(series);
+        raw.orderByKey().endAt(lastHourKey).limitToFirst(PRUNE_PAGE)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        Map<String, Object> update = new HashMap<>();
+                        for (DataSnapshot hour : snapshot.getChildren()) update.put(hour.getKey(), null);
+                        if (update.isEmpty()) {
+                            done.setResult(deleted);
+                            return;
+                        }
+                        int total = deleted + update.size();
+                        raw.updateChildren(update)
+                                .addOnSuccessListener(v -> {
+                                    if (update.size() < PRUNE_PAGE) done.setResult(total);
+                                    else pruneRaw(series, lastHourKey, total, done);
+                                })
+                                .addOnFailureListener(done::setException);
+                    }
+
+                    @Override public void onCancelled(@NonNull DatabaseError error) {
+                        Log.w(TAG, "Pruning " + series + " failed: " + error.getMessage());
+                        done.setException(error.toException());
+                    }
+                });
+    }
+}
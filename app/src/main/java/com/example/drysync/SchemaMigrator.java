@@ -0,0 +1,251 @@
+package com.example.drysync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned, one-time rewrites of the database's shape. {@code /meta/schemaVersion} says how far
+ * the data has been migrated; {@code MIGRATIONS[i]} takes it from version i to i + 1. A migration
+ * must be safe to run twice, since two devices can start one at the same time, and the version
+ * only ever goes up.
+ *
+ * The version this device last saw is kept in prefs: once it's current, {@link #migrate()} costs
+ * no read, and it's what decides how batches are read (from version 1 on, without the legacy
+ * aliases). Main thread only.
+ */
+public final class SchemaMigrator {
+
+    private static final String TAG = "SchemaMigrator";
+    private static final String VERSION_PATH = "meta/schemaVersion";
+    private static final String PREFS = "schema";
+    private static final String KEY_VERSION = "version";
+
+    // batches read and rewritten per round trip
+    private static final int CHUNK = 200;
+
+    interface Migration {
+        /** Rewrites the data; {@code done} gets null on success. */
+        @MainThread void run(@NonNull DatabaseReference root, @NonNull Done done);
+    }
+
+    interface Done {
+        @MainThread void onDone(@Nullable Exception error);
+    }
+
+    interface NodeRewrite {
+        /** Child updates (relative to the node) for one batch, or null to leave it alone. */
+        @Nullable Map<String, Object> rewrite(@NonNull String key, @Nullable Object raw);
+    }
+
+    private static SchemaMigrator instance;
+
+    @MainThread
+    public static SchemaMigrator get(@NonNull Context context) {
+        if (instance == null) instance = new SchemaMigrator(context.getApplicationContext());
+        return instance;
+    }
+
+    private final Migration[] migrations = {
+            this::dropBatchAliases,     // 0 -> 1
+            this::dropBatchOps,         // 1 -> 2
+    };
+    private final int latest = migrations.length;
+
+    private final SharedPreferences prefs;
+    private final DatabaseReference root = FirebaseDatabase.getInstance().getReference();
+    private boolean running;
+
+    private SchemaMigrator(Context app) {
+        prefs = app.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        applyVersion(prefs.getInt(KEY_VERSION, 0));
+    }
+
+    /** Brings the database up to the latest version, unless this device already saw it there. */
+    @MainThread
+    public void migrate() {
+        if (running || prefs.getInt(KEY_VERSION, 0) >= latest) return;
+        running = true;
+        root.child(VERSION_PATH).get().addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                finish(null, task.getException());
+                return;
+            }
+            Integer version = task.getResult().getValue(Integer.class);
+            runFrom(version == null ? 0 : version);
+        });
+    }
+
+    private void runFrom(int version) {
+        if (version >= latest) {
+            finish(version, null);
+            return;
+        }
+        Log.d(TAG, "Migrating schema " + version + " -> " + (version + 1));
+        migrations[version].run(root, error -> {
+            if (error != null) finish(null, error);
+            else raiseVersion(version + 1);
+        });
+    }
+
+    /** Records {@code version} on the server (never lowering it) and carries on from there. */
+    private void raiseVersion(int version) {
+        root.child(VERSION_PATH).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override public Transaction.Result doTransaction(@NonNull MutableData current) {
+                Integer stored = current.getValue(Integer.class);
+                if (stored == null || stored < version) current.setValue(version);
+                return Transaction.success(current);
+            }
+
+            @Override public void onComplete(@Nullable DatabaseError error, boolean committed,
+                                             @Nullable DataSnapshot data) {
+                if (error != null) {
+                    finish(null, error.toException());
+                    return;
+                }
+                Integer stored = data == null ? null : data.getValue(Integer.class);
+                runFrom(stored == null ? version : Math.max(stored, version));
+            }
+        });
+    }
+
+    private void finish(@Nullable Integer version, @Nullable Exception error) {
+        running = false;
+        if (error != null) {
+            // tried again on the next start; every step is safe to repeat
+            Log.w(TAG, "Schema migration failed", error);
+            return;
+        }
+        prefs.edit().putInt(KEY_VERSION, version).apply();
+        applyVersion(version);
+    }
+
+    private static void applyVersion(int version) {
+        WoodBatchCodec.setReadLegacyAliases(version < 1);
+    }
+
+    // ---- 0 -> 1: batches lose the inRack/finished aliases ----
+
+    private void dropBatchAliases(@NonNull DatabaseReference root, @NonNull Done done) {
+        rewriteBatchesAfter(root.child(BatchSync.BATCHES_PATH), null, new ArrayList<>(), (key, raw) -> {
+            Map<String, Object> fields = WoodBatchCodec.dropAliases(key, raw);
+            // mirrors synced by updatedAt pick up the new shape
+            if (fields != null) fields.put(WoodBatchCodec.UPDATED_AT, ServerValue.TIMESTAMP);
+            return fields;
+        }, done);
+    }
+
+    // ---- 1 -> 2: op ids move to /batchOps, out of what the batch sync downloads ----
+
+    private void dropBatchOps(@NonNull DatabaseReference root, @NonNull Done done) {
+        // mirrors don't keep ops, so updatedAt stays: nothing to sync
+        rewriteBatchesAfter(root.child(BatchSync.BATCHES_PATH), null, new ArrayList<>(), (key, raw) ->
+                raw instanceof Map && ((Map<?, ?>) raw).containsKey(WoodBatchCodec.LEGACY_OPS)
+                        ? Collections.singletonMap(WoodBatchCodec.LEGACY_OPS, null)
+                        : null, done);
+    }
+
+    // ---- batch walk ----
+
+    /**
+     * One chunk of batches by key: a single multi-path update for the ones {@code rewrite}
+     * changes. A node whose counts the rules refuse would sink the whole chunk, so it's repaired
+     * in the same write ({@link WoodBatchCodec#repair}); if the chunk is still refused, its nodes
+     * are written one by one, so one bad node can't hold back the rest. Refused nodes are
+     * collected in {@code skipped} and the walk still ends in failure, so the version isn't raised
+     * over data still in the old shape; the next start tries them again.
+     */
+    private void rewriteBatchesAfter(DatabaseReference batches, @Nullable String afterKey, List<String> skipped,
+                                     NodeRewrite rewrite, Done done) {
+        Query chunk = batches.orderByKey();
+        if (afterKey != null) chunk = chunk.startAfter(afterKey);
+        chunk.limitToFirst(CHUNK).get().addOnCompleteListener(task -> {
+            if (!task.isSuccessful()) {
+                done.onDone(task.getException());
+                return;
+            }
+            Map<String, Map<String, Object>> nodes = new LinkedHashMap<>();
+            Map<String, Object> update = new HashMap<>();
+            String lastKey = null;
+            int read = 0;
+            for (DataSnapshot child : task.getResult().getChildren()) {
+                lastKey = child.getKey();
+                read++;
+                Map<String, Object> fields = rewrite.rewrite(lastKey, child.getValue());
+                if (fields == null) continue;
+                Map<String, Object> repaired = WoodBatchCodec.repair(lastKey, child.getValue());
+                if (repaired != null) {
+                    fields = new HashMap<>(fields);
+                    fields.putAll(repaired);
+                    fields.put(WoodBatchCodec.UPDATED_AT, ServerValue.TIMESTAMP);
+                }
+                nodes.put(lastKey, fields);
+                for (Map.Entry<String, Object> f : fields.entrySet()) {
+                    update.put(lastKey + "/" + f.getKey(), f.getValue());
+                }
+            }
+
+            String next = read == CHUNK ? lastKey : null;
+            if (update.isEmpty()) {
+                continueAfter(batches, next, skipped, rewrite, done);
+                return;
+            }
+            Log.d(TAG, "Rewriting " + update.size() + " field(s) in chunk after " + afterKey);
+            batches.updateChildren(update).addOnCompleteListener(write -> {
+                if (write.isSuccessful()) {
+                    continueAfter(batches, next, skipped, rewrite, done);
+                    return;
+                }
+                // offline writes wait rather than fail, so this is the rules refusing a node
+                Log.w(TAG, "Chunk after " + afterKey + " refused, writing its batches one by one", write.getException());
+                writeEach(batches, nodes.entrySet().iterator(), skipped,
+                        () -> continueAfter(batches, next, skipped, rewrite, done));
+            });
+        });
+    }
+
+    private void writeEach(DatabaseReference batches, Iterator<Map.Entry<String, Map<String, Object>>> nodes,
+                           List<String> skipped, Runnable then) {
+        if (!nodes.hasNext()) {
+            then.run();
+            return;
+        }
+        Map.Entry<String, Map<String, Object>> node = nodes.next();
+        batches.child(node.getKey()).updateChildren(node.getValue()).addOnCompleteListener(write -> {
+            if (!write.isSuccessful()) {
+                Log.w(TAG, "Skipped batch " + node.getKey() + ": " + node.getValue(), write.getException());
+                skipped.add(node.getKey());
+            }
+            writeEach(batches, nodes, skipped, then);
+        });
+    }
+
+    private void continueAfter(DatabaseReference batches, @Nullable String next, List<String> skipped,
+                               NodeRewrite rewrite, Done done) {
+        if (next != null) rewriteBatchesAfter(batches, next, skipped, rewrite, done);
+        else if (skipped.isEmpty()) done.onDone(null);
+        else done.onDone(new IllegalStateException("Rules refused " + skipped.size() + " batch(es): " + skipped));
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.drysync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Sensor history: once a minute the current temperature, humidity and every slot's moisture are
+ * appended to a {@link TimeSeriesStore} under {@code files/history}, and published to the shared
+ * /history buckets ({@link RtdbHistory}), whose hourly/daily rollups are refreshed once an hour
+ * is over.
+ *
+ * Recording runs between {@link #start()} and {@link #stop()} (same span as
+ * {@link StatsRepository}, whose values it samples). Each start also rolls up the hours that
+ * closed while nothing was recording and deletes raw minutes older than a week; the rollups keep
+ * the long-range charts. Disk work happens on one background thread; {@link #scan} is meant to be
+ * called from there too, via {@link #io()}.
+ */
+public final class SensorHistory {
+
+    private static final String TAG = "SensorHistory";
+
+    public static final String TEMPERATURE = "env-temperature";
+    public static final String HUMIDITY = "env-humidity";
+
+    private static final long SAMPLE_MS = 60_000L;
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final long RETENTION_MS = 180L * 24 * 60 * 60 * 1000;
+    /** How long /history/raw keeps minutes; older hours only live on as rollups. */
+    private static final long RAW_RETENTION_MS = 7L * 24 * HOUR_MS;
+
+    private static final String PREFS = "history";
+    /** Start of the first hour not known to be rolled up yet. */
+    private static final String KEY_ROLLED_UP_TO = "rolledUpTo";
+
+    public static String slotSeries(int slot) {
+        return "slot-" + slot;
+    }
+
+    private static SensorHistory instance;
+
+    @MainThread
+    public static SensorHistory get(@NonNull Context context) {
+        if (instance == null) instance = new SensorHistory(context.getApplicationContext());
+        return instance;
+    }
+
+    private final File dir;
+    private final SharedPreferences prefs;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sensor-history");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private TimeSeriesStore store;   // opened lazily on the io thread
+    private final RtdbHistory rtdb = new RtdbHistory();
+    private long publishedHour = -1;                 // start of the hour last published to
+    private Map<String, Float> publishedSeries = new HashMap<>();
+    private int starts;
+
+    private final Runnable sample = new Runnable() {
+        @Override public void run() {
+            record();
+            main.postDelayed(this, SAMPLE_MS);
+        }
+    };
+
+    private SensorHistory(Context app) {
+        dir = new File(app.getFilesDir(), "history");
+        prefs = app.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /** Starts the minute tick; calls nest like {@link StatsRepository#start()}. */
+    @MainThread
+    public void start() {
+        if (starts++ > 0) return;
+        // first point once the live values had a moment to arrive
+        main.postDelayed(sample, SAMPLE_MS);
+        io.execute(() -> {
+            try {
+                int deleted = store().compact(System.currentTimeMillis(), RETENTION_MS);
+                if (deleted > 0) Log.d(TAG, "Dropped " + deleted + " expired segments");
+            } catch (IOException e) {
+                Log.w(TAG, "Compaction failed", e);
+            }
+        });
+        catchUp();
+    }
+
+    @MainThread
+    public void stop() {
+        if (starts == 0 || --starts > 0) return;
+        main.removeCallbacks(sample);
+        io.execute(() -> {
+            if (store != null) store.flush();
+        });
+    }
+
+    /** The thread history reads and writes run on. */
+    @NonNull
+    public ExecutorService io() {
+        return io;
+    }
+
+    /** Points of {@code series} in [from, to], oldest first. Call on {@link #io()}. */
+    @WorkerThread
+    public void scan(@NonNull String series, long fromMillis, long toMillis,
+                     @NonNull TimeSeriesStore.Visitor visitor) throws IOException {
+        store().scan(series, fromMillis, toMillis, visitor);
+    }
+
+    // ---------------- recording ----------------
+    @MainThread
+    private void record() {
+        final long now = System.currentTimeMillis();
+        StatsRepository stats = StatsRepository.get();
+        final float temperature = stats.temperature().latest();
+        final float humidity = stats.humidity().latest();
+
+        // current slots only: a slot that disappeared stops getting points
+        final int n = SensorRepository.get().getSlots().size();
+        final int[] slots = new int[n];
+        final float[] values = new float[n];
+        int i = 0;
+        for (SlotReading r : SensorRepository.get().getSlots()) {
+            slots[i] = r.getSlot();
+            values[i++] = r.getValue();
+        }
+
+        publish(now, temperature, humidity, slots, values);
+
+        io.execute(() -> {
+            try {
+                TimeSeriesStore s = store();
+                s.append(TEMPERATURE, now, temperature);
+                s.append(HUMIDITY, now, humidity);
+                for (int k = 0; k < n; k++) s.append(slotSeries(slots[k]), now, values[k]);
+            } catch (IOException e) {
+                Log.w(TAG, "Couldn't record history", e);
+            }
+        });
+    }
+
+    @MainThread
+    private void publish(long now, float temperature, float humidity, int[] slots, float[] values) {
+        Map<String, Float> minute = new HashMap<>();
+        minute.put(TEMPERATURE, temperature);
+        minute.put(HUMIDITY, humidity);
+        for (int k = 0; k < slots.length; k++) minute.put(slotSeries(slots[k]), values[k]);
+        rtdb.writeMinute(now, minute);
+
+        long hour = now - Math.floorMod(now, HOUR_MS);
+        if (publishedHour >= 0 && hour != publishedHour) {
+            // the previous hour is complete: refresh its rollups
+            final long closed = publishedHour;
+            List<Task<Void>> rollups = new ArrayList<>();
+            for (String series : publishedSeries.keySet()) rollups.add(rtdb.rollUp(series, closed));
+            Tasks.whenAll(rollups).addOnSuccessListener(v -> {
+                // only if it carries on from what's already rolled up, or a gap would be skipped
+                if (prefs.getLong(KEY_ROLLED_UP_TO, 0) >= closed) markRolledUp(hour);
+            });
+            publishedSeries = new HashMap<>();
+        }
+        publishedHour = hour;
+        publishedSeries.putAll(minute);
+    }
+
+    // ---------------- catching up ----------------
+
+    /**
+     * Rolls up every closed hour since the last one this device rolled up (the app was stopped or
+     * killed when they ended), then prunes /history/raw. Rollups are idempotent, so hours another
+     * device already did cost a rewrite of the same values. Hours further back than
+     * {@link #RAW_RETENTION_MS} are skipped: their minutes are being pruned.
+     */
+    @MainThread
+    private void catchUp() {
+        long now = System.currentTimeMillis();
+        final long current = now - Math.floorMod(now, HOUR_MS);
+        final long rawCutoff = current - RAW_RETENTION_MS;
+        final long from = Math.max(prefs.getLong(KEY_ROLLED_UP_TO, 0), rawCutoff);
+        io.execute(() -> {
+            final List<String> series;
+            try {
+                series = store().series();
+            } catch (IOException e) {
+                Log.w(TAG, "Couldn't list history series", e);
+                return;
+            }
+            main.post(() -> {
+                List<Task<Void>> rollups = new ArrayList<>();
+                for (String s : series) rollups.add(rtdb.rollUp(s, from, current));
+                Tasks.whenAll(rollups).addOnCompleteListener(task -> {
+                    if (!task.isSuccessful()) {
+                        // nothing marked: the next start tries these hours again
+                        Log.w(TAG, "Catching up rollups failed", task.getException());
+                        return;
+                    }
+                    markRolledUp(current);
+                    // only raw minutes whose hours are rolled up go
+                    for (String s : series) {
+                        rtdb.pruneRaw(s, rawCutoff).addOnSuccessListener(deleted -> {
+                            if (deleted > 0) Log.d(TAG, "Pruned " + deleted + " raw hours of " + s);
+                        });
+                    }
+                });
+            });
+        });
+    }
+
+    @MainThread
+    private void markRolledUp(long hour) {
+        if (prefs.getLong(KEY_ROLLED_UP_TO, 0) < hour) prefs.edit().putLong(KEY_ROLLED_UP_TO, hour).apply();
+    }
+
+    @WorkerThread
+    private TimeSeriesStore store() throws IOException {
+        if (store == null) store = new TimeSeriesStore(dir);
+        return store;
+    }
+}
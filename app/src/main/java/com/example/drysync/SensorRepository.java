@@ -0,0 +1,320 @@
+package com.example.drysync;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Process-wide owner of the live /Sensors and /Environment listeners.
+ *
+ * Screens register listeners instead of reading Firebase themselves; the repository keeps
+ * exactly one ValueEventListener per node while anyone is subscribed, decodes each change
+ * once and only notifies about slots whose reading actually changed. When the last
+ * subscriber leaves, the Firebase listener is kept for {@link #LINGER_MS} so quick tab
+ * switches don't re-sync the node. A listener the database cancels (e.g. rules rejecting an
+ * expired session) is attached again with backoff while anyone is still subscribed. All methods
+ * must be called on the main thread.
+ *
+ * Snapshots are decoded on {@link SnapshotProcessor}, newest first: one that arrives while an
+ * older one is still waiting to be decoded replaces it, so a burst is applied as its last
+ * state. Every slot whose reading changed since the last applied snapshot is dispatched,
+ * followed by one {@link SlotListener#onSlotsFlushed()}; listeners don't conflate any further,
+ * which is what stats, alerts and history want. Screens that only draw wrap their listener in a
+ * {@link FrameSlotListener}.
+ */
+public final class SensorRepository {
+
+    private static final String TAG = "SensorRepository";
+
+    // ---- paths (change if your schema differs) ----
+    static final String SENSORS_PATH = "Sensors";
+    private static final String ENVIRONMENT_PATH = "Environment";
+
+    /** How long a node stays subscribed after its last listener is removed. */
+    static final long LINGER_MS = 30_000L;
+
+    // re-attaching a cancelled listener
+    private static final long RETRY_BASE_MS = 2_000L;
+    private static final long RETRY_MAX_MS = 5 * 60_000L;
+
+    public interface SlotListener {
+        /** Called with the current reading on subscribe (if known) and whenever it changes. */
+        void onSlotChanged(@NonNull SlotReading reading);
+
+        /**
+         * The slot disappeared from /Sensors. By default it's reported as an empty reading
+         * (no status, no value), which is what it reads as.
+         */
+        default void onSlotRemoved(int slot) {
+            onSlotChanged(new SlotReading(slot, null, Float.NaN));
+        }
+
+        /** Called once after the {@link #onSlotChanged} calls for one snapshot. */
+        default void onSlotsFlushed() {}
+    }
+
+    public interface EnvironmentListener {
+        /** Temperature (°C) and humidity (%); either may be NaN if the node is missing. */
+        void onEnvironmentChanged(float temperature, float humidity);
+        default void onError(@NonNull String message) {}
+    }
+
+    private static SensorRepository instance;
+
+    @MainThread
+    public static SensorRepository get() {
+        if (instance == null) instance = new SensorRepository();
+        return instance;
+    }
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    // ---- /Sensors ----
+    private final DatabaseReference sensorsRef;
+    private ValueEventListener sensorsListener;
+    private final Map<Integer, SlotReading> slots = new TreeMap<>();   // last dispatched, by slot
+    private final List<SlotListener> allSlotListeners = new ArrayList<>();
+    private final Map<Integer, List<SlotListener>> slotListeners = new TreeMap<>();
+    private int sensorSubscribers;
+    private final Runnable detachSensors = this::detachSensors;
+    private int sensorRetries;
+    private final Runnable reattachSensors = () -> {
+        if (sensorSubscribers > 0 && sensorsListener == null) attachSensors();
+    };
+
+    // ---- /Environment ----
+    private final DatabaseReference environmentRef;
+    private ValueEventListener environmentListener;
+    private final List<EnvironmentListener> environmentListeners = new ArrayList<>();
+    private float temperature = Float.NaN, humidity = Float.NaN;
+    private boolean environmentKnown;
+    private final Runnable detachEnvironment = this::detachEnvironment;
+    private int environmentRetries;
+    private final Runnable reattachEnvironment = () -> {
+        if (!environmentListeners.isEmpty() && environmentListener == null) attachEnvironment();
+    };
+
+    private SensorRepository() {
+        FirebaseDatabase db = FirebaseDatabase.getInstance();
+        sensorsRef = db.getReference(SENSORS_PATH);
+        environmentRef = db.getReference(ENVIRONMENT_PATH);
+    }
+
+    // ---------------- Sensors ----------------
+
+    /** Listen to every slot. */
+    @MainThread
+    public void addSlotListener(@NonNull SlotListener l) {
+        allSlotListeners.add(l);
+        acquireSensors();
+        for (SlotReading r : slots.values()) l.onSlotChanged(r);
+        l.onSlotsFlushed();
+    }
+
+    /** Listen to a single slot only. */
+    @MainThread
+    public void addSlotListener(int slot, @NonNull SlotListener l) {
+        List<SlotListener> list = slotListeners.get(slot);
+        if (list == null) {
+            list = new ArrayList<>();
+            slotListeners.put(slot, list);
+        }
+        list.add(l);
+        acquireSensors();
+        SlotReading r = slots.get(slot);
+        if (r != null) {
+            l.onSlotChanged(r);
+            l.onSlotsFlushed();
+        }
+    }
+
+    @MainThread
+    public void removeSlotListener(@NonNull SlotListener l) {
+        int removed = allSlotListeners.remove(l) ? 1 : 0;
+        for (List<SlotListener> list : slotListeners.values()) {
+            while (list.remove(l)) removed++;
+        }
+        for (int i = 0; i < removed; i++) releaseSensors();
+    }
+
+    /** Readings as last dispatched, ordered by slot number (empty until the first snapshot). */
+    @NonNull
+    public Collection<SlotReading> getSlots() {
+        return Collections.unmodifiableCollection(slots.values());
+    }
+
+    @Nullable
+    public SlotReading getSlot(int slot) {
+        return slots.get(slot);
+    }
+
+    private void acquireSensors() {
+        sensorSubscribers++;
+        main.removeCallbacks(detachSensors);
+        if (sensorsListener == null) attachSensors();
+    }
+
+    private void attachSensors() {
+        main.removeCallbacks(reattachSensors);
+        sensorsListener = new ValueEventListener() {
+            @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
+                sensorRetries = 0;
+                onSensorsSnapshot(snapshot);
+            }
+
+            @Override public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "Sensors listener cancelled: " + error.getMessage());
+                sensorsListener = null;
+                if (sensorSubscribers > 0) main.postDelayed(reattachSensors, retryDelay(sensorRetries++));
+            }
+        };
+        sensorsRef.addValueEventListener(sensorsListener);
+    }
+
+    private static long retryDelay(int retries) {
+        return Math.min(RETRY_MAX_MS, RETRY_BASE_MS << Math.min(retries, 16));
+    }
+
+    private void releaseSensors() {
+        if (sensorSubscribers == 0) return;
+        if (--sensorSubscribers == 0) main.postDelayed(detachSensors, LINGER_MS);
+    }
+
+    private void detachSensors() {
+        if (sensorSubscribers > 0 || sensorsListener == null) return;
+        sensorsRef.removeEventListener(sensorsListener);
+        sensorsListener = null;
+    }
+
+    private void onSensorsSnapshot(@NonNull DataSnapshot snapshot) {
+        // decode off the main thread; only the newest snapshot gets applied
+        SnapshotProcessor.get().submit(SENSORS_PATH, () -> decodeSlots(snapshot), this::applySlots);
+    }
+
+    @WorkerThread
+    private static Map<Integer, SlotReading> decodeSlots(@NonNull DataSnapshot snapshot) {
+        Map<Integer, SlotReading> decoded = new TreeMap<>();
+        for (DataSnapshot child : snapshot.getChildren()) {
+            int slot;
+            try { slot = Integer.parseInt(child.getKey()); } catch (Exception e) { continue; }
+
+            decoded.put(slot, new SlotReading(slot,
+                    SlotReading.asStatus(child.child("Status").getValue()),
+                    SlotReading.asValue(child.child("Value").getValue())));
+        }
+        return decoded;
+    }
+
+    private void applySlots(@NonNull Map<Integer, SlotReading> seen) {
+        List<SlotReading> changed = new ArrayList<>();
+        for (SlotReading next : seen.values()) {
+            SlotReading prev = slots.put(next.getSlot(), next);
+            if (!next.equals(prev)) changed.add(next);
+        }
+        List<Integer> removed = new ArrayList<>();
+        for (Iterator<Integer> it = slots.keySet().iterator(); it.hasNext(); ) {
+            Integer slot = it.next();
+            if (seen.containsKey(slot)) continue;
+            it.remove();
+            removed.add(slot);
+        }
+        if (changed.isEmpty() && removed.isEmpty()) return;
+
+        List<SlotListener> all = new ArrayList<>(allSlotListeners);
+        for (SlotReading r : changed) {
+            for (SlotListener l : all) l.onSlotChanged(r);
+            List<SlotListener> list = slotListeners.get(r.getSlot());
+            if (list == null) continue;
+            for (SlotListener l : new ArrayList<>(list)) {
+                l.onSlotChanged(r);
+                l.onSlotsFlushed();
+            }
+        }
+        for (Integer slot : removed) {
+            for (SlotListener l : all) l.onSlotRemoved(slot);
+            List<SlotListener> list = slotListeners.get(slot);
+            if (list == null) continue;
+            for (SlotListener l : new ArrayList<>(list)) {
+                l.onSlotRemoved(slot);
+                l.onSlotsFlushed();
+            }
+        }
+        for (SlotListener l : all) l.onSlotsFlushed();
+    }
+
+    // ---------------- Environment ----------------
+
+    @MainThread
+    public void addEnvironmentListener(@NonNull EnvironmentListener l) {
+        environmentListeners.add(l);
+        main.removeCallbacks(detachEnvironment);
+        if (environmentListener == null) attachEnvironment();
+        if (environmentKnown) l.onEnvironmentChanged(temperature, humidity);
+    }
+
+    @MainThread
+    public void removeEnvironmentListener(@NonNull EnvironmentListener l) {
+        if (environmentListeners.remove(l) && environmentListeners.isEmpty()) {
+            main.postDelayed(detachEnvironment, LINGER_MS);
+        }
+    }
+
+    private void attachEnvironment() {
+        main.removeCallbacks(reattachEnvironment);
+        environmentListener = new ValueEventListener() {
+            @Override public void onDataChange(@NonNull DataSnapshot snapshot) {
+                environmentRetries = 0;
+                float t = SlotReading.asValue(snapshot.child("Temperature").getValue());
+                float h = SlotReading.asValue(snapshot.child("Humidity").getValue());
+                if (environmentKnown
+                        && Float.floatToIntBits(t) == Float.floatToIntBits(temperature)
+                        && Float.floatToIntBits(h) == Float.floatToIntBits(humidity)) {
+                    return;
+                }
+                temperature = t;
+                humidity = h;
+                environmentKnown = true;
+                for (EnvironmentListener l : new ArrayList<>(environmentListeners)) {
+                    l.onEnvironmentChanged(t, h);
+                }
+            }
+
+            @Override public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "Environment listener cancelled: " + error.getMessage());
+                environmentListener = null;
+                for (EnvironmentListener l : new ArrayList<>(environmentListeners)) {
+                    l.onError("Firebase error: " + error.getMessage());
+                }
+                if (!environmentListeners.isEmpty()) {
+                    main.postDelayed(reattachEnvironment, retryDelay(environmentRetries++));
+                }
+            }
+        };
+        environmentRef.addValueEventListener(environmentListener);
+    }
+
+    private void detachEnvironment() {
+        if (!environmentListeners.isEmpty() || environmentListener == null) return;
+        environmentRef.removeEventListener(environmentListener);
+        environmentListener = null;
+    }
+}
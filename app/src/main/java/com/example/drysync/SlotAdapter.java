@@ -0,0 +1,170 @@
+package com.example.drysync;
+
+import android.graphics.Color;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.Switch;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rack grid: one card per slot, ordered by slot number. Slots are added as they show up in
+ * /Sensors and removed when they leave it, so the grid size follows the data.
+ *
+ * A reading that only changed its moisture value is rebound with {@link #PAYLOAD_VALUE}, which
+ * touches nothing but {@code valueText} and the drying ETA ({@link StatsRepository#dryingEstimate});
+ * the background, switch and colors are only rebound when the slot's state changes.
+ */
+public class SlotAdapter extends RecyclerView.Adapter<SlotAdapter.VH> {
+
+    static final int TYPE_SLOT = 0;
+    static final Object PAYLOAD_VALUE = "value";
+
+    public interface OnSlotClickListener {
+        void onSlotClick(int slot);
+    }
+
+    private final List<SlotReading> slots = new ArrayList<>();
+    private final OnSlotClickListener clickListener;
+
+    public SlotAdapter(@NonNull OnSlotClickListener clickListener) {
+        this.clickListener = clickListener;
+        setHasStableIds(true);
+    }
+
+    /** Inserts or updates the slot's card. */
+    public void setSlot(@NonNull SlotReading reading) {
+        int pos = positionOf(reading.getSlot());
+        if (pos < 0) {
+            pos = -(pos + 1);
+            slots.add(pos, reading);
+            notifyItemInserted(pos);
+            return;
+        }
+
+        SlotReading old = slots.set(pos, reading);
+        if (old.equals(reading)) return;
+        if (sameState(old, reading)) notifyItemChanged(pos, PAYLOAD_VALUE);
+        else notifyItemChanged(pos);
+    }
+
+    /** Drops the slot's card, if it has one. */
+    public void removeSlot(int slot) {
+        int pos = positionOf(slot);
+        if (pos < 0) return;
+        slots.remove(pos);
+        notifyItemRemoved(pos);
+    }
+
+    private static boolean sameState(SlotReading a, SlotReading b) {
+        return a.isInactive() == b.isInactive() && a.isComplete() == b.isComplete();
+    }
+
+    /** Binary search by slot number; (-(insertion point) - 1) when absent. */
+    private int positionOf(int slot) {
+        int lo = 0, hi = slots.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int s = slots.get(mid).getSlot();
+            if (s < slot) lo = mid + 1;
+            else if (s > slot) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    @Override public int getItemCount() { return slots.size(); }
+
+    @Override public long getItemId(int position) { return slots.get(position).getSlot(); }
+
+    @Override public int getItemViewType(int position) { return TYPE_SLOT; }
+
+    @NonNull @Override
+    public VH onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.slot_item, parent, false);
+        return new VH(v, clickListener);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position) {
+        holder.bind(slots.get(position));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        for (Object p : payloads) {
+            if (p != PAYLOAD_VALUE) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+        }
+        holder.bindValue(slots.get(position));
+    }
+
+    static class VH extends RecyclerView.ViewHolder {
+        final TextView title, value, eta;
+        final Switch statusSwitch;
+        final LinearLayout layout;
+        private int boundSlot = -1;
+
+        VH(@NonNull View slotView, @NonNull OnSlotClickListener clickListener) {
+            super(slotView);
+            title = slotView.findViewById(R.id.slotTitle);
+            value = slotView.findViewById(R.id.valueText);
+            eta = slotView.findViewById(R.id.etaText);
+            statusSwitch = slotView.findViewById(R.id.statusSwitch);
+            layout = slotView.findViewById(R.id.layout);
+
+            slotView.setOnClickListener(v -> {
+                if (boundSlot >= 0) clickListener.onSlotClick(boundSlot);
+            });
+        }
+
+        void bind(@NonNull SlotReading reading) {
+            if (boundSlot != reading.getSlot()) {
+                boundSlot = reading.getSlot();
+                title.setText("Wood Slot " + boundSlot);
+            }
+
+            int text;
+            if (reading.isInactive()) {
+                value.setVisibility(View.INVISIBLE);
+                eta.setVisibility(View.INVISIBLE);
+                statusSwitch.setVisibility(View.INVISIBLE);
+                layout.setBackgroundResource(R.drawable.rack_background);
+                text = ContextCompat.getColor(itemView.getContext(), R.color.brown);
+            } else {
+                value.setVisibility(View.VISIBLE);
+                eta.setVisibility(View.VISIBLE);
+                statusSwitch.setVisibility(View.VISIBLE);
+                layout.setBackgroundResource(R.drawable.rack_background_inactive);
+                text = Color.WHITE;
+            }
+            title.setTextColor(text);
+            value.setTextColor(text);
+            eta.setTextColor(text);
+
+            statusSwitch.setChecked(reading.isComplete());
+            bindValue(reading);
+        }
+
+        void bindValue(@NonNull SlotReading reading) {
+            value.setText(reading.hasValue() ? reading.getValue() + "%" : "Error");
+            if (!reading.isInactive()) {
+                eta.setText(EtaText.format(StatsRepository.get().dryingEstimate(reading.getSlot())));
+            }
+        }
+    }
+}
@@ -1,27 +1,139 @@
 package com.example.drysync;
 
 import android.os.Bundle;
+import android.view.View;
 import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.google.android.material.chip.ChipGroup;
+
+import java.util.Locale;
+
 public class SlotDetailsActivity extends AppCompatActivity {
 
+    private static final long HOUR_MS = 60 * 60 * 1000L, DAY_MS = 24 * HOUR_MS;
+    private static final long OVERVIEW_MS = 90 * DAY_MS;
+
+    private int slotNumber;
+    private TextView moisture, stats;
+    private HistoryChartView chart;
+    private ChipGroup rangeChips;
+    private HistoryLoader historyLoader;
+
+    private final SensorRepository.SlotListener slotListener = reading -> {
+        moisture.setText(reading.hasValue()
+                ? "Moisture: " + reading.getValue() + "%"
+                : "Moisture: --");
+        chart.addLivePoint(System.currentTimeMillis(), reading.getValue());
+    };
+
+    // same 24h window the Stats tab uses, filled by StatsRepository
+    private final StatsRepository.Listener statsListener = this::renderStats;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.slot_details);
 
-        int slotNumber = getIntent().getIntExtra("slot_number", -1);
+        slotNumber = getIntent().getIntExtra("slot_number", -1);
 
         TextView title = findViewById(R.id.slotTitle);
-        TextView moisture = findViewById(R.id.moistureText);
+        moisture = findViewById(R.id.moistureText);
+        stats = findViewById(R.id.statsText);
 
         title.setText("Wood Slot " + slotNumber);
-        moisture.setText("Moisture: " + getFakeMoisture(slotNumber) + "%");
+        moisture.setText("Moisture: --");
+
+        // ---- history chart: 90-day overview first, each shorter range or zoom refines it ----
+        chart = findViewById(R.id.historyChart);
+        historyLoader = new HistoryLoader(this, SensorHistory.slotSeries(slotNumber),
+                new HistoryLoader.Callback() {
+                    @Override public void onOverview(PointBuffer points) {
+                        chart.setOverview(points);
+                    }
+
+                    @Override public void onDetail(PointBuffer points, long from, long to) {
+                        chart.setDetail(points, from, to);
+                    }
+                });
+        bindRangeChip(R.id.chipRange90d, OVERVIEW_MS);
+        bindRangeChip(R.id.chipRange7d, 7 * DAY_MS);
+        bindRangeChip(R.id.chipRange24h, DAY_MS);
+        bindRangeChip(R.id.chipRange1h, HOUR_MS);
+        rangeChips = findViewById(R.id.chipGroupRange);
+        rangeChips.check(R.id.chipRange90d);
+
+        // pinch/pan picks a window of its own: refine it once the gesture settles
+        chart.setOnWindowChangeListener((from, to) -> {
+            rangeChips.clearCheck();
+            if (to - from < OVERVIEW_MS) historyLoader.loadDetail(from, to, chartPoints());
+        });
+
+        // the chart's width decides how many points to load
+        chart.post(() -> {
+            long now = System.currentTimeMillis();
+            chart.setExtent(now - OVERVIEW_MS, now);
+            chart.setWindow(now - OVERVIEW_MS, now);
+            historyLoader.loadOverview(now - OVERVIEW_MS, now, chartPoints());
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        historyLoader.cancel();
+    }
+
+    private void bindRangeChip(int id, long spanMillis) {
+        View chip = findViewById(id);
+        chip.setOnClickListener(v -> showRange(spanMillis));
+    }
+
+    private void showRange(long spanMillis) {
+        long now = System.currentTimeMillis();
+        chart.setWindow(now - spanMillis, now);
+        // the overview already has one point per pixel for the full range
+        if (spanMillis < OVERVIEW_MS) historyLoader.loadDetail(now - spanMillis, now, chartPoints());
+    }
+
+    /** One point per horizontal pixel of the plot area. */
+    private int chartPoints() {
+        return Math.max(2, chart.getWidth() - chart.getPaddingLeft() - chart.getPaddingRight());
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        SensorRepository.get().addSlotListener(slotNumber, slotListener);
+        // keeps sampling while MainActivity is stopped underneath
+        StatsRepository.get().start();
+        SensorHistory.get(this).start();
+        AlertRepository.get(this).start();
+        StatsRepository.get().addListener(statsListener);
+        renderStats();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        SensorRepository.get().removeSlotListener(slotListener);
+        StatsRepository.get().removeListener(statsListener);
+        AlertRepository.get(this).stop();
+        SensorHistory.get(this).stop();
+        StatsRepository.get().stop();
     }
 
-    private int getFakeMoisture(int slot) {
-        return 15 + (slot % 5);  // fake moisture value for now
+    private void renderStats() {
+        RollingWindowStats s = StatsRepository.get().slot(slotNumber);
+        if (s == null || s.isEmpty()) {
+            stats.setText("Last 24h: --");
+            return;
+        }
+        String text = String.format(Locale.getDefault(), "Last 24h: min %.1f%% · max %.1f%% · avg %.1f%%",
+                s.min(), s.max(), s.average());
+        float delta = s.delta();
+        if (!Float.isNaN(delta)) text += String.format(Locale.getDefault(), " · 1h %+.1f", delta);
+        stats.setText(text);
     }
 }
@@ -0,0 +1,164 @@
+package com.example.drysync;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes/aggregates Firebase snapshots on a small background pool and hands the result back
+ * on the main thread.
+ *
+ * Work is submitted under a key (e.g. "home/batches"). Only the newest submission per key
+ * matters: a job still waiting in the queue is replaced rather than queued again, and a result
+ * computed for an older submission is dropped. A burst of snapshots therefore costs at most one
+ * running + one waiting job per key, which also bounds the queue. Work that throws is logged and
+ * reported to the submission's {@link Failure}, under the same newest-only rule.
+ */
+public final class SnapshotProcessor {
+
+    private static final String TAG = "SnapshotProcessor";
+    private static final int THREADS = 2;
+
+    public interface Work<T> {
+        @WorkerThread T run() throws Exception;
+    }
+
+    public interface Result<T> {
+        @MainThread void onResult(T result);
+    }
+
+    public interface Failure {
+        @MainThread void onFailure(@NonNull Exception error);
+    }
+
+    private static SnapshotProcessor instance;
+
+    public static synchronized SnapshotProcessor get() {
+        if (instance == null) instance = new SnapshotProcessor();
+        return instance;
+    }
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor;
+
+    // key -> job that hasn't started yet (guarded by itself)
+    private final Map<String, Job<?>> waiting = new HashMap<>();
+    // key -> generation of the newest submission (main thread only)
+    private final Map<String, Long> latest = new HashMap<>();
+
+    private SnapshotProcessor() {
+        AtomicInteger n = new AtomicInteger();
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        r.run();
+                    }, "snapshot-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Runs {@code work} off the main thread and delivers its result unless superseded. */
+    @MainThread
+    public <T> void submit(@NonNull String key, @NonNull Work<T> work, @NonNull Result<T> onResult) {
+        submit(key, work, onResult, null);
+    }
+
+    /** As {@link #submit(String, Work, Result)}; {@code onFailure} hears about work that threw. */
+    @MainThread
+    public <T> void submit(@NonNull String key, @NonNull Work<T> work, @NonNull Result<T> onResult,
+                           @Nullable Failure onFailure) {
+        Long prev = latest.get(key);
+        long gen = prev == null ? 1 : prev + 1;
+        latest.put(key, gen);
+
+        synchronized (waiting) {
+            Job<?> queued = waiting.get(key);
+            if (queued != null) {
+                // not started yet: swap in the newer work instead of queueing another job
+                waiting.put(key, queued.replacedBy(work, onResult, onFailure, gen));
+                return;
+            }
+            Job<T> job = new Job<>(key, work, onResult, onFailure, gen);
+            waiting.put(key, job);
+            executor.execute(() -> runWaiting(key));
+        }
+    }
+
+    /** Drops any pending or in-flight result for {@code key}, e.g. when the view goes away. */
+    @MainThread
+    public void cancel(@NonNull String key) {
+        Long prev = latest.get(key);
+        latest.put(key, prev == null ? 1 : prev + 1);
+        synchronized (waiting) {
+            waiting.remove(key);
+        }
+    }
+
+    @WorkerThread
+    private void runWaiting(String key) {
+        Job<?> job;
+        synchronized (waiting) {
+            job = waiting.remove(key);
+        }
+        if (job != null) job.execute();
+    }
+
+    private final class Job<T> {
+        final String key;
+        final Work<T> work;
+        final Result<T> onResult;
+        @Nullable final Failure onFailure;
+        final long generation;
+
+        Job(String key, Work<T> work, Result<T> onResult, @Nullable Failure onFailure, long generation) {
+            this.key = key;
+            this.work = work;
+            this.onResult = onResult;
+            this.onFailure = onFailure;
+            this.generation = generation;
+        }
+
+        <R> Job<R> replacedBy(Work<R> work, Result<R> onResult, @Nullable Failure onFailure, long generation) {
+            return new Job<>(key, work, onResult, onFailure, generation);
+        }
+
+        void execute() {
+            final T result;
+            try {
+                result = work.run();
+            } catch (Exception e) {
+                Log.w(TAG, "Processing failed for " + key, e);
+                if (onFailure != null) main.post(() -> {
+                    if (isNewest()) onFailure.onFailure(e);
+                });
+                return;
+            }
+            main.post(() -> {
+                if (isNewest()) onResult.onResult(result);
+            });
+        }
+
+        @MainThread
+        private boolean isNewest() {
+            Long newest = latest.get(key);
+            return newest != null && newest == generation;
+        }
+    }
+}
@@ -28,6 +28,11 @@ public class StatsFragment extends Fragment {
     private TextView humidityText, tvHumidTarget, tvHumidLastUpdated;
     private TextView tvHumidMin, tvHumidMax, tvHumidAvg, tvHumidTrend;
 
+    // --- 24h charts, read from the on-device history ---
+    private static final long CHART_MS = 24 * 60 * 60 * 1000L;
+    private HistoryChartView tempChart, humidChart;
+    private HistoryLoader tempHistory, humidHistory;
+
     public StatsFragment() { }
 
     @Override
@@ -60,17 +65,95 @@ public class StatsFragment extends Fragment {
         tvHumidAvg         = v.findViewById(R.id.tvHumidAvg);
         tvHumidTrend       = v.findViewById(R.id.tvHumidTrend);
 
-        // TODO: hook these to Firebase/live data.
-        // Demo values:
-        setTemperature(25);
-        setTemperatureTarget("Target: 20–35°C");
-        setTemperatureLastUpdated(System.currentTimeMillis());
-        setTemperatureStats(22, 31, 26.4f, +1);
+        // --- bind charts ---
+        tempChart  = v.findViewById(R.id.tempChart);
+        humidChart = v.findViewById(R.id.humidChart);
+        tempChart.setUnit("°C");
+        humidChart.setUnit("%");
+        tempHistory  = bindHistory(tempChart, SensorHistory.TEMPERATURE);
+        humidHistory = bindHistory(humidChart, SensorHistory.HUMIDITY);
 
-        setHumidity(62);
+        setTemperatureTarget("Target: 20–35°C");
         setHumidityTarget("Ideal: 45% – 60%");
-        setHumidityLastUpdated(System.currentTimeMillis());
-        setHumidityStats(48, 72, 58.0f, +3);
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        tempHistory.cancel();
+        humidHistory.cancel();
+    }
+
+    private HistoryLoader bindHistory(HistoryChartView chart, String series) {
+        HistoryLoader loader = new HistoryLoader(requireContext(), series, new HistoryLoader.Callback() {
+            @Override public void onOverview(@NonNull PointBuffer points) {
+                chart.setOverview(points);
+            }
+
+            @Override public void onDetail(@NonNull PointBuffer points, long from, long to) {
+                chart.setDetail(points, from, to);
+            }
+        });
+        chart.setOnWindowChangeListener((from, to) -> {
+            if (to - from < CHART_MS) loader.loadDetail(from, to, chartPoints(chart));
+        });
+        return loader;
+    }
+
+    /** Last 24h at one point per pixel; reloaded each time the tab comes back. */
+    private void loadCharts() {
+        tempChart.post(() -> {
+            if (getView() == null) return;
+            long now = System.currentTimeMillis();
+            tempChart.setExtent(now - CHART_MS, now);
+            tempChart.setWindow(now - CHART_MS, now);
+            humidChart.setExtent(now - CHART_MS, now);
+            humidChart.setWindow(now - CHART_MS, now);
+            tempHistory.loadOverview(now - CHART_MS, now, chartPoints(tempChart));
+            humidHistory.loadOverview(now - CHART_MS, now, chartPoints(humidChart));
+        });
+    }
+
+    private static int chartPoints(HistoryChartView chart) {
+        return Math.max(2, chart.getWidth() - chart.getPaddingLeft() - chart.getPaddingRight());
+    }
+
+    // ---- live stats: rendered while the tab is in front ----
+    private final StatsRepository.Listener statsListener = this::render;
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        StatsRepository.get().addListener(statsListener);
+        loadCharts();
+        render();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        StatsRepository.get().removeListener(statsListener);
+    }
+
+    private void render() {
+        StatsRepository stats = StatsRepository.get();
+        stats.advanceTo(System.currentTimeMillis());
+
+        RollingWindowStats t = stats.temperature();
+        if (!t.isEmpty()) {
+            setTemperature(Math.round(t.latest()));
+            setTemperatureLastUpdated(t.latestTime());
+            tempChart.addLivePoint(t.latestTime(), t.latest());
+        }
+        setTemperatureStats(t.min(), t.max(), t.average(), t.delta());
+
+        RollingWindowStats h = stats.humidity();
+        if (!h.isEmpty()) {
+            setHumidity(Math.round(h.latest()));
+            setHumidityLastUpdated(h.latestTime());
+            humidChart.addLivePoint(h.latestTime(), h.latest());
+        }
+        setHumidityStats(h.min(), h.max(), h.average(), h.delta());
     }
 
     // ===== Temperature =====
@@ -102,12 +185,13 @@ public class StatsFragment extends Fragment {
      * @param max       max temp in last 24h (°C)
      * @param average   average temp in last 24h (°C)
      * @param delta1h   change vs 1 hour ago (°C), can be negative
+     * Any of them may be NaN (no data yet) and is then shown as "--".
      */
-    private void setTemperatureStats(int min, int max, float average, int delta1h) {
-        if (tvTempMin != null)  tvTempMin.setText(min + "°C");
-        if (tvTempMax != null)  tvTempMax.setText(max + "°C");
+    private void setTemperatureStats(float min, float max, float average, float delta1h) {
+        if (tvTempMin != null)  tvTempMin.setText(formatWhole(min) + "°C");
+        if (tvTempMax != null)  tvTempMax.setText(formatWhole(max) + "°C");
         if (tvTempAvg != null)  tvTempAvg.setText(formatOneDecimal(average) + "°C");
-        if (tvTempTrend != null) tvTempTrend.setText(formatSigned(delta1h) + "°C");
+        if (tvTempTrend != null) tvTempTrend.setText(formatTrend(delta1h) + "°C");
     }
 
     // ===== Humidity =====
@@ -139,22 +223,39 @@ public class StatsFragment extends Fragment {
      * @param max       max RH% in last 24h
      * @param average   average RH% in last 24h
      * @param delta1h   change vs 1 hour ago (percentage points), can be negative
+     * Any of them may be NaN (no data yet) and is then shown as "--".
      */
-    private void setHumidityStats(int min, int max, float average, int delta1h) {
-        if (tvHumidMin != null)   tvHumidMin.setText(min + "%");
-        if (tvHumidMax != null)   tvHumidMax.setText(max + "%");
+    private void setHumidityStats(float min, float max, float average, float delta1h) {
+        if (tvHumidMin != null)   tvHumidMin.setText(formatWhole(min) + "%");
+        if (tvHumidMax != null)   tvHumidMax.setText(formatWhole(max) + "%");
         if (tvHumidAvg != null)   tvHumidAvg.setText(formatOneDecimal(average) + "%");
-        if (tvHumidTrend != null) tvHumidTrend.setText(formatSigned(delta1h) + "%");
+        if (tvHumidTrend != null) tvHumidTrend.setText(formatTrend(delta1h) + "%");
     }
 
     // ===== helpers =====
+    private String formatWhole(float value) {
+        return Float.isNaN(value) ? "--" : String.valueOf(Math.round(value));
+    }
+
     private String formatOneDecimal(float value) {
         // Uses current locale (e.g., 26.4)
+        if (Float.isNaN(value)) return "--";
         return String.format(Locale.getDefault(), "%.1f", value);
     }
 
-    private String formatSigned(int value) {
+    private String formatSigned(float value) {
         // Adds + for positive, keeps 0, and – for negative
-        return (value > 0 ? "+" : "") + value;
+        if (Float.isNaN(value)) return "--";
+        if (Math.abs(value) < 0.05f) value = 0f;   // no "-0.0"
+        return (value > 0 ? "+" : "") + formatOneDecimal(value);
+    }
+
+    private String formatTrend(float value) {
+        // arrow as plain text in front of the signed change: ↑ +1.2, ↓ -0.4, → 0.0
+        if (Float.isNaN(value)) return "--";
+        String signed = formatSigned(value);
+        if (signed.startsWith("+")) return "↑ " + signed;
+        if (signed.startsWith("-")) return "↓ " + signed;
+        return "→ " + signed;
     }
 }
@@ -0,0 +1,156 @@
+package com.example.drysync;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rolling 24h statistics for temperature, humidity and every rack slot's moisture, fed from
+ * {@link SensorRepository}. The Stats screen and the slot details read the same
+ * {@link RollingWindowStats} instances. Each drying slot also gets a {@link DryingPredictor}
+ * for its time to target moisture.
+ *
+ * Sampling runs between {@link #start()} and {@link #stop()} (MainActivity's onStart/onStop), so
+ * the windows keep filling whichever tab is in front. Main thread only.
+ */
+public final class StatsRepository {
+
+    public static final long WINDOW_MS = 24 * 60 * 60 * 1000L;
+    public static final long DELTA_MS = 60 * 60 * 1000L;
+    // bucket sizes: ~2900 buckets for each environment series, ~1400 per slot
+    private static final long ENVIRONMENT_RESOLUTION_MS = 30_000L;
+    private static final long SLOT_RESOLUTION_MS = 60_000L;
+
+    // drying fit: kiln-dried target, typical equilibrium moisture in the kiln, about a day of memory
+    public static final float TARGET_MOISTURE = 12f;
+    private static final float EQUILIBRIUM_MOISTURE = 6f;
+    private static final double DRYING_MEMORY_HOURS = 24;
+
+    public interface Listener {
+        /** Something was sampled; read the stats you need. */
+        void onStatsChanged();
+    }
+
+    private static StatsRepository instance;
+
+    @MainThread
+    public static StatsRepository get() {
+        if (instance == null) instance = new StatsRepository();
+        return instance;
+    }
+
+    private final RollingWindowStats temperature =
+            new RollingWindowStats(WINDOW_MS, ENVIRONMENT_RESOLUTION_MS, DELTA_MS);
+    private final RollingWindowStats humidity =
+            new RollingWindowStats(WINDOW_MS, ENVIRONMENT_RESOLUTION_MS, DELTA_MS);
+    private final Map<Integer, RollingWindowStats> slots = new TreeMap<>();
+    private final Map<Integer, DryingPredictor> drying = new HashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private int starts;
+
+    private StatsRepository() { }
+
+    // ---- sampling ----
+    private final SensorRepository.EnvironmentListener environmentListener = (t, h) -> {
+        long now = System.currentTimeMillis();
+        temperature.add(now, t);
+        humidity.add(now, h);
+        notifyListeners();
+    };
+
+    private final SensorRepository.SlotListener slotListener = new SensorRepository.SlotListener() {
+        @Override public void onSlotChanged(@NonNull SlotReading reading) {
+            if (reading.isInactive()) {
+                drying.remove(reading.getSlot());   // emptied; the next load starts a new fit
+                return;
+            }
+            if (!reading.hasValue()) return;
+            long now = System.currentTimeMillis();
+            RollingWindowStats s = slots.get(reading.getSlot());
+            if (s == null) {
+                s = new RollingWindowStats(WINDOW_MS, SLOT_RESOLUTION_MS, DELTA_MS);
+                slots.put(reading.getSlot(), s);
+            }
+            s.add(now, reading.getValue());
+
+            DryingPredictor p = drying.get(reading.getSlot());
+            if (p == null) {
+                p = new DryingPredictor(TARGET_MOISTURE, EQUILIBRIUM_MOISTURE, DRYING_MEMORY_HOURS);
+                drying.put(reading.getSlot(), p);
+            }
+            p.add(now, reading.getValue());
+        }
+
+        @Override public void onSlotsFlushed() {
+            notifyListeners();
+        }
+    };
+
+    /** Starts sampling; calls nest, sampling stops with the last {@link #stop()}. */
+    @MainThread
+    public void start() {
+        if (starts++ > 0) return;
+        SensorRepository.get().addEnvironmentListener(environmentListener);
+        SensorRepository.get().addSlotListener(slotListener);
+    }
+
+    @MainThread
+    public void stop() {
+        if (starts == 0 || --starts > 0) return;
+        SensorRepository.get().removeEnvironmentListener(environmentListener);
+        SensorRepository.get().removeSlotListener(slotListener);
+    }
+
+    // ---- reads ----
+    @NonNull
+    public RollingWindowStats temperature() {
+        return temperature;
+    }
+
+    @NonNull
+    public RollingWindowStats humidity() {
+        return humidity;
+    }
+
+    /** Moisture stats for a slot, or null if it never reported a value. */
+    @Nullable
+    public RollingWindowStats slot(int slot) {
+        return slots.get(slot);
+    }
+
+    /** Time to target moisture for a slot, or null while there's no estimate (see {@link DryingPredictor}). */
+    @Nullable
+    public DryingPredictor.Estimate dryingEstimate(int slot) {
+        DryingPredictor p = drying.get(slot);
+        return p == null ? null : p.estimate(System.currentTimeMillis());
+    }
+
+    /** Lets readings that stopped arriving slide out of the windows. */
+    @MainThread
+    public void advanceTo(long nowMillis) {
+        temperature.advanceTo(nowMillis);
+        humidity.advanceTo(nowMillis);
+        for (RollingWindowStats s : slots.values()) s.advanceTo(nowMillis);
+    }
+
+    // ---- listeners ----
+    @MainThread
+    public void addListener(@NonNull Listener l) {
+        listeners.add(l);
+    }
+
+    @MainThread
+    public void removeListener(@NonNull Listener l) {
+        listeners.remove(l);
+    }
+
+    private void notifyListeners() {
+        for (Listener l : new ArrayList<>(listeners)) l.onStatsChanged();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.drysync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/** The outbox overlay, without SQLite: {@link BatchMirror#overlay} is what the list shows. */
+public class BatchMirrorTest {
+
+    private static final String ID = "BATCH-1";
+    private long nextId = 1;
+
+    @Test
+    public void queuedIncrementsAddToTheServerRow() {
+        WoodBatch server = new WoodBatch(ID, 100, 1_000L, 10, 5);
+        WoodBatch shown = BatchMirror.overlay(ID, server, Arrays.asList(rack(20, false), rack(-5, false)));
+        assertEquals(25, shown.getInRackCount());
+        assertEquals(5, shown.getFinishedCount());
+        assertEquals(70, shown.getRemaining());
+        assertEquals(1_000L, shown.getArrivalDateMillis());
+    }
+
+    @Test
+    public void replaceSupersedesAndTombstoneDeletes() {
+        WoodBatch server = new WoodBatch(ID, 100, 1_000L, 10, 5);
+        BatchMirror.Outgoing created = replace(WoodBatchCodec.encode(new WoodBatch(ID, 40, 2_000L)));
+        WoodBatch shown = BatchMirror.overlay(ID, null, Arrays.asList(created, rack(3, false)));
+        assertEquals(40, shown.getTotalQuantity());
+        assertEquals(3, shown.getInRackCount());
+
+        assertNull(BatchMirror.overlay(ID, server, Collections.singletonList(replace(WoodBatchCodec.tombstone(ID)))));
+    }
+
+    @Test
+    public void editsToAnUnknownBatchWaitForItsRow() {
+        assertNull(BatchMirror.overlay(ID, null, Collections.singletonList(rack(5, false))));
+        assertEquals(10, BatchMirror.overlay(ID, new WoodBatch(ID, 10, 0L), Collections.emptyList()).getTotalQuantity());
+    }
+
+    @Test
+    public void sealedIncrementIsNotCountedTwice() {
+        WoodBatch stored = new WoodBatch(ID, 100, 1_000L, 10, 0);
+        List<BatchMirror.Outgoing> queued = new ArrayList<>();
+
+        // +5 is sent; the database echoes it back before the ack
+        queued.add(rack(5, true));
+        WoodBatch echo = stored.withCounts(15, 0);
+        assertTrue(BatchMirror.holdsServerRows(queued));
+        assertEquals("laid over the echo it would count twice",
+                20, BatchMirror.overlay(ID, echo, queued).getInRackCount());
+        assertEquals(15, BatchMirror.overlay(ID, stored, queued).getInRackCount());
+
+        // an edit while it's in flight queues behind it
+        queued.add(rack(2, false));
+        assertEquals(17, BatchMirror.overlay(ID, stored, queued).getInRackCount());
+
+        // the ack: the held echo becomes the row, under what's still queued
+        queued.remove(0);
+        assertFalse(BatchMirror.holdsServerRows(queued));
+        assertEquals(17, BatchMirror.overlay(ID, echo, queued).getInRackCount());
+    }
+
+    private BatchMirror.Outgoing rack(int delta, boolean sealed) {
+        Map<String, Long> increments = new HashMap<>();
+        increments.put(WoodBatchCodec.IN_RACK, (long) delta);
+        increments.put(WoodBatchCodec.REMAINING, -(long) delta);
+        return new BatchMirror.Outgoing(nextId++, ID, "op" + nextId, false, Collections.emptyMap(),
+                increments, 0, sealed);
+    }
+
+    private BatchMirror.Outgoing replace(Map<String, Object> node) {
+        return new BatchMirror.Outgoing(nextId++, ID, "op" + nextId, true, node,
+                Collections.emptyMap(), 0, false);
+    }
+}
@@ -0,0 +1,27 @@
+// JMH benchmarks for :core. Run with ./gradlew :core-bench:jmh
+// Results land in core-bench/build/results/jmh/results.json
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    jmh(project(":core"))
+    jmh(libs.jmh.core)
+    jmh(libs.jmh.generator.annprocess)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    // narrow a run with -PjmhInclude=Decode
+    providers.gradleProperty("jmhInclude").orNull?.let { includes.set(listOf(it)) }
+}
@@ -0,0 +1,55 @@
+package com.example.drysync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** The Home tiles: batch stock counts and rack slot counts. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AggregateBenchmark {
+
+    private static final int LOW_STOCK_THRESHOLD = 10;
+
+    @State(Scope.Benchmark)
+    public static class Batches {
+        @Param({"1000", "10000", "100000"})
+        public int batches;
+        List<WoodBatch> list;
+
+        @Setup
+        public void setUp() {
+            list = BenchData.batches(batches);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Slots {
+        @Param({"10", "100", "1000"})
+        public int slots;
+        List<SlotReading> list;
+
+        @Setup
+        public void setUp() {
+            list = BenchData.slots(slots);
+        }
+    }
+
+    @Benchmark
+    public BatchCounts batchCounts(Batches s) {
+        return BatchCounts.of(s.list, LOW_STOCK_THRESHOLD);
+    }
+
+    @Benchmark
+    public SlotCounts slotCounts(Slots s) {
+        return SlotCounts.of(s.list);
+    }
+}
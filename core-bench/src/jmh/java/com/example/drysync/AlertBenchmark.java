@@ -0,0 +1,57 @@
+package com.example.drysync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** One slot reading through the alert rules, with every slot of a large kiln already tracked. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class AlertBenchmark {
+
+    private static final long MINUTE = 60_000L;
+
+    @Param({"1000"})
+    public int slots;
+
+    private AlertEngine engine;
+    private SlotReading[] readings;
+    private long now;
+    private int i, raisedOrCleared;
+
+    @Setup
+    public void setUp() {
+        engine = new AlertEngine(Arrays.asList(
+                AlertRule.below("slot-dry", AlertRule.Source.SLOT_MOISTURE, "Reached target moisture", 12f, 13f, 10 * MINUTE),
+                AlertRule.above("slot-wet", AlertRule.Source.SLOT_MOISTURE, "Moisture too high", 60f, 55f, 30 * MINUTE),
+                AlertRule.above("slot-complete", AlertRule.Source.SLOT_COMPLETE, "Complete", 1f, 0.5f, 0),
+                AlertRule.above("temp-high", AlertRule.Source.TEMPERATURE, "Temperature high", 35f, 33f, 5 * MINUTE)),
+                event -> raisedOrCleared++);
+        // values wander around the thresholds so raises, clears and deadlines all happen
+        Random r = new Random(13);
+        readings = new SlotReading[8192];
+        for (int k = 0; k < readings.length; k++) {
+            int slot = r.nextInt(slots);
+            String status = r.nextInt(50) == 0 ? "Complete" : "Drying";
+            readings[k] = new SlotReading(slot, status, 8f + r.nextFloat() * 60f);
+        }
+        for (int k = 0; k < slots; k++) engine.onSlot(now, new SlotReading(k, "Drying", 30f));
+    }
+
+    @Benchmark
+    public int slotEvent() {
+        now += 50;   // a thousand slots every few seconds
+        engine.onSlot(now, readings[i++ & 8191]);
+        return raisedOrCleared;
+    }
+}
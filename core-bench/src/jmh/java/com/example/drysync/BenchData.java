@@ -0,0 +1,68 @@
+package com.example.drysync;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/** Deterministic fixtures shaped like what /batches and /Sensors actually hold. */
+final class BenchData {
+
+    private static final long BASE_MILLIS = 1_700_000_000_000L;
+
+    private BenchData() {}
+
+    /** Raw batch nodes as Firebase hands them over: app-written, legacy-alias and string-typed mixed. */
+    static List<Map<String, Object>> batchNodes(int n) {
+        List<Map<String, Object>> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> m = new HashMap<>();
+            m.put(WoodBatchCodec.BATCH_ID, batchId(i));
+            m.put(WoodBatchCodec.ARRIVAL, BASE_MILLIS + i * 60_000L);
+            m.put(WoodBatchCodec.TOTAL, (long) (50 + i % 200));
+            switch (i % 3) {
+                case 0:
+                    m.put(WoodBatchCodec.IN_RACK, (long) (i % 40));
+                    m.put(WoodBatchCodec.FINISHED, (long) (i % 7));
+                    m.put(WoodBatchCodec.REMAINING, 0L);
+                    break;
+                case 1:
+                    m.put(WoodBatchCodec.LEGACY_IN_RACK, (long) (i % 40));
+                    m.put(WoodBatchCodec.LEGACY_FINISHED, (long) (i % 7));
+                    break;
+                default:
+                    m.put(WoodBatchCodec.IN_RACK, String.valueOf(i % 40));
+                    m.put(WoodBatchCodec.FINISHED, (long) (i % 7));
+                    break;
+            }
+            out.add(m);
+        }
+        return out;
+    }
+
+    /** Decoded batches in arrival order shuffled, i.e. the order child events tend to arrive in. */
+    static List<WoodBatch> batches(int n) {
+        List<Map<String, Object>> nodes = batchNodes(n);
+        List<WoodBatch> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(WoodBatchCodec.decode("k" + i, nodes.get(i)));
+        Collections.shuffle(out, new Random(42));
+        return out;
+    }
+
+    static List<SlotReading> slots(int n) {
+        Random rnd = new Random(7);
+        String[] statuses = {"Drying", "drying", "Complete", "Inactive", null};
+        List<SlotReading> out = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            String status = statuses[rnd.nextInt(statuses.length)];
+            out.add(new SlotReading(i, status, status == null ? Float.NaN : rnd.nextFloat() * 40f));
+        }
+        return out;
+    }
+
+    static String batchId(int i) {
+        return "BATCH-20250817-" + (1000 + i);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.drysync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-frame data work of HistoryChartView while panning: fold the visible points into pixel
+ * columns. Has to stay well under a 16 ms frame with 100k visible points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ChartBenchmark {
+
+    private static final long MINUTE = 60_000L;
+
+    @Param({"1000", "100000"})
+    public int points;
+
+    /** Plot width in pixels. */
+    @Param({"1080"})
+    public int width;
+
+    private final PointBuffer buffer = new PointBuffer();
+    private final PixelColumns columns = new PixelColumns();
+    private long shift;
+
+    @Setup
+    public void setUp() {
+        Random r = new Random(11);
+        float v = 20f;
+        for (int i = 0; i < points; i++) {
+            v += (r.nextFloat() - 0.5f) * 0.2f;
+            buffer.add(i * MINUTE, v);
+        }
+        columns.resize(width);
+    }
+
+    /** A window over the whole series, nudged by one minute per frame as a pan would. */
+    @Benchmark
+    public float panFrame() {
+        shift = (shift + MINUTE) % (points * MINUTE / 10);
+        long from = shift, to = from + points * MINUTE * 9 / 10;
+        int first = buffer.indexAtOrAfter(from), end = buffer.indexAtOrAfter(to);
+        columns.aggregate(buffer, first, end, from, to);
+        return columns.max() - columns.min();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.drysync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Raw node -> WoodBatch, i.e. what a full /batches snapshot costs before anything is drawn. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DecodeBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int batches;
+
+    private List<Map<String, Object>> nodes;
+    private List<Map<String, Object>> migrated;   // same batches after SchemaMigrator's 0 -> 1
+    private WoodBatchPool warmPool;
+
+    @Setup
+    public void setUp() {
+        nodes = BenchData.batchNodes(batches);
+        warmPool = new WoodBatchPool();
+        for (int i = 0; i < nodes.size(); i++) warmPool.decode(null, nodes.get(i));
+
+        migrated = new ArrayList<>(nodes.size());
+        for (Map<String, Object> node : nodes) {
+            Map<String, Object> m = new HashMap<>(node);
+            Map<String, Object> update = WoodBatchCodec.dropAliases(null, node);
+            if (update != null) {
+                for (Map.Entry<String, Object> f : update.entrySet()) {
+                    if (f.getValue() == null) m.remove(f.getKey());
+                    else m.put(f.getKey(), f.getValue());
+                }
+            }
+            migrated.add(m);
+        }
+    }
+
+    @Benchmark
+    public void decodeAll(Blackhole bh) {
+        for (int i = 0; i < nodes.size(); i++) bh.consume(WoodBatchCodec.decode(null, nodes.get(i)));
+    }
+
+    /** The alias fallback switched off for the whole trial, as after the migration. */
+    @State(Scope.Benchmark)
+    public static class AliasesOff {
+        @Setup
+        public void setUp() {
+            WoodBatchCodec.setReadLegacyAliases(false);
+        }
+
+        @TearDown
+        public void tearDown() {
+            WoodBatchCodec.setReadLegacyAliases(true);
+        }
+    }
+
+    /** A migrated database, read without the alias fallback. */
+    @Benchmark
+    public void decodeAllMigrated(AliasesOff aliasesOff, Blackhole bh) {
+        for (int i = 0; i < migrated.size(); i++) bh.consume(WoodBatchCodec.decode(null, migrated.get(i)));
+    }
+
+    /** Re-decoding an unchanged snapshot: every batch comes back as the pooled instance. */
+    @Benchmark
+    public void decodeAllPooled(Blackhole bh) {
+        for (int i = 0; i < nodes.size(); i++) bh.consume(warmPool.decode(null, nodes.get(i)));
+    }
+
+    @Benchmark
+    public void batchIdOnly(Blackhole bh) {
+        for (int i = 0; i < nodes.size(); i++) bh.consume(WoodBatchCodec.batchIdOf(null, nodes.get(i)));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.drysync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search-box filtering over the sorted inventory, one query per keystroke: the linear
+ * BatchSearch scan vs. the trigram-indexed BatchQueryEngine, plus a facet/sort query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilterBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int batches;
+
+    // a selective suffix, a prefix every id shares, and one that matches nothing
+    @Param({"1234", "batch-2025", "zzz"})
+    public String query;
+
+    private List<WoodBatch> sorted;
+    private BatchQueryEngine engine;
+    private BatchQuery engineQuery, facetQuery;
+
+    @Setup
+    public void setUp() {
+        BatchIndex index = new BatchIndex();
+        for (WoodBatch b : BenchData.batches(batches)) index.upsert(b);
+        sorted = index.asList();
+
+        engine = new BatchQueryEngine();
+        for (WoodBatch b : sorted) engine.upsert(b);
+        engineQuery = BatchQuery.ALL.withText(query);
+        facetQuery = engineQuery.withSort(BatchSort.MOST_REMAINING)
+                .withState(BatchQuery.State.IN_RACK)
+                .withRemaining(20, Integer.MAX_VALUE);
+        engine.query(facetQuery);   // build the sorted view outside the measurement
+    }
+
+    @Benchmark
+    public List<WoodBatch> filter() {
+        return BatchSearch.filter(sorted, BatchSearch.normalize(query));
+    }
+
+    @Benchmark
+    public List<WoodBatch> engine() {
+        return engine.query(engineQuery);
+    }
+
+    @Benchmark
+    public List<WoodBatch> engineFacets() {
+        return engine.query(facetQuery);
+    }
+}
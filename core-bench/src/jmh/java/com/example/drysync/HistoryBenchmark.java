@@ -0,0 +1,107 @@
+package com.example.drysync;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The on-device history: a 7-day range read out of 90 days of per-minute points, appends, and
+ * the slot details overview (all 90 days, LTTB'd to a phone-width chart). The store's size on
+ * disk is reported next to the seven-day scan as the {@code bytesOnDisk} counter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class HistoryBenchmark {
+
+    private static final long MINUTE = 60_000L, DAY = 24 * 60 * MINUTE;
+    private static final int DAYS = 90;
+    private static final String SERIES = "slot-1";
+    private static final int CHART_WIDTH_PX = 1080;
+
+    private File dir;
+    private TimeSeriesStore store;
+    private long end, appendTime;
+    private float sum;
+    private final PointBuffer scratch = new PointBuffer(DAYS * 1440);
+    private final PointBuffer chart = new PointBuffer(CHART_WIDTH_PX);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("history-bench").toFile();
+        store = new TimeSeriesStore(dir);
+        Random r = new Random(11);
+        long start = 1_700_000_000_000L;
+        float value = 25f;
+        for (int i = 0; i < DAYS * 1440; i++) {
+            // moisture in 0.1 steps, changing in ~20% of minutes; a few late ticks
+            if (r.nextInt(5) == 0) value = Math.round((value + (r.nextBoolean() ? 0.1f : -0.1f)) * 10) / 10f;
+            long jitter = r.nextInt(10) == 0 ? r.nextInt(3000) : 0;
+            store.append(SERIES, start + i * MINUTE + jitter, value);
+        }
+        end = start + DAYS * DAY;
+        appendTime = end;
+        store.compact(end, 365 * DAY);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        File[] series = dir.listFiles();
+        if (series != null) for (File s : series) {
+            File[] files = s.listFiles();
+            if (files != null) for (File f : files) f.delete();
+            s.delete();
+        }
+        dir.delete();
+    }
+
+    /** Footprint of the store, reported alongside the scan's score. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesOnDisk;
+
+        // JMH zeroes counters when an iteration starts, so this is filled in at the end
+        @TearDown(Level.Iteration)
+        public void measure(HistoryBenchmark bench) {
+            bytesOnDisk = bench.store.sizeOnDisk();
+        }
+    }
+
+    @Benchmark
+    public float scanSevenDays(Footprint footprint) throws IOException {
+        sum = 0;
+        store.scan(SERIES, end - 7 * DAY, end, (t, v) -> sum += v);
+        return sum;
+    }
+
+    @Benchmark
+    public int overviewNinetyDays() throws IOException {
+        scratch.clear();
+        chart.clear();
+        store.scan(SERIES, end - DAYS * DAY, end, scratch::add);
+        Lttb.downsample(scratch, 0, scratch.size(), CHART_WIDTH_PX, chart);
+        return chart.size();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean append() throws IOException {
+        appendTime += MINUTE;
+        return store.append(SERIES, appendTime, 25f + (appendTime / MINUTE % 7) / 10f);
+    }
+}
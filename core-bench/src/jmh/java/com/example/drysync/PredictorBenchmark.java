@@ -0,0 +1,54 @@
+package com.example.drysync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** One moisture sample into a slot's drying fit, and the ETA read the rack cards do. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class PredictorBenchmark {
+
+    private static final long PERIOD = 5_000L;
+
+    private DryingPredictor predictor;
+    private float[] noise;
+    private long now;
+    private int i;
+
+    @Setup
+    public void setUp() {
+        predictor = new DryingPredictor(12f, 6f, 24);
+        Random r = new Random(5);
+        noise = new float[4096];
+        for (int k = 0; k < noise.length; k++) noise[k] = (float) r.nextGaussian() * 0.3f;
+        // a few hours in, past the minimum for an estimate
+        for (int k = 0; k < 3 * 720; k++) addSample();
+    }
+
+    private void addSample() {
+        now += PERIOD;
+        double hours = now / 3_600_000.0;
+        // stays above the target for the whole run so no reading looks like a reload
+        predictor.add(now, (float) (14 + 26 * Math.exp(-0.001 * hours)) + noise[i++ & 4095]);
+    }
+
+    @Benchmark
+    public float addSampleToFit() {
+        addSample();
+        return predictor.latest();
+    }
+
+    @Benchmark
+    public Object estimate() {
+        return predictor.estimate(now);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.drysync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeping the inventory ordered: building a BatchIndex from scratch vs. sorting a copy,
+ * and applying one child change to a warm index vs. re-sorting everything.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SortBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int batches;
+
+    private List<WoodBatch> shuffled;
+    private BatchIndex warm;
+    private WoodBatch original, changed;
+    private boolean flip;
+
+    @Setup
+    public void setUp() {
+        shuffled = BenchData.batches(batches);
+        warm = new BatchIndex();
+        for (WoodBatch b : shuffled) warm.upsert(b);
+
+        WoodBatch mid = shuffled.get(shuffled.size() / 2);
+        original = mid;
+        changed = mid.withCounts(mid.getInRackCount() + 1, mid.getFinishedCount());
+    }
+
+    @Benchmark
+    public BatchIndex indexBuild() {
+        BatchIndex index = new BatchIndex();
+        for (WoodBatch b : shuffled) index.upsert(b);
+        return index;
+    }
+
+    @Benchmark
+    public List<WoodBatch> fullSort() {
+        List<WoodBatch> copy = new ArrayList<>(shuffled);
+        Collections.sort(copy, BatchIndex.NEWEST_FIRST);
+        return copy;
+    }
+
+    @Benchmark
+    public BatchIndex indexSingleUpsert() {
+        // alternate so every call is a real change (re-upserting the same batch is a no-op)
+        flip = !flip;
+        warm.upsert(flip ? changed : original);
+        return warm;
+    }
+
+    @Benchmark
+    public List<WoodBatch> fullSortSingleChange() {
+        List<WoodBatch> copy = new ArrayList<>(shuffled);
+        copy.set(copy.size() / 2, changed);
+        Collections.sort(copy, BatchIndex.NEWEST_FIRST);
+        return copy;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.drysync;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** One sensor sample into a full 24h window, then the Stats screen's read of it. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class StatsBenchmark {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L, HOUR = 60 * 60 * 1000L;
+
+    /** Sensor period: once a second up to once a minute. */
+    @Param({"1000", "60000"})
+    public long periodMillis;
+
+    private RollingWindowStats stats;
+    private float[] values;
+    private long now;
+    private int i;
+
+    @Setup
+    public void setUp() {
+        stats = new RollingWindowStats(DAY, 30_000L, HOUR);
+        Random r = new Random(7);
+        values = new float[4096];
+        for (int k = 0; k < values.length; k++) values[k] = 10f + r.nextFloat() * 30f;
+        // start from a full window
+        for (long t = 0; t < DAY; t += periodMillis) stats.add(t, values[i++ & 4095]);
+        now = DAY;
+    }
+
+    @Benchmark
+    public float addSample() {
+        now += periodMillis;
+        stats.add(now, values[i++ & 4095]);
+        return stats.latest();
+    }
+
+    @Benchmark
+    public float readAll() {
+        return stats.min() + stats.max() + stats.average() + stats.delta();
+    }
+}
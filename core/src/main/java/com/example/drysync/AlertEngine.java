@@ -0,0 +1,183 @@
+package com.example.drysync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Evaluates {@link AlertRule}s as readings arrive. A slot reading only re-checks the slot rules
+ * against that slot's state, and an environment reading only the temperature/humidity rules, so
+ * an event costs O(rules for its source) whatever the number of slots.
+ *
+ * A condition that has to hold for a minimum duration is parked in a deadline queue when it
+ * starts; {@link #advanceTo} raises it once the deadline passes if nothing cleared or reset it in
+ * the meantime, so a slot that goes quiet still raises on time. Not thread-safe.
+ */
+public final class AlertEngine {
+
+    public interface Listener {
+        void onAlert(AlertEvent event);
+    }
+
+    /** Per-subject rule state, indexed like {@link #rules}. */
+    private static final class State {
+        final int subject;
+        final long[] since;       // when the raise condition started holding, or IDLE
+        final boolean[] raised;
+        final float[] value;      // latest value per rule, reported when a deadline raises
+
+        State(int subject, int rules) {
+            this.subject = subject;
+            since = new long[rules];
+            Arrays.fill(since, IDLE);
+            raised = new boolean[rules];
+            value = new float[rules];
+        }
+    }
+
+    private static final class Deadline {
+        final long at, since;
+        final State state;
+        final int rule;
+
+        Deadline(long at, long since, State state, int rule) {
+            this.at = at;
+            this.since = since;
+            this.state = state;
+            this.rule = rule;
+        }
+    }
+
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final AlertRule[] rules;
+    private final int[] moistureRules, completeRules, temperatureRules, humidityRules;
+    private final Map<Integer, State> slots = new HashMap<>();
+    private final State environment;
+    private final PriorityQueue<Deadline> deadlines =
+            new PriorityQueue<>(16, (a, b) -> Long.compare(a.at, b.at));
+    private final Listener listener;
+
+    public AlertEngine(List<AlertRule> rules, Listener listener) {
+        this.rules = rules.toArray(new AlertRule[0]);
+        this.listener = listener;
+        moistureRules = indicesOf(AlertRule.Source.SLOT_MOISTURE);
+        completeRules = indicesOf(AlertRule.Source.SLOT_COMPLETE);
+        temperatureRules = indicesOf(AlertRule.Source.TEMPERATURE);
+        humidityRules = indicesOf(AlertRule.Source.HUMIDITY);
+        environment = new State(AlertEvent.ENVIRONMENT, this.rules.length);
+    }
+
+    private int[] indicesOf(AlertRule.Source source) {
+        List<Integer> found = new ArrayList<>();
+        for (int i = 0; i < rules.length; i++) if (rules[i].source == source) found.add(i);
+        int[] out = new int[found.size()];
+        for (int i = 0; i < out.length; i++) out[i] = found.get(i);
+        return out;
+    }
+
+    // ---- events ----
+
+    /** A slot changed. An inactive (emptied) slot clears whatever it had raised and starts over. */
+    public void onSlot(long nowMillis, SlotReading reading) {
+        advanceTo(nowMillis);
+        State s = slots.get(reading.getSlot());
+        if (reading.isInactive()) {
+            if (s != null) reset(nowMillis, s);
+            return;
+        }
+        if (s == null) {
+            s = new State(reading.getSlot(), rules.length);
+            slots.put(reading.getSlot(), s);
+        }
+        for (int i : moistureRules) evaluate(nowMillis, s, i, reading.getValue());
+        float complete = reading.isComplete() ? 1f : 0f;
+        for (int i : completeRules) evaluate(nowMillis, s, i, complete);
+    }
+
+    public void onEnvironment(long nowMillis, float temperature, float humidity) {
+        advanceTo(nowMillis);
+        for (int i : temperatureRules) evaluate(nowMillis, environment, i, temperature);
+        for (int i : humidityRules) evaluate(nowMillis, environment, i, humidity);
+    }
+
+    /** Raises every minimum-duration condition that has held until now. */
+    public void advanceTo(long nowMillis) {
+        while (!deadlines.isEmpty() && deadlines.peek().at <= nowMillis) {
+            Deadline d = deadlines.poll();
+            State s = d.state;
+            // superseded if the condition broke (or restarted) since it was parked
+            if (s.raised[d.rule] || s.since[d.rule] != d.since) continue;
+            raise(d.at, s, d.rule);
+        }
+    }
+
+    /** Whether a rule is currently raised for a slot ({@link AlertEvent#ENVIRONMENT} for the environment). */
+    public boolean isRaised(String ruleId, int slot) {
+        State s = slot == AlertEvent.ENVIRONMENT ? environment : slots.get(slot);
+        if (s == null) return false;
+        for (int i = 0; i < rules.length; i++) if (rules[i].id.equals(ruleId)) return s.raised[i];
+        return false;
+    }
+
+    /**
+     * Marks a rule as already raised for a slot without reporting it, e.g. restored from a
+     * previous run's inbox, so the first reading doesn't raise it again.
+     */
+    public void restoreRaised(String ruleId, int slot) {
+        State s = slot == AlertEvent.ENVIRONMENT ? environment : slots.get(slot);
+        if (s == null) {
+            s = new State(slot, rules.length);
+            slots.put(slot, s);
+        }
+        for (int i = 0; i < rules.length; i++) if (rules[i].id.equals(ruleId)) s.raised[i] = true;
+    }
+
+    /** Deadlines parked for minimum durations, including superseded ones not yet dropped. */
+    public int pendingCount() {
+        return deadlines.size();
+    }
+
+    // ---- evaluation ----
+
+    private void evaluate(long now, State s, int i, float value) {
+        if (Float.isNaN(value)) return;
+        AlertRule rule = rules[i];
+        s.value[i] = value;
+        if (s.raised[i]) {
+            if (rule.clears(value)) {
+                s.raised[i] = false;
+                s.since[i] = IDLE;
+                listener.onAlert(new AlertEvent(now, rule.id, rule.title, s.subject, false, value));
+            }
+        } else if (rule.raises(value)) {
+            if (s.since[i] == IDLE) {
+                s.since[i] = now;
+                if (rule.minDurationMs > 0) deadlines.add(new Deadline(now + rule.minDurationMs, now, s, i));
+            }
+            if (now - s.since[i] >= rule.minDurationMs) raise(now, s, i);
+        } else {
+            s.since[i] = IDLE;   // broke off before the duration; the parked deadline is now stale
+        }
+    }
+
+    private void raise(long now, State s, int i) {
+        s.raised[i] = true;
+        AlertRule rule = rules[i];
+        listener.onAlert(new AlertEvent(now, rule.id, rule.title, s.subject, true, s.value[i]));
+    }
+
+    private void reset(long now, State s) {
+        for (int i = 0; i < rules.length; i++) {
+            if (s.raised[i]) {
+                AlertRule rule = rules[i];
+                listener.onAlert(new AlertEvent(now, rule.id, rule.title, s.subject, false, Float.NaN));
+            }
+            s.raised[i] = false;
+            s.since[i] = IDLE;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.drysync;
+
+/** A rule raised or cleared for a slot (or for the environment, {@link #ENVIRONMENT}). */
+public final class AlertEvent {
+
+    public static final int ENVIRONMENT = -1;
+
+    public final long timeMillis;
+    public final String ruleId;
+    public final String title;
+    public final int slot;
+    public final boolean raised;
+    public final float value;
+
+    public AlertEvent(long timeMillis, String ruleId, String title, int slot, boolean raised, float value) {
+        this.timeMillis = timeMillis;
+        this.ruleId = ruleId;
+        this.title = title;
+        this.slot = slot;
+        this.raised = raised;
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return "AlertEvent{" + ruleId + ", " + slot + (raised ? ", raised, " : ", cleared, ") + value + "}";
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.drysync;
+
+/**
+ * One threshold with hysteresis: raised once the value has been past {@code raiseAt} for
+ * {@code minDurationMs}, cleared only when it falls back past {@code clearAt}, so a value
+ * hovering at the threshold doesn't flap.
+ */
+public final class AlertRule {
+
+    /** What a rule watches. Slot sources are checked per slot, with state kept per slot. */
+    public enum Source {
+        SLOT_MOISTURE,
+        /** 1 while the slot's status is Complete, 0 otherwise. */
+        SLOT_COMPLETE,
+        TEMPERATURE,
+        HUMIDITY;
+
+        public boolean isSlot() { return this == SLOT_MOISTURE || this == SLOT_COMPLETE; }
+    }
+
+    public final String id;
+    public final Source source;
+    public final String title;
+    public final boolean above;       // raised above raiseAt, else below it
+    public final float raiseAt, clearAt;
+    public final long minDurationMs;
+
+    private AlertRule(String id, Source source, String title, boolean above,
+                      float raiseAt, float clearAt, long minDurationMs) {
+        if (above ? clearAt > raiseAt : clearAt < raiseAt) {
+            throw new IllegalArgumentException(id + ": clear threshold on the wrong side");
+        }
+        this.id = id;
+        this.source = source;
+        this.title = title;
+        this.above = above;
+        this.raiseAt = raiseAt;
+        this.clearAt = clearAt;
+        this.minDurationMs = minDurationMs;
+    }
+
+    /** Raised at or above {@code raiseAt}, cleared below {@code clearAt}. */
+    public static AlertRule above(String id, Source source, String title,
+                                  float raiseAt, float clearAt, long minDurationMs) {
+        return new AlertRule(id, source, title, true, raiseAt, clearAt, minDurationMs);
+    }
+
+    /** Raised at or below {@code raiseAt}, cleared above {@code clearAt}. */
+    public static AlertRule below(String id, Source source, String title,
+                                  float raiseAt, float clearAt, long minDurationMs) {
+        return new AlertRule(id, source, title, false, raiseAt, clearAt, minDurationMs);
+    }
+
+    /** NaN (no reading) neither raises nor clears. */
+    boolean raises(float value) {
+        return above ? value >= raiseAt : value <= raiseAt;
+    }
+
+    boolean clears(float value) {
+        return above ? value < clearAt : value > clearAt;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.drysync;
+
+/** Home screen batch tiles: batches with stock left, and those running low. */
+public final class BatchCounts {
+    public final int lowStock, available;
+
+    public BatchCounts(int lowStock, int available) {
+        this.lowStock = lowStock;
+        this.available = available;
+    }
+
+    /** @param lowStockThreshold remaining pieces below which a batch counts as low stock */
+    public static BatchCounts of(Iterable<WoodBatch> batches, int lowStockThreshold) {
+        int lowStock = 0;
+        int available = 0;
+
+        for (WoodBatch wb : batches) {
+            int remaining = wb.getRemaining();
+            if (remaining > 0) available++;
+            if (remaining > 0 && remaining < lowStockThreshold) lowStock++;
+        }
+        return new BatchCounts(lowStock, available);
+    }
+
+    /** These counts with {@code removed} taken out and {@code added} put in. */
+    public BatchCounts replace(BatchCounts removed, BatchCounts added) {
+        return new BatchCounts(lowStock - removed.lowStock + added.lowStock,
+                available - removed.available + added.available);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.drysync;
+
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Batch ids that don't collide and sort by creation time, push-id style:
+ * {@code BATCH-yyyyMMdd-} (the day, for people reading the card), then 8 chars of millisecond
+ * time, 4 chars drawn once per generator (telling devices apart) and a 4-char counter.
+ *
+ * The chars come from an alphabet in ASCII order, so the ids sort the way they were made and
+ * {@code orderByKey} on /batches is arrival order, with no index. The counter starts at a random
+ * value each millisecond and counts up within it; if the clock steps back, the last time is kept
+ * and the counter carries on, so one generator's ids always increase. Ids from before this
+ * format ({@code BATCH-yyyyMMdd-NNNN}) still sort by day. Thread-safe.
+ */
+public final class BatchIdGenerator {
+
+    public static final String PREFIX = "BATCH-";
+
+    // ascending ASCII, like the database's push ids
+    private static final String ALPHABET = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+    private static final int TIME_CHARS = 8;      // 64^8 ms, good for thousands of years
+    private static final int DEVICE_CHARS = 4;
+    private static final int COUNTER_CHARS = 4;
+    private static final int COUNTER_LIMIT = 1 << (6 * COUNTER_CHARS);
+
+    private final Random random;
+    private final Calendar day;
+    private final String device;
+    private long lastTime = Long.MIN_VALUE;
+    private int counter;
+
+    public BatchIdGenerator(TimeZone zone, Random random) {
+        this.random = random;
+        this.day = Calendar.getInstance(zone);
+        this.device = encode(random.nextInt(1 << (6 * DEVICE_CHARS)), DEVICE_CHARS);
+    }
+
+    /** A new id for a batch created at {@code nowMillis}. */
+    public synchronized String next(long nowMillis) {
+        if (nowMillis > lastTime) {
+            lastTime = nowMillis;
+            // random start, with the upper half left to count into
+            counter = random.nextInt(COUNTER_LIMIT / 2);
+        } else if (++counter == COUNTER_LIMIT) {
+            lastTime++;
+            counter = 0;
+        }
+
+        day.setTimeInMillis(lastTime);
+        StringBuilder sb = new StringBuilder(PREFIX.length() + 9 + TIME_CHARS + DEVICE_CHARS + COUNTER_CHARS);
+        sb.append(PREFIX);
+        appendDigits(sb, day.get(Calendar.YEAR), 4);
+        appendDigits(sb, day.get(Calendar.MONTH) + 1, 2);
+        appendDigits(sb, day.get(Calendar.DAY_OF_MONTH), 2);
+        sb.append('-');
+        sb.append(encode(lastTime, TIME_CHARS));
+        sb.append(device);
+        sb.append(encode(counter, COUNTER_CHARS));
+        return sb.toString();
+    }
+
+    private static String encode(long value, int chars) {
+        char[] out = new char[chars];
+        for (int i = chars - 1; i >= 0; i--) {
+            out[i] = ALPHABET.charAt((int) (value & 63));
+            value >>>= 6;
+        }
+        return new String(out);
+    }
+
+    private static void appendDigits(StringBuilder sb, int value, int width) {
+        String s = Integer.toString(value);
+        for (int i = s.length(); i < width; i++) sb.append('0');
+        sb.append(s);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.drysync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory set of batches kept sorted (newest arrival first unless another order is given)
+ * and keyed by batchId.
+ *
+ * Positions are found with a binary search, so an add/change/remove costs O(log n) compares
+ * (plus the array shift) instead of re-sorting the whole inventory. Every mutation reports
+ * exactly the position(s) it touched to the {@link Callback}, which is what the adapter needs
+ * to animate a single row.
+ */
+public class BatchIndex {
+
+    public interface Callback {
+        void onInserted(int position, WoodBatch batch);
+        void onRemoved(int position, WoodBatch batch);
+        void onChanged(int position, WoodBatch batch);
+        void onMoved(int fromPosition, int toPosition, WoodBatch batch);
+    }
+
+    /** Newest arrival first; batchId breaks ties so the order is total. */
+    public static final Comparator<WoodBatch> NEWEST_FIRST = (a, b) -> {
+        int c = Long.compare(b.getArrivalDateMillis(), a.getArrivalDateMillis());
+        if (c != 0) return c;
+        String x = a.getBatchId(), y = b.getBatchId();
+        if (x == null) return y == null ? 0 : 1;
+        if (y == null) return -1;
+        return x.compareTo(y);
+    };
+
+    private final Comparator<WoodBatch> order;
+    private final List<WoodBatch> sorted = new ArrayList<>();
+    private final Map<String, WoodBatch> byId = new HashMap<>();
+    private Callback callback;
+
+    public BatchIndex() { this(NEWEST_FIRST); }
+
+    /** @param order must be a total order on batchId-distinct batches (tie-break on batchId) */
+    public BatchIndex(Comparator<WoodBatch> order) { this.order = order; }
+
+    public Comparator<WoodBatch> getOrder() { return order; }
+
+    public void setCallback(Callback callback) { this.callback = callback; }
+
+    public int size() { return sorted.size(); }
+
+    public WoodBatch get(int position) { return sorted.get(position); }
+
+    public WoodBatch find(String batchId) { return byId.get(batchId); }
+
+    /** Read-only live view in sort order. */
+    public List<WoodBatch> asList() { return Collections.unmodifiableList(sorted); }
+
+    /**
+     * Adds the batch or replaces the one with the same batchId, keeping sort order.
+     * Re-upserting an unchanged batch (same instance or same contents) is a no-op.
+     */
+    public void upsert(WoodBatch batch) {
+        String id = batch.getBatchId();
+        if (id == null) return;
+
+        WoodBatch old = byId.get(id);
+        if (old != null && old.sameContents(batch)) return;
+        byId.put(id, batch);
+        if (old == null) {
+            int pos = insertionPoint(batch);
+            sorted.add(pos, batch);
+            if (callback != null) callback.onInserted(pos, batch);
+            return;
+        }
+
+        int from = indexOf(old);
+        if (order.compare(old, batch) == 0) {
+            sorted.set(from, batch);
+            if (callback != null) callback.onChanged(from, batch);
+            return;
+        }
+
+        // sort key changed (e.g. arrival date edited): re-place it
+        sorted.remove(from);
+        int to = insertionPoint(batch);
+        sorted.add(to, batch);
+        if (callback != null) {
+            if (from != to) callback.onMoved(from, to, batch);
+            callback.onChanged(to, batch);
+        }
+    }
+
+    /** @return the removed batch, or null if it wasn't indexed. */
+    public WoodBatch remove(String batchId) {
+        WoodBatch old = byId.remove(batchId);
+        if (old == null) return null;
+        int pos = indexOf(old);
+        sorted.remove(pos);
+        if (callback != null) callback.onRemoved(pos, old);
+        return old;
+    }
+
+    /** Replaces the contents with {@code batches} in one sort; the callback is not notified. */
+    public void replaceAll(Collection<WoodBatch> batches) {
+        clear();
+        for (WoodBatch b : batches) {
+            String id = b.getBatchId();
+            if (id == null || byId.containsKey(id)) continue;
+            byId.put(id, b);
+            sorted.add(b);
+        }
+        Collections.sort(sorted, order);
+    }
+
+    public void clear() {
+        sorted.clear();
+        byId.clear();
+    }
+
+    // ---------- binary search ----------
+    private int insertionPoint(WoodBatch b) {
+        int i = Collections.binarySearch(sorted, b, order);
+        return i < 0 ? -(i + 1) : i;
+    }
+
+    private int indexOf(WoodBatch b) {
+        int i = Collections.binarySearch(sorted, b, order);
+        if (i >= 0 && sorted.get(i) == b) return i;
+        // shouldn't happen with a total order, but never lose track of an entry
+        return sorted.indexOf(b);
+    }
+}
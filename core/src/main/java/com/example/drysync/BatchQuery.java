@@ -0,0 +1,82 @@
+package com.example.drysync;
+
+/**
+ * What the inventory screen asks for: batch ID text, range/facet filters and a sort order.
+ * Immutable; derive variants with the {@code with*} methods starting from {@link #ALL}.
+ */
+public final class BatchQuery {
+
+    /** Which counts a batch must have. */
+    public enum State {
+        ANY,
+        IN_RACK,      // at least one piece in the rack
+        FINISHED,     // at least one piece finished
+        UNTOUCHED     // nothing racked or finished yet
+    }
+
+    public static final BatchQuery ALL =
+            new BatchQuery("", Long.MIN_VALUE, Long.MAX_VALUE, 0, Integer.MAX_VALUE, State.ANY, BatchSort.NEWEST_FIRST);
+
+    public final String text;                   // normalized, see BatchSearch.normalize
+    public final long arrivalFrom, arrivalTo;   // inclusive millis
+    public final int minRemaining, maxRemaining;
+    public final State state;
+    public final BatchSort sort;
+
+    private BatchQuery(String text, long arrivalFrom, long arrivalTo,
+                       int minRemaining, int maxRemaining, State state, BatchSort sort) {
+        this.text = text;
+        this.arrivalFrom = arrivalFrom;
+        this.arrivalTo = arrivalTo;
+        this.minRemaining = minRemaining;
+        this.maxRemaining = maxRemaining;
+        this.state = state;
+        this.sort = sort;
+    }
+
+    public BatchQuery withText(String raw) {
+        return new BatchQuery(BatchSearch.normalize(raw), arrivalFrom, arrivalTo, minRemaining, maxRemaining, state, sort);
+    }
+
+    public BatchQuery withArrival(long from, long to) {
+        return new BatchQuery(text, from, to, minRemaining, maxRemaining, state, sort);
+    }
+
+    public BatchQuery withRemaining(int min, int max) {
+        return new BatchQuery(text, arrivalFrom, arrivalTo, Math.max(0, min), max, state, sort);
+    }
+
+    public BatchQuery withState(State state) {
+        return new BatchQuery(text, arrivalFrom, arrivalTo, minRemaining, maxRemaining, state, sort);
+    }
+
+    public BatchQuery withSort(BatchSort sort) {
+        return new BatchQuery(text, arrivalFrom, arrivalTo, minRemaining, maxRemaining, state, sort);
+    }
+
+    /** True when only text and/or sort are set. */
+    public boolean hasNoFilters() {
+        return arrivalFrom == Long.MIN_VALUE && arrivalTo == Long.MAX_VALUE
+                && minRemaining == 0 && maxRemaining == Integer.MAX_VALUE
+                && state == State.ANY;
+    }
+
+    /** True when this is the plain live list: no text, no filters, newest first. */
+    public boolean isDefault() {
+        return text.isEmpty() && hasNoFilters() && sort == BatchSort.NEWEST_FIRST;
+    }
+
+    /** Range/facet part of the query (text is matched separately by the index). */
+    public boolean accepts(WoodBatch b) {
+        long arrival = b.getArrivalDateMillis();
+        if (arrival < arrivalFrom || arrival > arrivalTo) return false;
+        int remaining = b.getRemaining();
+        if (remaining < minRemaining || remaining > maxRemaining) return false;
+        switch (state) {
+            case IN_RACK:   return b.getInRackCount() > 0;
+            case FINISHED:  return b.getFinishedCount() > 0;
+            case UNTOUCHED: return b.getInRackCount() == 0 && b.getFinishedCount() == 0;
+            default:        return true;
+        }
+    }
+}
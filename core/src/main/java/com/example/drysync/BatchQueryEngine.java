@@ -0,0 +1,219 @@
+package com.example.drysync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Local query engine over the batch set, kept up to date one batch at a time.
+ *
+ * - text: a trigram index on lower-cased batch IDs. A query of 3+ chars only looks at the
+ *   batches holding its rarest trigram, then confirms the substring match.
+ * - order: one {@link BatchIndex} per {@link BatchSort}, built on first use and then maintained
+ *   incrementally, so a query never sorts the whole inventory.
+ * - filters: {@link BatchQuery#accepts} on whatever survives the text match.
+ *
+ * Selective queries sort their few candidates; broad ones walk the pre-sorted view instead.
+ * Thread-safe: mutations come from the decode pass, queries from a worker.
+ */
+public final class BatchQueryEngine {
+
+    private static final int GRAM = 3;
+    // a candidate set smaller than size/8 is cheaper to sort than the sorted view is to walk
+    private static final int SORT_CANDIDATES_DIVISOR = 8;
+
+    // batchId -> dense ordinal, so postings are int arrays rather than sets of strings
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private WoodBatch[] batches = new WoodBatch[64];
+    private String[] lowerIds = new String[64];
+    private final IntList freeOrdinals = new IntList();
+    private int nextOrdinal;
+
+    // packed trigram -> sorted ordinals of batches whose ID contains it
+    private final Map<Long, IntList> postings = new HashMap<>();
+
+    private final Map<BatchSort, BatchIndex> views = new EnumMap<>(BatchSort.class);
+
+    public BatchQueryEngine() {
+        views.put(BatchSort.NEWEST_FIRST, new BatchIndex(BatchSort.NEWEST_FIRST.comparator));
+    }
+
+    public synchronized int size() {
+        return ordinalById.size();
+    }
+
+    public synchronized void upsert(WoodBatch batch) {
+        String id = batch.getBatchId();
+        if (id == null) return;
+
+        Integer ord = ordinalById.get(id);
+        if (ord == null) {
+            ord = allocateOrdinal();
+            ordinalById.put(id, ord);
+            String lower = id.toLowerCase(Locale.getDefault());
+            lowerIds[ord] = lower;
+            indexGrams(lower, ord);
+        }
+        batches[ord] = batch;   // same batchId -> same grams, only the value changes
+        for (BatchIndex view : views.values()) view.upsert(batch);
+    }
+
+    public synchronized void remove(String batchId) {
+        Integer ord = ordinalById.remove(batchId);
+        if (ord == null) return;
+        unindexGrams(lowerIds[ord], ord);
+        batches[ord] = null;
+        lowerIds[ord] = null;
+        freeOrdinals.add(ord);
+        for (BatchIndex view : views.values()) view.remove(batchId);
+    }
+
+    public synchronized void clear() {
+        ordinalById.clear();
+        Arrays.fill(batches, null);
+        Arrays.fill(lowerIds, null);
+        freeOrdinals.clear();
+        nextOrdinal = 0;
+        postings.clear();
+        for (BatchIndex view : views.values()) view.clear();
+    }
+
+    /** Matching batches in the query's sort order. */
+    public synchronized List<WoodBatch> query(BatchQuery q) {
+        List<WoodBatch> out = new ArrayList<>();
+        String text = q.text;
+
+        IntList candidates = text.length() >= GRAM ? rarestPosting(text) : null;
+        if (candidates != null && candidates.size == 0) return out;
+
+        if (candidates != null && candidates.size * SORT_CANDIDATES_DIVISOR < ordinalById.size()) {
+            for (int i = 0; i < candidates.size; i++) {
+                int ord = candidates.values[i];
+                WoodBatch b = batches[ord];
+                if (lowerIds[ord].contains(text) && q.accepts(b)) out.add(b);
+            }
+            Collections.sort(out, q.sort.comparator);
+            return out;
+        }
+
+        boolean checkText = !text.isEmpty();
+        for (WoodBatch b : view(q.sort).asList()) {
+            if (!q.accepts(b)) continue;   // field compares first, they're cheaper than the id lookup
+            if (checkText && !containsIgnoreCase(b.getBatchId(), text)) continue;
+            out.add(b);
+        }
+        return out;
+    }
+
+    /**
+     * {@code id.toLowerCase().contains(lowerText)} without the lookup or the copy. Walking a view
+     * touches batches in sort order, not allocation order, so each extra dereference is a
+     * likely cache miss.
+     */
+    private static boolean containsIgnoreCase(String id, String lowerText) {
+        int n = lowerText.length();
+        for (int i = 0, last = id.length() - n; i <= last; i++) {
+            if (id.regionMatches(true, i, lowerText, 0, n)) return true;
+        }
+        return false;
+    }
+
+    // ---------- views ----------
+    private BatchIndex view(BatchSort sort) {
+        BatchIndex view = views.get(sort);
+        if (view == null) {
+            view = new BatchIndex(sort.comparator);
+            List<WoodBatch> all = new ArrayList<>(ordinalById.size());
+            for (int i = 0; i < nextOrdinal; i++) {
+                if (batches[i] != null) all.add(batches[i]);
+            }
+            view.replaceAll(all);
+            views.put(sort, view);
+        }
+        return view;
+    }
+
+    // ---------- trigrams ----------
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private void indexGrams(String lower, int ord) {
+        for (int i = 0; i + GRAM <= lower.length(); i++) {
+            Long g = gram(lower, i);
+            IntList list = postings.get(g);
+            if (list == null) {
+                list = new IntList();
+                postings.put(g, list);
+            }
+            list.addSorted(ord);   // no-op for a gram repeated within the same ID
+        }
+    }
+
+    private void unindexGrams(String lower, int ord) {
+        for (int i = 0; i + GRAM <= lower.length(); i++) {
+            Long g = gram(lower, i);
+            IntList list = postings.get(g);
+            if (list == null) continue;
+            list.removeSorted(ord);
+            if (list.size == 0) postings.remove(g);
+        }
+    }
+
+    /** Smallest posting list among the query's trigrams; empty if any trigram is unknown. */
+    private IntList rarestPosting(String text) {
+        IntList best = null;
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            IntList list = postings.get(gram(text, i));
+            if (list == null) return IntList.EMPTY;
+            if (best == null || list.size < best.size) best = list;
+        }
+        return best;
+    }
+
+    private int allocateOrdinal() {
+        if (freeOrdinals.size > 0) return freeOrdinals.values[--freeOrdinals.size];
+        if (nextOrdinal == batches.length) {
+            batches = Arrays.copyOf(batches, batches.length * 2);
+            lowerIds = Arrays.copyOf(lowerIds, lowerIds.length * 2);
+        }
+        return nextOrdinal++;
+    }
+
+    /** Growable int array; the posting lists keep it sorted. */
+    private static final class IntList {
+        static final IntList EMPTY = new IntList();
+
+        int[] values = new int[4];
+        int size;
+
+        void add(int v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        void addSorted(int v) {
+            int i = Arrays.binarySearch(values, 0, size, v);
+            if (i >= 0) return;
+            i = -(i + 1);
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            System.arraycopy(values, i, values, i + 1, size - i);
+            values[i] = v;
+            size++;
+        }
+
+        void removeSorted(int v) {
+            int i = Arrays.binarySearch(values, 0, size, v);
+            if (i < 0) return;
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            size--;
+        }
+
+        void clear() { size = 0; }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.drysync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Inventory search: case-insensitive substring match on the batch ID. */
+public final class BatchSearch {
+
+    private BatchSearch() {}
+
+    /** Trimmed, lower-cased form of what the user typed; "" means no filter. */
+    public static String normalize(String queryRaw) {
+        return queryRaw == null ? "" : queryRaw.trim().toLowerCase(Locale.getDefault());
+    }
+
+    /** @param query an already {@link #normalize normalized} query */
+    public static boolean matches(WoodBatch wb, String query) {
+        if (query.isEmpty()) return true;
+        String id = wb.getBatchId();
+        return id != null && id.toLowerCase(Locale.getDefault()).contains(query);
+    }
+
+    /** Matching batches in the order of {@code batches}. */
+    public static List<WoodBatch> filter(List<WoodBatch> batches, String query) {
+        List<WoodBatch> filtered = new ArrayList<>();
+        for (WoodBatch wb : batches) {
+            if (matches(wb, query)) filtered.add(wb);
+        }
+        return filtered;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.drysync;
+
+import java.util.Comparator;
+
+/** Inventory sort orders. Each one tie-breaks on batchId so it is a total order. */
+public enum BatchSort {
+    NEWEST_FIRST(BatchIndex.NEWEST_FIRST),
+    OLDEST_FIRST((a, b) -> {
+        int c = Long.compare(a.getArrivalDateMillis(), b.getArrivalDateMillis());
+        return c != 0 ? c : compareIds(a, b);
+    }),
+    MOST_REMAINING((a, b) -> {
+        int c = Integer.compare(b.getRemaining(), a.getRemaining());
+        return c != 0 ? c : BatchIndex.NEWEST_FIRST.compare(a, b);
+    }),
+    LEAST_REMAINING((a, b) -> {
+        int c = Integer.compare(a.getRemaining(), b.getRemaining());
+        return c != 0 ? c : BatchIndex.NEWEST_FIRST.compare(a, b);
+    });
+
+    public final Comparator<WoodBatch> comparator;
+
+    BatchSort(Comparator<WoodBatch> comparator) {
+        this.comparator = comparator;
+    }
+
+    private static int compareIds(WoodBatch a, WoodBatch b) {
+        String x = a.getBatchId(), y = b.getBatchId();
+        if (x == null) return y == null ? 0 : 1;
+        if (y == null) return -1;
+        return x.compareTo(y);
+    }
+}
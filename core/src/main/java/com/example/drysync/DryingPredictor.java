@@ -0,0 +1,159 @@
+package com.example.drysync;
+
+/**
+ * When one slot reaches its target moisture, fitted as the readings arrive.
+ *
+ * Wood dries towards its equilibrium moisture content E roughly exponentially:
+ * {@code M(t) = E + (M0 - E) * exp(-k t)}. With E fixed, {@code ln(M - E) = a - k t} is a straight
+ * line, fitted by recursive least squares: each sample updates the two coefficients and their 2x2
+ * covariance in constant time, and nothing is rescanned. Older samples fade with a time-based
+ * forgetting factor, so a kiln that changes pace is followed within about {@code memoryHours}.
+ *
+ * The band combines the residual scatter with the coefficients' covariance, about 95%
+ * (1.96 sigma) for the current level and the rate. A reading well above the fit (new wood
+ * loaded) starts the fit over. Not thread-safe.
+ */
+public final class DryingPredictor {
+
+    private static final double Z = 1.96;
+    private static final double HOUR_MS = 60 * 60 * 1000.0;
+    private static final double INITIAL_COVARIANCE = 1e4;
+    /** Fewer samples, or a shorter span, than this gives no estimate yet. */
+    private static final int MIN_SAMPLES = 10;
+    private static final double MIN_SPAN_HOURS = 0.5;
+    /** Moisture points above the fitted curve that count as a reload. */
+    private static final float RELOAD_JUMP = 5f;
+
+    /** Hours left until the target: most likely, and the band around it. */
+    public static final class Estimate {
+        public final double hours, lowHours, highHours;   // highHours may be infinite
+
+        Estimate(double hours, double lowHours, double highHours) {
+            this.hours = hours;
+            this.lowHours = lowHours;
+            this.highHours = highHours;
+        }
+
+        public boolean isDry() { return hours == 0; }
+    }
+
+    private final float targetMoisture, equilibriumMoisture;
+    private final double memoryHours;
+
+    // fit of y = a + b * t, t in hours since origin
+    private long origin;
+    private long lastTime;
+    private double a, b;
+    private double p00, p01, p11;          // covariance (symmetric)
+    private double weight, squaredError;   // forgetting-weighted residuals, for the noise variance
+    private int samples;
+    private float latest = Float.NaN;
+
+    public DryingPredictor(float targetMoisture, float equilibriumMoisture, double memoryHours) {
+        if (equilibriumMoisture >= targetMoisture) {
+            throw new IllegalArgumentException("equilibrium must be below the target");
+        }
+        this.targetMoisture = targetMoisture;
+        this.equilibriumMoisture = equilibriumMoisture;
+        this.memoryHours = memoryHours;
+        reset();
+    }
+
+    /** Forgets everything, e.g. when the slot is emptied. */
+    public void reset() {
+        samples = 0;
+        a = b = 0;
+        p00 = p11 = INITIAL_COVARIANCE;
+        p01 = 0;
+        weight = squaredError = 0;
+        latest = Float.NaN;
+    }
+
+    /** One moisture reading; readings at or below equilibrium only update the latest value. */
+    public void add(long timeMillis, float moisture) {
+        if (Float.isNaN(moisture)) return;
+        if (samples > 0 && timeMillis < lastTime) return;
+        if (samples >= MIN_SAMPLES && moisture > fitted(timeMillis) + RELOAD_JUMP) reset();
+        latest = moisture;
+        double excess = moisture - equilibriumMoisture;
+        if (excess <= 0) return;
+
+        if (samples == 0) {
+            origin = timeMillis;
+            lastTime = timeMillis;
+            a = Math.log(excess);
+        }
+        double t = (timeMillis - origin) / HOUR_MS;
+        double y = Math.log(excess);
+
+        // forget in proportion to the time since the last sample, not the sample count
+        double lambda = Math.exp(-(timeMillis - lastTime) / HOUR_MS / memoryHours);
+        lastTime = timeMillis;
+        p00 /= lambda;
+        p01 /= lambda;
+        p11 /= lambda;
+        weight *= lambda;
+        squaredError *= lambda;
+
+        // gain = P x / (1 + x' P x), x = (1, t)
+        double px0 = p00 + p01 * t;
+        double px1 = p01 + p11 * t;
+        double denominator = 1 + px0 + px1 * t;
+        double k0 = px0 / denominator, k1 = px1 / denominator;
+
+        double error = y - (a + b * t);
+        a += k0 * error;
+        b += k1 * error;
+
+        // P -= k (P x)'
+        p00 -= k0 * px0;
+        p01 -= k0 * px1;
+        p11 -= k1 * px1;
+
+        // a-priori errors overstate the noise while the fit is young; it's only used once settled
+        weight += 1;
+        squaredError += error * error / denominator;
+        samples++;
+    }
+
+    public int sampleCount() { return samples; }
+    public float latest() { return latest; }
+
+    /** Drying rate k, per hour; NaN before the first sample. */
+    public double ratePerHour() {
+        return samples == 0 ? Double.NaN : -b;
+    }
+
+    /** The fitted curve's moisture at {@code timeMillis}. */
+    public float fitted(long timeMillis) {
+        if (samples == 0) return Float.NaN;
+        double t = (timeMillis - origin) / HOUR_MS;
+        return (float) (equilibriumMoisture + Math.exp(a + b * t));
+    }
+
+    /**
+     * Hours from {@code nowMillis} until the target, or null while there's too little to go on or
+     * the fit isn't drying. A slot already at or below the target is dry (0 hours).
+     */
+    public Estimate estimate(long nowMillis) {
+        if (samples == 0) return null;
+        if (latest <= targetMoisture) return new Estimate(0, 0, 0);
+        if (samples < MIN_SAMPLES || (lastTime - origin) / HOUR_MS < MIN_SPAN_HOURS || b >= 0) return null;
+
+        double t = (nowMillis - origin) / HOUR_MS;
+        double goal = Math.log(targetMoisture - equilibriumMoisture);
+        double level = a + b * t;
+        double hours = (goal - level) / b;
+        if (hours <= 0) return new Estimate(0, 0, 0);   // the fit says dry; the next reading will tell
+
+        // standard errors: residual variance scaled by the covariance
+        double variance = weight > 2 ? squaredError / (weight - 2) : squaredError;
+        double levelSd = Math.sqrt(Math.max(0, variance * (p00 + 2 * p01 * t + p11 * t * t)));
+        double rateSd = Math.sqrt(Math.max(0, variance * p11));
+
+        double low = Math.max(0, (goal - (level - Z * levelSd)) / (b - Z * rateSd));
+        double slowest = b + Z * rateSd;
+        double high = slowest < 0 ? (goal - (level + Z * levelSd)) / slowest : Double.POSITIVE_INFINITY;
+        return new Estimate(hours, Math.min(low, hours), Math.max(high, hours));
+    }
+}
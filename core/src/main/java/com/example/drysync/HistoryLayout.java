@@ -0,0 +1,143 @@
+package com.example.drysync;
+
+/**
+ * Where sensor history lives in the Realtime Database, and which level a chart should read.
+ *
+ * <pre>
+ * history/raw/{series}/{yyyyMMddHH}/{mm}   = value            one node per hour, a child per minute
+ * history/hourly/{series}/{yyyyMMddHH}     = {min,max,avg,count}
+ * history/daily/{series}/{yyyyMMdd}        = {min,max,avg,count}
+ * </pre>
+ *
+ * Keys are fixed-width UTC timestamps, so key order is time order and a window is a plain
+ * {@code orderByKey().startAt(from).endAt(to)} range: only the buckets it touches are sent.
+ * Series names are the ones {@code SensorHistory} uses ("slot-3", "env-temperature", ...).
+ */
+public final class HistoryLayout {
+
+    public static final String ROOT = "history";
+
+    private static final long MINUTE = 60_000L, HOUR = 60 * MINUTE, DAY = 24 * HOUR;
+
+    public enum Level {
+        RAW("raw", MINUTE, HOUR),
+        HOURLY("hourly", HOUR, HOUR),
+        DAILY("daily", DAY, DAY);
+
+        /** Child of {@link #ROOT} holding this level. */
+        public final String node;
+        /** Time covered by one point. */
+        public final long stepMillis;
+        /** Time covered by one keyed node. */
+        public final long bucketMillis;
+
+        Level(String node, long stepMillis, long bucketMillis) {
+            this.node = node;
+            this.stepMillis = stepMillis;
+            this.bucketMillis = bucketMillis;
+        }
+
+        /** Key of the bucket holding {@code millis}. */
+        public String key(long millis) {
+            return this == DAILY ? dayKey(millis) : hourKey(millis);
+        }
+
+        /** Start of the bucket named {@code key}, or -1 if it isn't one of this level's keys. */
+        public long parseKey(String key) {
+            return this == DAILY ? parseDayKey(key) : parseHourKey(key);
+        }
+    }
+
+    private HistoryLayout() { }
+
+    /**
+     * The coarsest level that still gives at least {@code minPoints} points over [from, to];
+     * RAW if none does. A 7-day chart wanting ~100 points reads hourly rollups, a 3-month one
+     * daily, the last few hours raw minutes.
+     */
+    public static Level pick(long fromMillis, long toMillis, int minPoints) {
+        long span = Math.max(0, toMillis - fromMillis);
+        Level[] levels = Level.values();
+        for (int i = levels.length - 1; i > 0; i--) {
+            if (span / levels[i].stepMillis >= minPoints) return levels[i];
+        }
+        return Level.RAW;
+    }
+
+    // ---------- keys (UTC; no Calendar, these run per point) ----------
+
+    /** yyyyMMddHH */
+    public static String hourKey(long millis) {
+        long hour = Math.floorMod(millis, DAY) / HOUR;
+        return dayKey(millis) + two(hour);
+    }
+
+    /** yyyyMMdd */
+    public static String dayKey(long millis) {
+        long days = Math.floorDiv(millis, DAY);
+        // civil-from-days (H. Hinnant)
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long d = doy - (153 * mp + 2) / 5 + 1;
+        long m = mp < 10 ? mp + 3 : mp - 9;
+        long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+        return four(y) + two(m) + two(d);
+    }
+
+    /** mm: the child of a raw hour bucket. */
+    public static String minuteKey(long millis) {
+        return two(Math.floorMod(millis, HOUR) / MINUTE);
+    }
+
+    public static long parseHourKey(String key) {
+        if (key == null || key.length() != 10) return -1;
+        long day = parseDayKey(key.substring(0, 8));
+        int hour = digits(key, 8, 10);
+        if (day < 0 || hour < 0 || hour > 23) return -1;
+        return day + hour * HOUR;
+    }
+
+    public static long parseDayKey(String key) {
+        if (key == null || key.length() != 8) return -1;
+        int y = digits(key, 0, 4), m = digits(key, 4, 6), d = digits(key, 6, 8);
+        if (y < 0 || m < 1 || m > 12 || d < 1 || d > 31) return -1;
+        // days-from-civil (H. Hinnant)
+        long yy = m <= 2 ? y - 1 : y;
+        long era = Math.floorDiv(yy, 400);
+        long yoe = yy - era * 400;
+        long doy = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return (era * 146097 + doe - 719468) * DAY;
+    }
+
+    /** Minute offset inside an hour bucket from its "mm" key, or -1. */
+    public static long parseMinuteKey(String key) {
+        if (key == null || key.length() != 2) return -1;
+        int m = digits(key, 0, 2);
+        return m < 0 || m > 59 ? -1 : m * MINUTE;
+    }
+
+    private static int digits(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private static String two(long v) {
+        return v < 10 ? "0" + v : Long.toString(v);
+    }
+
+    private static String four(long v) {
+        String s = Long.toString(v);
+        while (s.length() < 4) s = "0" + s;
+        return s;
+    }
+}
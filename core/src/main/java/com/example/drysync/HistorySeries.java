@@ -0,0 +1,60 @@
+package com.example.drysync;
+
+import java.util.Arrays;
+
+/**
+ * Points of one series read at one {@link HistoryLayout.Level}, oldest first, in parallel
+ * primitive arrays. Raw points have min == max == avg and a count of 1.
+ */
+public final class HistorySeries {
+
+    public final HistoryLayout.Level level;
+    private long[] times;
+    private float[] mins, maxs, avgs;
+    private int[] counts;
+    private int size;
+
+    public HistorySeries(HistoryLayout.Level level, int capacity) {
+        this.level = level;
+        int c = Math.max(8, capacity);
+        times = new long[c];
+        mins = new float[c];
+        maxs = new float[c];
+        avgs = new float[c];
+        counts = new int[c];
+    }
+
+    public void addRaw(long timeMillis, float value) {
+        if (Float.isNaN(value)) return;
+        add(timeMillis, value, value, value, 1);
+    }
+
+    public void add(long timeMillis, Rollup r) {
+        if (r == null || r.isEmpty()) return;
+        add(timeMillis, r.getMin(), r.getMax(), r.getAverage(), r.getCount());
+    }
+
+    private void add(long t, float min, float max, float avg, int count) {
+        if (size == times.length) {
+            int c = size * 2;
+            times = Arrays.copyOf(times, c);
+            mins = Arrays.copyOf(mins, c);
+            maxs = Arrays.copyOf(maxs, c);
+            avgs = Arrays.copyOf(avgs, c);
+            counts = Arrays.copyOf(counts, c);
+        }
+        times[size] = t;
+        mins[size] = min;
+        maxs[size] = max;
+        avgs[size] = avg;
+        counts[size] = count;
+        size++;
+    }
+
+    public int size() { return size; }
+    public long time(int i) { return times[i]; }
+    public float min(int i) { return mins[i]; }
+    public float max(int i) { return maxs[i]; }
+    public float average(int i) { return avgs[i]; }
+    public int count(int i) { return counts[i]; }
+}
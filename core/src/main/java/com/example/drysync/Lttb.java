@@ -0,0 +1,67 @@
+package com.example.drysync;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013): keeps the first and last point
+ * and, from each of {@code threshold - 2} equal buckets in between, the point forming the largest
+ * triangle with the previously kept point and the next bucket's average. Peaks and dips survive,
+ * unlike with plain averaging, so a chart of {@code width} points looks like the full series.
+ */
+public final class Lttb {
+
+    private Lttb() { }
+
+    /**
+     * Downsamples {@code in[from, to)} to at most {@code threshold} points, appended to {@code out}
+     * (which must not be {@code in}). Ranges already small enough are copied as they are.
+     */
+    public static void downsample(PointBuffer in, int from, int to, int threshold, PointBuffer out) {
+        int n = to - from;
+        if (n <= 0) return;
+        if (threshold >= n || threshold < 3) {
+            for (int i = from; i < to; i++) out.add(in.time(i), in.value(i));
+            return;
+        }
+
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = from;   // last kept point
+        out.add(in.time(a), in.value(a));
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // average of the next bucket (the last point for the final bucket)
+            int nextStart = from + (int) ((bucket + 1) * every) + 1;
+            int nextEnd = Math.min(from + (int) ((bucket + 2) * every) + 1, to);
+            double avgT = 0, avgV = 0;
+            int avgN = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgT += in.time(i);
+                avgV += in.value(i);
+                avgN++;
+            }
+            if (avgN == 0) {
+                avgT = in.time(to - 1);
+                avgV = in.value(to - 1);
+            } else {
+                avgT /= avgN;
+                avgV /= avgN;
+            }
+
+            // point of this bucket with the largest triangle (a, point, average)
+            int start = from + (int) (bucket * every) + 1;
+            int end = from + (int) ((bucket + 1) * every) + 1;
+            double at = in.time(a), av = in.value(a);
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((at - avgT) * (in.value(i) - av)
+                        - (at - in.time(i)) * (avgV - av));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            out.add(in.time(chosen), in.value(chosen));
+            a = chosen;
+        }
+        out.add(in.time(to - 1), in.value(to - 1));
+    }
+}
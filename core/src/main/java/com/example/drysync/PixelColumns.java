@@ -0,0 +1,83 @@
+package com.example.drysync;
+
+import java.util.Arrays;
+
+/**
+ * First, min, max and last value of a time window per horizontal pixel: everything a line chart
+ * of that width can show, however many points fall into the window. Drawing first, min, max and
+ * last for each column looks the same as drawing every point, but costs four vertices per pixel
+ * instead of one per point. Arrays are sized once per width and reused.
+ */
+public final class PixelColumns {
+
+    private int columns;
+    private int[] count = new int[0];
+    private float[] first = new float[0], last = new float[0], min = new float[0], max = new float[0];
+    private float overallMin, overallMax;
+
+    /** Sets the number of columns; only allocates when it grows. */
+    public void resize(int columns) {
+        if (columns > count.length) {
+            count = new int[columns];
+            first = new float[columns];
+            last = new float[columns];
+            min = new float[columns];
+            max = new float[columns];
+        }
+        this.columns = columns;
+    }
+
+    /** Aggregates {@code points[from, to)} over [windowFrom, windowTo); points outside are skipped. */
+    public void aggregate(PointBuffer points, int from, int to, long windowFrom, long windowTo) {
+        Arrays.fill(count, 0, columns, 0);
+        overallMin = Float.MAX_VALUE;
+        overallMax = -Float.MAX_VALUE;
+        if (columns == 0 || windowTo <= windowFrom) return;
+        double scale = columns / (double) (windowTo - windowFrom);
+        int i = from;
+        while (i < to && points.time(i) < windowFrom) i++;
+        // one column at a time: the run of points up to its end time folds in local variables
+        while (i < to) {
+            long t = points.time(i);
+            if (t >= windowTo) break;
+            int c = Math.min(columns - 1, (int) ((t - windowFrom) * scale));
+            long end = c == columns - 1 ? windowTo : Math.max(t + 1, windowFrom + (long) Math.ceil((c + 1) / scale));
+            float v = points.value(i++);
+            float f = v, lo = v, hi = v;
+            int n = 1;
+            while (i < to && (t = points.time(i)) < end && t < windowTo) {
+                v = points.value(i++);
+                if (v < lo) lo = v;
+                if (v > hi) hi = v;
+                n++;
+            }
+            if (count[c] == 0) {
+                first[c] = f;
+                min[c] = lo;
+                max[c] = hi;
+            } else {
+                // rounding at a column edge can start a second run in the same column
+                if (lo < min[c]) min[c] = lo;
+                if (hi > max[c]) max[c] = hi;
+            }
+            count[c] += n;
+            last[c] = v;
+            if (lo < overallMin) overallMin = lo;
+            if (hi > overallMax) overallMax = hi;
+        }
+    }
+
+    public int columns() { return columns; }
+    public boolean isEmpty(int c) { return count[c] == 0; }
+    public int count(int c) { return count[c]; }
+    public float first(int c) { return first[c]; }
+    public float last(int c) { return last[c]; }
+    public float min(int c) { return min[c]; }
+    public float max(int c) { return max[c]; }
+
+    /** Smallest value aggregated; {@code Float.MAX_VALUE} if none. */
+    public float min() { return overallMin; }
+
+    /** Largest value aggregated; {@code -Float.MAX_VALUE} if none. */
+    public float max() { return overallMax; }
+}
@@ -0,0 +1,66 @@
+package com.example.drysync;
+
+import java.util.Arrays;
+
+/** Growable (time, value) pairs in two primitive arrays, ordered by time; meant to be reused. */
+public final class PointBuffer {
+
+    private long[] times;
+    private float[] values;
+    private int size;
+
+    public PointBuffer() {
+        this(64);
+    }
+
+    public PointBuffer(int capacity) {
+        int c = Math.max(8, capacity);
+        times = new long[c];
+        values = new float[c];
+    }
+
+    public void add(long timeMillis, float value) {
+        if (size == times.length) {
+            int c = size * 2;
+            times = Arrays.copyOf(times, c);
+            values = Arrays.copyOf(values, c);
+        }
+        times[size] = timeMillis;
+        values[size] = value;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** Replaces the contents with {@code other}'s. */
+    public void copyFrom(PointBuffer other) {
+        size = 0;
+        if (times.length < other.size) {
+            times = new long[other.size];
+            values = new float[other.size];
+        }
+        System.arraycopy(other.times, 0, times, 0, other.size);
+        System.arraycopy(other.values, 0, values, 0, other.size);
+        size = other.size;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public long time(int i) { return times[i]; }
+    public float value(int i) { return values[i]; }
+    public long firstTime() { return times[0]; }
+    public long lastTime() { return times[size - 1]; }
+
+    /** Index of the first point at or after {@code timeMillis} ({@link #size()} if none). */
+    public int indexAtOrAfter(long timeMillis) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < timeMillis) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
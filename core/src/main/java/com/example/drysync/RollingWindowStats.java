@@ -0,0 +1,177 @@
+package com.example.drysync;
+
+/**
+ * Streaming min / max / average over a sliding time window, plus the change against
+ * {@code deltaMillis} ago, for one sensor series (temperature, humidity, a slot's moisture...).
+ *
+ * Samples are folded into fixed buckets of {@code resolutionMillis} kept in primitive ring
+ * buffers, so memory is bounded by window / resolution no matter how often the sensor reports.
+ * Rolling min and max come from two monotonic deques over the buckets: each bucket is pushed and
+ * popped at most once, so {@link #add} is O(1) amortized and allocates nothing.
+ *
+ * A reading holds until a newer one arrives: the newest bucket never expires, so a sensor that
+ * stopped changing still has stats. Samples older than the newest are folded into the newest
+ * bucket. Not thread-safe.
+ */
+public final class RollingWindowStats {
+
+    private final long windowMillis, resolutionMillis, deltaMillis;
+    private final int capacity;
+
+    // ---- buckets: ring indexed by sequence number % capacity; live ones are [head, tail) ----
+    private final long[] start;
+    private final float[] min, max, last;
+    private final double[] sum;
+    private final int[] count;
+    private long head, tail;
+
+    // ---- monotonic deques of bucket sequence numbers: mins increasing, maxes decreasing ----
+    private final long[] minQ, maxQ;
+    private int minHead, minSize, maxHead, maxSize;
+
+    private double windowSum;
+    private int windowCount;
+    private long latestTime = Long.MIN_VALUE;
+    private float latest = Float.NaN;
+    private long deltaSeq = -1;   // newest bucket starting at or before latestTime - deltaMillis
+
+    public RollingWindowStats(long windowMillis, long resolutionMillis, long deltaMillis) {
+        if (windowMillis <= 0 || resolutionMillis <= 0) throw new IllegalArgumentException("window/resolution");
+        this.windowMillis = windowMillis;
+        this.resolutionMillis = resolutionMillis;
+        this.deltaMillis = deltaMillis;
+        this.capacity = (int) Math.min(Integer.MAX_VALUE - 8, windowMillis / resolutionMillis + 2);
+        start = new long[capacity];
+        min = new float[capacity];
+        max = new float[capacity];
+        last = new float[capacity];
+        sum = new double[capacity];
+        count = new int[capacity];
+        minQ = new long[capacity];
+        maxQ = new long[capacity];
+    }
+
+    /** Adds one reading; NaN is ignored. */
+    public void add(long timeMillis, float value) {
+        if (Float.isNaN(value)) return;
+        if (timeMillis < latestTime) timeMillis = latestTime;   // late sample: counts as "now"
+
+        long bucketStart = timeMillis - Math.floorMod(timeMillis, resolutionMillis);
+        if (tail == head || start[slot(tail - 1)] != bucketStart) openBucket(bucketStart, value);
+
+        int b = slot(tail - 1);
+        sum[b] += value;
+        count[b]++;
+        last[b] = value;
+        windowSum += value;
+        windowCount++;
+        if (value < min[b]) {
+            min[b] = value;
+            pushMin(tail - 1);
+        }
+        if (value > max[b]) {
+            max[b] = value;
+            pushMax(tail - 1);
+        }
+
+        latestTime = timeMillis;
+        latest = value;
+        expire(timeMillis);
+    }
+
+    /** Drops whatever slid out of the window by {@code nowMillis} without adding a reading. */
+    public void advanceTo(long nowMillis) {
+        if (nowMillis > latestTime) expire(nowMillis);
+    }
+
+    public void clear() {
+        head = tail = 0;
+        minHead = minSize = maxHead = maxSize = 0;
+        windowSum = 0;
+        windowCount = 0;
+        latestTime = Long.MIN_VALUE;
+        latest = Float.NaN;
+        deltaSeq = -1;
+    }
+
+    // ---------- queries (NaN when empty) ----------
+    public boolean isEmpty() { return windowCount == 0; }
+    public int sampleCount() { return windowCount; }
+    public long getWindowMillis() { return windowMillis; }
+
+    public float min() { return minSize == 0 ? Float.NaN : min[slot(minQ[minHead])]; }
+    public float max() { return maxSize == 0 ? Float.NaN : max[slot(maxQ[maxHead])]; }
+    public float average() { return windowCount == 0 ? Float.NaN : (float) (windowSum / windowCount); }
+    public float latest() { return latest; }
+
+    /** Time of the newest reading, or {@link Long#MIN_VALUE} if there is none. */
+    public long latestTime() { return latestTime; }
+
+    /** Newest reading minus the one current {@code deltaMillis} earlier; NaN if the history is shorter. */
+    public float delta() {
+        if (deltaSeq < head || isEmpty()) return Float.NaN;
+        return latest - last[slot(deltaSeq)];
+    }
+
+    // ---------- buckets ----------
+    private int slot(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    private void openBucket(long bucketStart, float value) {
+        if (tail - head == capacity) evictOldest();
+        int b = slot(tail);
+        start[b] = bucketStart;
+        min[b] = value;
+        max[b] = value;
+        last[b] = value;
+        sum[b] = 0;
+        count[b] = 0;
+        tail++;
+        pushMin(tail - 1);
+        pushMax(tail - 1);
+    }
+
+    private void expire(long nowMillis) {
+        long cutoff = nowMillis - windowMillis;
+        // the newest bucket stays: its reading is still the current one
+        while (tail - head > 1 && start[slot(head)] + resolutionMillis <= cutoff) evictOldest();
+
+        long deltaTarget = latestTime - deltaMillis;
+        if (deltaSeq < head) deltaSeq = head - 1;
+        while (deltaSeq + 1 < tail && start[slot(deltaSeq + 1)] <= deltaTarget) deltaSeq++;
+    }
+
+    private void evictOldest() {
+        int b = slot(head);
+        windowSum -= sum[b];
+        windowCount -= count[b];
+        if (minSize > 0 && minQ[minHead] == head) { minHead = (minHead + 1) % capacity; minSize--; }
+        if (maxSize > 0 && maxQ[maxHead] == head) { maxHead = (maxHead + 1) % capacity; maxSize--; }
+        head++;
+    }
+
+    // ---------- deques ----------
+    // seq is always the newest bucket: drop it if already queued, then everything it dominates
+    private void pushMin(long seq) {
+        float v = min[slot(seq)];
+        while (minSize > 0) {
+            long back = minQ[(minHead + minSize - 1) % capacity];
+            if (back != seq && min[slot(back)] < v) break;
+            minSize--;
+        }
+        minQ[(minHead + minSize) % capacity] = seq;
+        minSize++;
+    }
+
+    private void pushMax(long seq) {
+        float v = max[slot(seq)];
+        while (maxSize > 0) {
+            long back = maxQ[(maxHead + maxSize - 1) % capacity];
+            if (back != seq && max[slot(back)] > v) break;
+            maxSize--;
+        }
+        maxQ[(maxHead + maxSize) % capacity] = seq;
+        maxSize++;
+    }
+}
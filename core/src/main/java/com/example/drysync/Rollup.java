@@ -0,0 +1,64 @@
+package com.example.drysync;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** min / max / avg / count of the readings in one history bucket (see {@link HistoryLayout}). */
+public final class Rollup {
+
+    public static final String MIN = "min", MAX = "max", AVG = "avg", COUNT = "count";
+
+    private float min = Float.NaN, max = Float.NaN;
+    private double sum;
+    private int count;
+
+    public void add(float value) {
+        if (Float.isNaN(value)) return;
+        if (count == 0 || value < min) min = value;
+        if (count == 0 || value > max) max = value;
+        sum += value;
+        count++;
+    }
+
+    /** Folds in another bucket's rollup (e.g. hours into a day). */
+    public void merge(Rollup o) {
+        if (o == null || o.count == 0) return;
+        if (count == 0 || o.min < min) min = o.min;
+        if (count == 0 || o.max > max) max = o.max;
+        sum += o.sum;
+        count += o.count;
+    }
+
+    public float getMin() { return min; }
+    public float getMax() { return max; }
+    public float getAverage() { return count == 0 ? Float.NaN : (float) (sum / count); }
+    public int getCount() { return count; }
+    public boolean isEmpty() { return count == 0; }
+
+    // ---------- mapping ----------
+    public Map<String, Object> encode() {
+        Map<String, Object> m = new HashMap<>();
+        m.put(MIN, (double) min);
+        m.put(MAX, (double) max);
+        m.put(AVG, (double) getAverage());
+        m.put(COUNT, count);
+        return m;
+    }
+
+    /** Reads a rollup node ({@code snapshot.getValue()}); null if it isn't one. */
+    public static Rollup decode(Object raw) {
+        if (!(raw instanceof Map)) return null;
+        Map<?, ?> m = (Map<?, ?>) raw;
+        int count = WoodBatchCodec.asInt(m.get(COUNT), 0);
+        float avg = SlotReading.asValue(m.get(AVG));
+        if (count <= 0 || Float.isNaN(avg)) return null;
+        Rollup r = new Rollup();
+        r.min = SlotReading.asValue(m.get(MIN));
+        r.max = SlotReading.asValue(m.get(MAX));
+        if (Float.isNaN(r.min)) r.min = avg;
+        if (Float.isNaN(r.max)) r.max = avg;
+        r.count = count;
+        r.sum = (double) avg * count;
+        return r;
+    }
+}
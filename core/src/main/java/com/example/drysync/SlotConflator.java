@@ -0,0 +1,97 @@
+package com.example.drysync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Conflates slot readings between two UI flushes: only the newest reading per slot is kept, and
+ * readings that wouldn't visibly differ from what was last flushed are dropped.
+ *
+ * "Visibly" means: same status and a moisture value within {@code epsilon} of the flushed one.
+ * The comparison is always against the last flushed reading, never the previous raw one, so a
+ * slow drift still gets through once it adds up to epsilon. Not thread-safe.
+ */
+public final class SlotConflator {
+
+    private final float epsilon;
+    private final Map<Integer, SlotReading> shown = new TreeMap<>();     // last flushed, by slot
+    private final Map<Integer, SlotReading> pending = new TreeMap<>();   // waiting for the next flush
+    private final Set<Integer> vanished = new HashSet<>();               // pending removals
+
+    public SlotConflator(float epsilon) {
+        this.epsilon = Math.max(0f, epsilon);
+    }
+
+    /** Queues {@code next} for the next flush; returns true if anything is waiting to be flushed. */
+    public boolean offer(SlotReading next) {
+        int slot = next.getSlot();
+        vanished.remove(slot);
+        if (visiblyDiffers(shown.get(slot), next)) {
+            pending.put(slot, next);
+        } else {
+            // back to (about) what's on screen: an update still waiting is obsolete
+            pending.remove(slot);
+        }
+        return hasPending();
+    }
+
+    /**
+     * Queues the slot's removal: drained as an empty reading, after which {@link #shown(int)}
+     * is null for it.
+     */
+    public boolean remove(int slot) {
+        if (shown.containsKey(slot)) {
+            pending.put(slot, new SlotReading(slot, null, Float.NaN));
+            vanished.add(slot);
+        } else {
+            pending.remove(slot);   // pending but never shown: nothing to take back
+        }
+        return hasPending();
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /** Readings to show now, ordered by slot; they become the new baseline. */
+    public List<SlotReading> drain() {
+        if (pending.isEmpty()) return Collections.emptyList();
+        List<SlotReading> out = new ArrayList<>(pending.values());
+        for (SlotReading r : out) {
+            if (vanished.contains(r.getSlot())) shown.remove(r.getSlot());
+            else shown.put(r.getSlot(), r);
+        }
+        pending.clear();
+        vanished.clear();
+        return out;
+    }
+
+    /** Last flushed readings ordered by slot. */
+    public Collection<SlotReading> shown() {
+        return Collections.unmodifiableCollection(shown.values());
+    }
+
+    public SlotReading shown(int slot) {
+        return shown.get(slot);
+    }
+
+    public void clear() {
+        shown.clear();
+        pending.clear();
+        vanished.clear();
+    }
+
+    private boolean visiblyDiffers(SlotReading current, SlotReading next) {
+        if (current == null) return true;
+        String a = current.getStatus(), b = next.getStatus();
+        if (a == null ? b != null : !a.equals(b)) return true;
+        if (current.hasValue() != next.hasValue()) return true;
+        return current.hasValue() && Math.abs(current.getValue() - next.getValue()) >= epsilon;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.drysync;
+
+/** Home screen sensor tiles: how many slots are active / inactive / complete / drying. */
+public final class SlotCounts {
+    public final int active, inactive, complete, drying;
+
+    private SlotCounts(int active, int inactive, int complete, int drying) {
+        this.active = active;
+        this.inactive = inactive;
+        this.complete = complete;
+        this.drying = drying;
+    }
+
+    public static SlotCounts of(Iterable<SlotReading> slots) {
+        int active = 0, inactive = 0, complete = 0, drying = 0;
+
+        for (SlotReading slot : slots) {
+            if (slot.isInactive()) {
+                inactive++;
+            } else if (slot.isComplete()) {
+                complete++;
+            } else {
+                // any other value means it's currently active and still drying
+                active++;
+                drying++;
+            }
+        }
+        return new SlotCounts(active, inactive, complete, drying);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.drysync;
+
+import java.util.Locale;
+
+/** Immutable view of one /Sensors/{slot} node (Status + Value). */
+public final class SlotReading {
+    private final int slot;
+    private final String status;   // raw status as written by the sensor ("Inactive", "Complete", ...)
+    private final float value;     // moisture %, NaN when missing or unparsable
+
+    public SlotReading(int slot, String status, float value) {
+        this.slot = slot;
+        this.status = status;
+        this.value = value;
+    }
+
+    public int getSlot() { return slot; }
+    public String getStatus() { return status; }
+    public float getValue() { return value; }
+    public boolean hasValue() { return !Float.isNaN(value); }
+
+    public boolean isInactive() { return "inactive".equals(normalizedStatus()); }
+    public boolean isComplete() { return "complete".equals(normalizedStatus()); }
+
+    // anything that's not Inactive/Complete counts as active + drying
+    public boolean isDrying() { return !isInactive() && !isComplete(); }
+
+    private String normalizedStatus() {
+        return status == null ? "" : status.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ---------- decoding (tolerant: numbers may arrive as strings) ----------
+    public static String asStatus(Object raw) {
+        return raw == null ? null : String.valueOf(raw);
+    }
+
+    public static float asValue(Object raw) {
+        if (raw instanceof Number) return ((Number) raw).floatValue();
+        if (raw instanceof String) {
+            try { return Float.parseFloat((String) raw); } catch (NumberFormatException ignored) {}
+        }
+        return Float.NaN;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SlotReading)) return false;
+        SlotReading r = (SlotReading) o;
+        return slot == r.slot
+                && Float.floatToIntBits(value) == Float.floatToIntBits(r.value)
+                && (status == null ? r.status == null : status.equals(r.status));
+    }
+
+    @Override
+    public int hashCode() {
+        int h = slot;
+        h = 31 * h + (status == null ? 0 : status.hashCode());
+        h = 31 * h + Float.floatToIntBits(value);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "SlotReading{" + slot + ", " + status + ", " + value + "}";
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.drysync;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * One memory-mapped, append-only segment file of a {@link TimeSeriesStore} series.
+ *
+ * Points are Gorilla-encoded: timestamps (whole seconds) as delta-of-delta in 1 / 9 / 12 / 16 /
+ * 36 bit buckets, values as the XOR against the previous float with leading/trailing-zero
+ * windows. A regular per-minute series with a steady value costs 2 bits per point.
+ *
+ * The 64-byte header holds the point count, the bit length and the encoder state, so an
+ * existing segment can be re-opened and appended to. Header fields are written after the data
+ * bits, so a crash mid-append loses at most that point. Sealing trims the file to its data.
+ */
+final class TimeSeriesSegment {
+
+    private static final int MAGIC = 0x44535453;   // "DSTS"
+    private static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    private static final int INITIAL_BYTES = 4096;
+    private static final int MAX_POINT_BITS = 36 + 2 + 5 + 5 + 32;
+
+    // ---- header offsets ----
+    private static final int H_MAGIC = 0, H_VERSION = 4, H_PERIOD = 8, H_COUNT = 16, H_SEALED = 20,
+            H_BITS = 24, H_FIRST = 32, H_LAST = 40, H_DELTA = 48, H_VALUE = 52, H_LEADING = 56, H_TRAILING = 57;
+
+    interface Visitor {
+        void accept(long timeSeconds, float value);
+    }
+
+    final File file;
+    final long period;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer buf;
+
+    // encoder state (mirrors the header)
+    private int count;
+    private boolean sealed;
+    private long bits;
+    private long firstTime, lastTime;
+    private int lastDelta, lastValueBits;
+    private int lastLeading = -1, lastTrailing;
+
+    private TimeSeriesSegment(File file, long period) {
+        this.file = file;
+        this.period = period;
+    }
+
+    /** Opens {@code file} for appending, creating an empty segment if it doesn't exist. */
+    static TimeSeriesSegment openForAppend(File file, long period) throws IOException {
+        TimeSeriesSegment s = new TimeSeriesSegment(file, period);
+        boolean fresh = !file.exists() || file.length() < HEADER_BYTES;
+        s.raf = new RandomAccessFile(file, "rw");
+        s.channel = s.raf.getChannel();
+        long size = Math.max(INITIAL_BYTES, s.channel.size());
+        s.buf = s.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (fresh) {
+            s.buf.putInt(H_MAGIC, MAGIC);
+            s.buf.putInt(H_VERSION, VERSION);
+            s.buf.putLong(H_PERIOD, period);
+            s.writeHeader();
+        } else {
+            s.readHeader(s.buf);
+        }
+        return s;
+    }
+
+    /** Reads a segment's points in [from, to] without opening it for writes. */
+    static void scan(File file, long fromSeconds, long toSeconds, Visitor visitor) throws IOException {
+        try (RandomAccessFile r = new RandomAccessFile(file, "r"); FileChannel ch = r.getChannel()) {
+            if (ch.size() < HEADER_BYTES) return;
+            MappedByteBuffer ro = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            TimeSeriesSegment s = new TimeSeriesSegment(file, -1);
+            s.readHeader(ro);
+            decode(ro, s.count, s.bits, s.firstTime, fromSeconds, toSeconds, visitor);
+        }
+    }
+
+    /** True if the file's header says it was sealed (trimmed, no more appends). */
+    static boolean isSealed(File file) throws IOException {
+        try (RandomAccessFile r = new RandomAccessFile(file, "r")) {
+            if (r.length() < HEADER_BYTES) return false;
+            r.seek(H_SEALED);
+            return r.readInt() != 0;
+        }
+    }
+
+    // ---------- writing ----------
+    int count() { return count; }
+    boolean sealed() { return sealed; }
+    long lastTime() { return lastTime; }
+
+    /** Appends a point; returns false for one older than the last point. */
+    boolean append(long timeSeconds, float value) throws IOException {
+        if (sealed) throw new IllegalStateException("sealed: " + file);
+        if (count > 0 && timeSeconds < lastTime) return false;
+        ensureCapacity(bits + MAX_POINT_BITS);
+
+        int valueBits = Float.floatToRawIntBits(value);
+        if (count == 0) {
+            firstTime = timeSeconds;
+            bits = writeBits(buf, bits, valueBits & 0xFFFFFFFFL, 32);
+        } else {
+            int delta = (int) (timeSeconds - lastTime);
+            long dod = (long) delta - lastDelta;
+            bits = writeTime(buf, bits, dod);
+            bits = writeValue(valueBits);
+            lastDelta = delta;
+        }
+        lastTime = timeSeconds;
+        lastValueBits = valueBits;
+        count++;
+        writeHeader();
+        return true;
+    }
+
+    /** Trims the file to its data and stops appends. The segment is closed afterwards. */
+    void seal() throws IOException {
+        if (!sealed) {
+            sealed = true;
+            writeHeader();
+            buf.force();
+        }
+        long used = HEADER_BYTES + (bits + 7) / 8;
+        buf = null;
+        channel.truncate(used);
+        close();
+    }
+
+    /** Allows appends again on a sealed segment opened with {@link #openForAppend}. */
+    void unseal() {
+        if (!sealed) return;
+        sealed = false;
+        writeHeader();
+    }
+
+    void flush() {
+        if (buf != null) buf.force();
+    }
+
+    void close() throws IOException {
+        buf = null;
+        if (raf != null) raf.close();
+        raf = null;
+        channel = null;
+    }
+
+    /** Points of this (open) segment in [from, to]. */
+    void scanOpen(long fromSeconds, long toSeconds, Visitor visitor) {
+        decode(buf, count, bits, firstTime, fromSeconds, toSeconds, visitor);
+    }
+
+    private long writeTime(ByteBuffer b, long pos, long dod) {
+        if (dod == 0) return writeBits(b, pos, 0, 1);
+        if (dod >= -63 && dod <= 64) return writeBits(b, pos, (0b10L << 7) | ((dod + 63) & 0x7F), 9);
+        if (dod >= -255 && dod <= 256) return writeBits(b, pos, (0b110L << 9) | ((dod + 255) & 0x1FF), 12);
+        if (dod >= -2047 && dod <= 2048) return writeBits(b, pos, (0b1110L << 12) | ((dod + 2047) & 0xFFF), 16);
+        return writeBits(b, pos, (0b1111L << 32) | (dod & 0xFFFFFFFFL), 36);
+    }
+
+    private long writeValue(int valueBits) {
+        int xor = valueBits ^ lastValueBits;
+        if (xor == 0) return writeBits(buf, bits, 0, 1);
+
+        int leading = Integer.numberOfLeadingZeros(xor);
+        int trailing = Integer.numberOfTrailingZeros(xor);
+        long pos = bits;
+        if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+            // fits the previous window: '10' + the window
+            int len = 32 - lastLeading - lastTrailing;
+            pos = writeBits(buf, pos, 0b10, 2);
+            return writeBits(buf, pos, (xor >>> lastTrailing) & mask(len), len);
+        }
+        // '11' + 5 bits leading + 5 bits (length - 1) + the meaningful bits
+        int len = 32 - leading - trailing;
+        pos = writeBits(buf, pos, (0b11L << 10) | ((long) leading << 5) | (len - 1), 12);
+        lastLeading = leading;
+        lastTrailing = trailing;
+        return writeBits(buf, pos, (xor >>> trailing) & mask(len), len);
+    }
+
+    private void ensureCapacity(long bitsNeeded) throws IOException {
+        long bytes = HEADER_BYTES + (bitsNeeded + 7) / 8 + 8;
+        if (bytes <= buf.capacity()) return;
+        long size = buf.capacity();
+        while (size < bytes) size *= 2;
+        buf.force();
+        buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void writeHeader() {
+        buf.putInt(H_COUNT, count);
+        buf.putInt(H_SEALED, sealed ? 1 : 0);
+        buf.putLong(H_BITS, bits);
+        buf.putLong(H_FIRST, firstTime);
+        buf.putLong(H_LAST, lastTime);
+        buf.putInt(H_DELTA, lastDelta);
+        buf.putInt(H_VALUE, lastValueBits);
+        buf.put(H_LEADING, (byte) lastLeading);
+        buf.put(H_TRAILING, (byte) lastTrailing);
+    }
+
+    private void readHeader(ByteBuffer b) throws IOException {
+        if (b.getInt(H_MAGIC) != MAGIC || b.getInt(H_VERSION) != VERSION) {
+            throw new IOException("Not a time-series segment: " + file);
+        }
+        count = b.getInt(H_COUNT);
+        sealed = b.getInt(H_SEALED) != 0;
+        bits = b.getLong(H_BITS);
+        firstTime = b.getLong(H_FIRST);
+        lastTime = b.getLong(H_LAST);
+        lastDelta = b.getInt(H_DELTA);
+        lastValueBits = b.getInt(H_VALUE);
+        lastLeading = b.get(H_LEADING);
+        lastTrailing = b.get(H_TRAILING);
+    }
+
+    // ---------- decoding ----------
+    private static void decode(ByteBuffer b, int count, long bitLength, long firstTime,
+                               long from, long to, Visitor visitor) {
+        if (count == 0 || firstTime > to) return;
+        BitReader in = new BitReader(b, bitLength);
+        long time = firstTime;
+        int delta = 0;
+        int value = (int) in.read(32);
+        int leading = 0, trailing = 0;
+        if (time >= from) visitor.accept(time, Float.intBitsToFloat(value));
+
+        for (int i = 1; i < count; i++) {
+            // timestamp
+            long dod;
+            if (in.read(1) == 0) dod = 0;
+            else if (in.read(1) == 0) dod = in.read(7) - 63;
+            else if (in.read(1) == 0) dod = in.read(9) - 255;
+            else if (in.read(1) == 0) dod = in.read(12) - 2047;
+            else dod = (int) in.read(32);
+            delta += (int) dod;
+            time += delta;
+
+            // value
+            if (in.read(1) != 0) {
+                if (in.read(1) != 0) {
+                    leading = (int) in.read(5);
+                    int len = (int) in.read(5) + 1;
+                    trailing = 32 - leading - len;
+                }
+                int len = 32 - leading - trailing;
+                value ^= (int) (in.read(len) << trailing);
+            }
+
+            if (time > to) return;
+            if (time >= from) visitor.accept(time, Float.intBitsToFloat(value));
+        }
+    }
+
+    private static long mask(int len) {
+        return len == 64 ? -1L : (1L << len) - 1;
+    }
+
+    /** Writes the low {@code n} bits of {@code v} (MSB first) at bit {@code pos}; returns the new pos. */
+    private static long writeBits(ByteBuffer b, long pos, long v, int n) {
+        while (n > 0) {
+            int index = HEADER_BYTES + (int) (pos >>> 3);
+            int free = 8 - (int) (pos & 7);
+            int take = Math.min(free, n);
+            int chunk = (int) ((v >>> (n - take)) & ((1 << take) - 1));
+            // keep the bits before pos; anything after it is left over from an interrupted append
+            int cur = free == 8 ? 0 : b.get(index) & (0xFF << free);
+            b.put(index, (byte) (cur | (chunk << (free - take))));
+            pos += take;
+            n -= take;
+        }
+        return pos;
+    }
+
+    private static final class BitReader {
+        private final ByteBuffer b;
+        private final long limit;
+        private long pos;
+
+        BitReader(ByteBuffer b, long limit) {
+            this.b = b;
+            this.limit = limit;
+        }
+
+        long read(int n) {
+            if (pos + n > limit) throw new IllegalStateException("segment truncated");
+            long v = 0;
+            while (n > 0) {
+                int index = HEADER_BYTES + (int) (pos >>> 3);
+                int avail = 8 - (int) (pos & 7);
+                int take = Math.min(avail, n);
+                int cur = b.get(index) & 0xFF;
+                int chunk = (cur >>> (avail - take)) & ((1 << take) - 1);
+                v = (v << take) | chunk;
+                pos += take;
+                n -= take;
+            }
+            return v;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.drysync;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Local append-only history of sensor readings, one series per slot / environment metric.
+ *
+ * Each series is a directory of week-long {@link TimeSeriesSegment} files named by period number
+ * ({@code <dir>/<series>/<period>.seg}). Only the newest segment of a series is open (memory-mapped)
+ * for appends; when a point for a later week arrives it is sealed, i.e. trimmed to its data.
+ * Timestamps are stored in whole seconds. {@link #compact} deletes segments that fell out of the
+ * retention window and seals any left open by a crash.
+ *
+ * Thread-safe; calls may do file I/O, so keep them off the main thread.
+ */
+public final class TimeSeriesStore {
+
+    public static final long SEGMENT_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    private static final long SEGMENT_SECONDS = SEGMENT_MILLIS / 1000;
+    private static final String SUFFIX = ".seg";
+    private static final Pattern SERIES_NAME = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+
+    public interface Visitor {
+        void accept(long timeMillis, float value);
+    }
+
+    private final File dir;
+    private final Map<String, TimeSeriesSegment> open = new HashMap<>();
+
+    public TimeSeriesStore(File dir) throws IOException {
+        this.dir = dir;
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Can't create " + dir);
+    }
+
+    /** Appends a point; returns false if it is older than the series' last point (dropped). */
+    public synchronized boolean append(String series, long timeMillis, float value) throws IOException {
+        if (Float.isNaN(value)) return false;
+        long seconds = Math.floorDiv(timeMillis, 1000L);
+        long period = Math.floorDiv(seconds, SEGMENT_SECONDS);
+
+        TimeSeriesSegment seg = open.get(series);
+        if (seg == null) {
+            seg = openLatest(series, period);
+            if (seg == null) return false;   // a later week already exists
+            open.put(series, seg);
+        }
+        if (period < seg.period) return false;
+        if (period > seg.period) {
+            if (seg.count() > 0 && seconds < seg.lastTime()) return false;
+            open.remove(series);
+            seg.seal();
+            seg = TimeSeriesSegment.openForAppend(segmentFile(series, period), period);
+            open.put(series, seg);
+        }
+        return seg.append(seconds, value);
+    }
+
+    /** Visits the points of {@code series} in [fromMillis, toMillis], oldest first. */
+    public synchronized void scan(String series, long fromMillis, long toMillis, Visitor visitor) throws IOException {
+        long from = Math.floorDiv(fromMillis, 1000L), to = Math.floorDiv(toMillis, 1000L);
+        TimeSeriesSegment.Visitor v = (t, value) -> visitor.accept(t * 1000L, value);
+        TimeSeriesSegment active = open.get(series);
+        for (long period : periods(series)) {
+            long start = period * SEGMENT_SECONDS;
+            if (start > to || start + SEGMENT_SECONDS <= from) continue;
+            if (active != null && active.period == period) active.scanOpen(from, to, v);
+            else TimeSeriesSegment.scan(segmentFile(series, period), from, to, v);
+        }
+    }
+
+    /** Names of all series with data on disk. */
+    public synchronized List<String> series() {
+        List<String> out = new ArrayList<>();
+        File[] dirs = dir.listFiles(File::isDirectory);
+        if (dirs == null) return out;
+        for (File d : dirs) out.add(d.getName());
+        return out;
+    }
+
+    /**
+     * Deletes segments that ended before {@code nowMillis - retentionMillis} and seals old
+     * segments left open (e.g. by a crash). Returns the number of segments deleted.
+     */
+    public synchronized int compact(long nowMillis, long retentionMillis) throws IOException {
+        long cutoff = Math.floorDiv(nowMillis - retentionMillis, 1000L);
+        long currentPeriod = Math.floorDiv(Math.floorDiv(nowMillis, 1000L), SEGMENT_SECONDS);
+        int deleted = 0;
+        for (String series : series()) {
+            TimeSeriesSegment active = open.get(series);
+            for (long period : periods(series)) {
+                File f = segmentFile(series, period);
+                boolean isActive = active != null && active.period == period;
+                if ((period + 1) * SEGMENT_SECONDS <= cutoff) {
+                    if (isActive) {
+                        active.close();
+                        open.remove(series);
+                        active = null;
+                    }
+                    if (f.delete()) deleted++;
+                } else if (!isActive && period < currentPeriod && !TimeSeriesSegment.isSealed(f)) {
+                    TimeSeriesSegment.openForAppend(f, period).seal();
+                }
+            }
+            File seriesDir = new File(dir, series);
+            String[] left = seriesDir.list();
+            if (left != null && left.length == 0) seriesDir.delete();
+        }
+        return deleted;
+    }
+
+    /** Bytes used on disk by all segments (open ones count their mapped size). */
+    public synchronized long sizeOnDisk() {
+        long total = 0;
+        for (String series : series()) {
+            File[] files = new File(dir, series).listFiles();
+            if (files == null) continue;
+            for (File f : files) total += f.length();
+        }
+        return total;
+    }
+
+    /** Forces open segments to storage. */
+    public synchronized void flush() {
+        for (TimeSeriesSegment s : open.values()) s.flush();
+    }
+
+    public synchronized void close() throws IOException {
+        for (TimeSeriesSegment s : open.values()) {
+            s.flush();
+            s.close();
+        }
+        open.clear();
+    }
+
+    // ---------- files ----------
+    private TimeSeriesSegment openLatest(String series, long period) throws IOException {
+        if (!SERIES_NAME.matcher(series).matches()) throw new IllegalArgumentException("Bad series name: " + series);
+        File seriesDir = new File(dir, series);
+        if (!seriesDir.isDirectory() && !seriesDir.mkdirs()) throw new IOException("Can't create " + seriesDir);
+
+        long[] periods = periods(series);
+        if (periods.length > 0) {
+            long latest = periods[periods.length - 1];
+            if (latest > period) return null;
+            if (latest == period) {
+                // this week's file; appends simply continue it, even if it was sealed meanwhile
+                TimeSeriesSegment s = TimeSeriesSegment.openForAppend(segmentFile(series, latest), latest);
+                s.unseal();
+                return s;
+            }
+            File f = segmentFile(series, latest);
+            if (!TimeSeriesSegment.isSealed(f)) TimeSeriesSegment.openForAppend(f, latest).seal();
+        }
+        return TimeSeriesSegment.openForAppend(segmentFile(series, period), period);
+    }
+
+    private long[] periods(String series) {
+        String[] names = new File(dir, series).list();
+        if (names == null) return new long[0];
+        long[] out = new long[names.length];
+        int n = 0;
+        for (String name : names) {
+            if (!name.endsWith(SUFFIX)) continue;
+            try {
+                out[n++] = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            } catch (NumberFormatException ignored) { }
+        }
+        out = Arrays.copyOf(out, n);
+        Arrays.sort(out);
+        return out;
+    }
+
+    private File segmentFile(String series, long period) {
+        return new File(new File(dir, series), period + SUFFIX);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.drysync;
+
+/**
+ * Immutable batch value. Counts are clamped so inRack + finished never exceeds the total.
+ *
+ * Instances are shared between snapshots (see {@link WoodBatchPool}): an unchanged batch keeps
+ * the same object, so consumers can compare with {@code ==} first and fall back to
+ * {@link #sameContents} only when the references differ.
+ */
+public final class WoodBatch {
+    private final String batchId;
+    private final long arrivalDateMillis;
+    private final int totalQuantity;
+    private final int inRackCount;
+    private final int finishedCount;
+    private final int contentHash;
+
+    public WoodBatch(String batchId, int totalQuantity, long arrivalDateMillis) {
+        this(batchId, totalQuantity, arrivalDateMillis, 0, 0);
+    }
+
+    public WoodBatch(String batchId, int totalQuantity, long arrivalDateMillis, int inRackCount, int finishedCount) {
+        this.batchId = batchId;
+        this.arrivalDateMillis = arrivalDateMillis;
+        this.totalQuantity = Math.max(0, totalQuantity);
+
+        // clamp: drop finished first, then in-rack, until the sum fits the total
+        int inRack = Math.max(0, inRackCount);
+        int finished = Math.max(0, finishedCount);
+        int overflow = inRack + finished - this.totalQuantity;
+        if (overflow > 0) {
+            int reduceFinished = Math.min(overflow, finished);
+            finished -= reduceFinished;
+            inRack = Math.max(0, inRack - (overflow - reduceFinished));
+        }
+        this.inRackCount = inRack;
+        this.finishedCount = finished;
+        this.contentHash = hashOf(batchId, this.totalQuantity, arrivalDateMillis, inRack, finished);
+    }
+
+    // getters
+    public String getBatchId() { return batchId; }
+    public long getArrivalDateMillis() { return arrivalDateMillis; }
+    public int getTotalQuantity() { return totalQuantity; }
+    public int getInRackCount() { return inRackCount; }
+    public int getFinishedCount() { return finishedCount; }
+    public int getRemaining() { return Math.max(0, totalQuantity - inRackCount - finishedCount); }
+
+    /** Hash over every field, computed once; differing hashes mean differing contents. */
+    public int getContentHash() { return contentHash; }
+
+    // copies
+    public WoodBatch withCounts(int inRackCount, int finishedCount) {
+        if (inRackCount == this.inRackCount && finishedCount == this.finishedCount) return this;
+        return new WoodBatch(batchId, totalQuantity, arrivalDateMillis, inRackCount, finishedCount);
+    }
+
+    /** True if {@code o} holds the same values; identity and the content hash are checked first. */
+    public boolean sameContents(WoodBatch o) {
+        if (o == this) return true;
+        if (o == null || o.contentHash != contentHash) return false;
+        return totalQuantity == o.totalQuantity
+                && arrivalDateMillis == o.arrivalDateMillis
+                && inRackCount == o.inRackCount
+                && finishedCount == o.finishedCount
+                && (batchId == null ? o.batchId == null : batchId.equals(o.batchId));
+    }
+
+    /** Same check as {@link #sameContents} against raw field values, without building a batch. */
+    boolean hasValues(String batchId, int totalQuantity, long arrivalDateMillis, int inRackCount, int finishedCount) {
+        return this.totalQuantity == totalQuantity
+                && this.arrivalDateMillis == arrivalDateMillis
+                && this.inRackCount == inRackCount
+                && this.finishedCount == finishedCount
+                && (this.batchId == null ? batchId == null : this.batchId.equals(batchId));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof WoodBatch && sameContents((WoodBatch) o);
+    }
+
+    @Override
+    public int hashCode() { return contentHash; }
+
+    @Override
+    public String toString() {
+        return "WoodBatch{" + batchId + " total=" + totalQuantity + " inRack=" + inRackCount
+                + " finished=" + finishedCount + " arrival=" + arrivalDateMillis + "}";
+    }
+
+    private static int hashOf(String batchId, int total, long arrival, int inRack, int finished) {
+        int h = batchId == null ? 0 : batchId.hashCode();
+        h = 31 * h + total;
+        h = 31 * h + (int) (arrival ^ (arrival >>> 32));
+        h = 31 * h + inRack;
+        h = 31 * h + finished;
+        return h;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.drysync;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hand-written mapping between /batches/{id} nodes and {@link WoodBatch}.
+ *
+ * Replaces {@code DataSnapshot.getValue(WoodBatch.class)} (reflection) followed by a second
+ * manual pass for the legacy keys: {@link #decode} looks each field up once in the node's
+ * value map, falls back to the "inRack"/"finished" aliases and tolerates numbers stored as
+ * strings. Feed it {@code snapshot.getKey()} and {@code snapshot.getValue()}. Once the database
+ * is migrated past the aliases ({@link #dropAliases}) the fallback is switched off with
+ * {@link #setReadLegacyAliases}.
+ *
+ * Every write also stamps {@link #UPDATED_AT} with the server time, which is what the local
+ * mirror syncs on, and a fully finished batch is left behind as a tombstone
+ * ({@link #tombstone}) instead of being removed, so other devices see the delete in their delta.
+ * {@link #decode} returns null for tombstones.
+ *
+ * When adding a field to WoodBatch, add it to {@link #decode} and {@link #encode} too.
+ */
+public final class WoodBatchCodec {
+
+    // field names as stored in the database
+    public static final String BATCH_ID = "batchId";
+    public static final String ARRIVAL = "arrivalDateMillis";
+    public static final String TOTAL = "totalQuantity";
+    public static final String IN_RACK = "inRackCount";
+    public static final String FINISHED = "finishedCount";
+    public static final String REMAINING = "remaining";   // derived, written for readers outside the app
+    public static final String LEGACY_IN_RACK = "inRack";
+    public static final String LEGACY_FINISHED = "finished";
+    public static final String UPDATED_AT = "updatedAt";   // server timestamp of the last write
+    public static final String DELETED = "deleted";        // tombstone flag
+    public static final String LEGACY_OPS = "ops";         // op ids older versions kept in the node
+
+    private static final int MISSING = Integer.MIN_VALUE;
+
+    // cleared once no node in the database carries the aliases any more
+    private static volatile boolean readLegacyAliases = true;
+
+    private WoodBatchCodec() {}
+
+    /** Whether {@link #decode} falls back to the legacy alias keys (the default). */
+    public static void setReadLegacyAliases(boolean read) {
+        readLegacyAliases = read;
+    }
+
+    /**
+     * @param key node key, used as batchId when the node has none
+     * @param raw {@code snapshot.getValue()} of the batch node
+     * @return the batch, or null if the node isn't an object or is a tombstone
+     */
+    public static WoodBatch decode(String key, Object raw) {
+        return decode(key, raw, null);
+    }
+
+    /**
+     * Like {@link #decode(String, Object)}, but returns {@code previous} itself when the node
+     * still holds the same values, so nothing is allocated for an unchanged batch.
+     */
+    public static WoodBatch decode(String key, Object raw, WoodBatch previous) {
+        return decode(key, raw, previous, readLegacyAliases);
+    }
+
+    private static WoodBatch decode(String key, Object raw, WoodBatch previous, boolean aliases) {
+        if (!(raw instanceof Map) || isTombstone(raw)) return null;
+
+        Map<?, ?> m = (Map<?, ?>) raw;
+        Object rawId = m.get(BATCH_ID);
+        String id = rawId != null ? String.valueOf(rawId) : key;
+        long arrival = asLong(m.get(ARRIVAL), 0L);
+        int total = asInt(m.get(TOTAL), 0);
+
+        // canonical key first, legacy alias only when the canonical one is missing/unparsable
+        int inRack = asInt(m.get(IN_RACK), MISSING);
+        if (inRack == MISSING) inRack = aliases ? asInt(m.get(LEGACY_IN_RACK), 0) : 0;
+        int finished = asInt(m.get(FINISHED), MISSING);
+        if (finished == MISSING) finished = aliases ? asInt(m.get(LEGACY_FINISHED), 0) : 0;
+
+        if (previous != null && previous.hasValues(id, total, arrival, inRack, finished)) return previous;
+        WoodBatch wb = new WoodBatch(id, total, arrival, inRack, finished);
+        // out-of-range counts get clamped, so compare the result too
+        return previous != null && previous.sameContents(wb) ? previous : wb;
+    }
+
+    /** batchId stored in the node, falling back to the node key. */
+    public static String batchIdOf(String key, Object raw) {
+        if (raw instanceof Map) {
+            Object id = ((Map<?, ?>) raw).get(BATCH_ID);
+            if (id != null) return String.valueOf(id);
+        }
+        return key;
+    }
+
+    /** True for the node left behind by {@link #tombstone}. */
+    public static boolean isTombstone(Object raw) {
+        return raw instanceof Map && Boolean.TRUE.equals(((Map<?, ?>) raw).get(DELETED));
+    }
+
+    /** {@link #UPDATED_AT} of the node, 0 for nodes written before it existed. */
+    public static long updatedAtOf(Object raw) {
+        return raw instanceof Map ? asLong(((Map<?, ?>) raw).get(UPDATED_AT), 0L) : 0L;
+    }
+
+    /** Plain map for {@code setValue()}, same shape the reflective mapper used to write. */
+    public static Map<String, Object> encode(WoodBatch b) {
+        Map<String, Object> m = new HashMap<>(8);
+        m.put(BATCH_ID, b.getBatchId());
+        m.put(ARRIVAL, b.getArrivalDateMillis());
+        m.put(TOTAL, b.getTotalQuantity());
+        m.put(IN_RACK, b.getInRackCount());
+        m.put(FINISHED, b.getFinishedCount());
+        m.put(REMAINING, b.getRemaining());
+        return m;
+    }
+
+    /**
+     * Child updates (relative to the batch node) that take a node off the legacy aliases: the
+     * aliases are removed, and when the canonical counts are missing they're written from the
+     * aliases as {@link #decode} reads them (clamped to the total). Canonical counts already
+     * there are left alone, so a concurrent increment isn't overwritten.
+     *
+     * @return null if the node has no aliases (or is a tombstone)
+     */
+    public static Map<String, Object> dropAliases(String key, Object raw) {
+        if (!(raw instanceof Map) || isTombstone(raw)) return null;
+        Map<?, ?> m = (Map<?, ?>) raw;
+        if (!m.containsKey(LEGACY_IN_RACK) && !m.containsKey(LEGACY_FINISHED)) return null;
+
+        Map<String, Object> u = new HashMap<>(8);
+        u.put(LEGACY_IN_RACK, null);
+        u.put(LEGACY_FINISHED, null);
+        boolean hasCounts = asInt(m.get(IN_RACK), MISSING) != MISSING && asInt(m.get(FINISHED), MISSING) != MISSING;
+        if (!hasCounts) {
+            WoodBatch b = decode(key, raw, null, true);
+            u.put(TOTAL, b.getTotalQuantity());
+            u.put(IN_RACK, b.getInRackCount());
+            u.put(FINISHED, b.getFinishedCount());
+            u.put(REMAINING, b.getRemaining());
+        }
+        return u;
+    }
+
+    /**
+     * Child updates that make a node writable again: counts the rules refuse (missing, stored as
+     * strings, negative, or adding up to more than the total) are rewritten as {@link #decode}
+     * reads them, legacy aliases included, and the aliases are removed. Until then every write
+     * to the node is rejected, including a migration's.
+     *
+     * @return null if the node's counts are fine as they are (or it's a tombstone)
+     */
+    public static Map<String, Object> repair(String key, Object raw) {
+        if (!(raw instanceof Map) || isTombstone(raw)) return null;
+        Map<?, ?> m = (Map<?, ?>) raw;
+        Object total = m.get(TOTAL), inRack = m.get(IN_RACK), finished = m.get(FINISHED);
+        if (total instanceof Number && inRack instanceof Number && finished instanceof Number) {
+            double t = ((Number) total).doubleValue();
+            double r = ((Number) inRack).doubleValue(), f = ((Number) finished).doubleValue();
+            if (r >= 0 && f >= 0 && r + f <= t) return null;
+        }
+
+        WoodBatch b = decode(key, raw, null, true);
+        Map<String, Object> u = new HashMap<>(8);
+        u.put(TOTAL, b.getTotalQuantity());
+        u.put(IN_RACK, b.getInRackCount());
+        u.put(FINISHED, b.getFinishedCount());
+        u.put(REMAINING, b.getRemaining());
+        if (m.containsKey(LEGACY_IN_RACK)) u.put(LEGACY_IN_RACK, null);
+        if (m.containsKey(LEGACY_FINISHED)) u.put(LEGACY_FINISHED, null);
+        return u;
+    }
+
+    /**
+     * Replacement node for a deleted batch, for {@code setValue()}; the caller adds
+     * {@link #UPDATED_AT} (a server timestamp isn't expressible here).
+     */
+    public static Map<String, Object> tombstone(String batchId) {
+        Map<String, Object> m = new HashMap<>(4);
+        m.put(BATCH_ID, batchId);
+        m.put(DELETED, true);
+        return m;
+    }
+
+    // ---------- tolerant coercion ----------
+    public static int asInt(Object v, int def) {
+        if (v instanceof Long) return ((Long) v).intValue();   // what the database hands back for integers
+        if (v instanceof Number) return ((Number) v).intValue();
+        if (v instanceof String) {
+            String s = ((String) v).trim();
+            try { return Integer.parseInt(s); } catch (NumberFormatException ignored) {}
+            try { return (int) Double.parseDouble(s); } catch (NumberFormatException ignored) {}
+        }
+        return def;
+    }
+
+    public static long asLong(Object v, long def) {
+        if (v instanceof Long) return (Long) v;
+        if (v instanceof Number) return ((Number) v).longValue();
+        if (v instanceof String) {
+            String s = ((String) v).trim();
+            try { return Long.parseLong(s); } catch (NumberFormatException ignored) {}
+            try { return (long) Double.parseDouble(s); } catch (NumberFormatException ignored) {}
+        }
+        return def;
+    }
+}
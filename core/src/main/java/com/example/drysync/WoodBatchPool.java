@@ -0,0 +1,49 @@
+package com.example.drysync;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Last decoded {@link WoodBatch} per batchId, so re-decoding a snapshot hands back the same
+ * instance for every batch that didn't change. Allocation per update is then proportional to
+ * what changed, and adapters/indexes can skip unchanged rows with a reference compare.
+ *
+ * Thread-safe; the decode passes that feed it run on background threads.
+ */
+public final class WoodBatchPool {
+
+    private final Map<String, WoodBatch> byId = new HashMap<>();
+
+    /** Decodes {@code raw} (see {@link WoodBatchCodec#decode}), reusing the pooled instance if unchanged. */
+    public synchronized WoodBatch decode(String key, Object raw) {
+        String id = WoodBatchCodec.batchIdOf(key, raw);
+        WoodBatch previous = id == null ? null : byId.get(id);
+        WoodBatch wb = WoodBatchCodec.decode(key, raw, previous);
+        if (id != null) {
+            if (wb != null) byId.put(id, wb);
+            else byId.remove(id);
+        }
+        return wb;
+    }
+
+    public synchronized void remove(String batchId) {
+        byId.remove(batchId);
+    }
+
+    /** Forgets every batch not in {@code batchIds}, e.g. after decoding a full snapshot. */
+    public synchronized void retainOnly(Collection<String> batchIds) {
+        for (Iterator<String> it = byId.keySet().iterator(); it.hasNext(); ) {
+            if (!batchIds.contains(it.next())) it.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        byId.clear();
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.drysync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AlertEngineTest {
+
+    private static final long MIN = 60_000L;
+
+    private final List<String> events = new ArrayList<>();
+
+    private AlertEngine engine(AlertRule... rules) {
+        return new AlertEngine(Arrays.asList(rules), e -> events.add(
+                (e.raised ? "+" : "-") + e.ruleId + "@" + e.slot + "/" + e.timeMillis / MIN));
+    }
+
+    @Test
+    public void hysteresisKeepsAHoveringValueRaised() {
+        AlertEngine engine = engine(
+                AlertRule.above("hot", AlertRule.Source.TEMPERATURE, "Hot", 60f, 55f, 0));
+        engine.onEnvironment(0, 59f, 50f);
+        engine.onEnvironment(MIN, 60f, 50f);
+        engine.onEnvironment(2 * MIN, 58f, 50f);   // below raiseAt, still above clearAt
+        engine.onEnvironment(3 * MIN, 61f, 50f);
+        engine.onEnvironment(4 * MIN, 55f, 50f);   // clearAt itself doesn't clear
+        assertTrue(engine.isRaised("hot", AlertEvent.ENVIRONMENT));
+        engine.onEnvironment(5 * MIN, 54.9f, 50f);
+        engine.onEnvironment(6 * MIN, Float.NaN, 50f);
+
+        assertEquals(Arrays.asList("+hot@-1/1", "-hot@-1/5"), events);
+        assertFalse(engine.isRaised("hot", AlertEvent.ENVIRONMENT));
+    }
+
+    @Test
+    public void minimumDurationRaisesFromTheDeadlineEvenWithoutReadings() {
+        AlertEngine engine = engine(
+                AlertRule.below("dry", AlertRule.Source.SLOT_MOISTURE, "Dry", 12f, 13f, 30 * MIN));
+        engine.onSlot(0, reading(1, 11f));
+        engine.onSlot(10 * MIN, reading(1, 11.5f));
+        engine.advanceTo(29 * MIN);
+        assertTrue(events.isEmpty());
+
+        engine.advanceTo(45 * MIN);   // the slot went quiet; raised at the deadline, not now
+        assertEquals(Collections.singletonList("+dry@1/30"), events);
+        assertEquals(0, engine.pendingCount());
+    }
+
+    @Test
+    public void brokenConditionRestartsTheDuration() {
+        AlertEngine engine = engine(
+                AlertRule.below("dry", AlertRule.Source.SLOT_MOISTURE, "Dry", 12f, 13f, 30 * MIN));
+        engine.onSlot(0, reading(1, 11f));
+        engine.onSlot(20 * MIN, reading(1, 12.5f));   // back above raiseAt: the clock stops
+        engine.onSlot(25 * MIN, reading(1, 11f));      // and starts again here
+        engine.advanceTo(50 * MIN);
+        assertTrue(events.isEmpty());
+
+        engine.onSlot(55 * MIN, reading(1, 11f));      // the restarted clock runs out here
+        assertEquals(Collections.singletonList("+dry@1/55"), events);
+        engine.advanceTo(100 * MIN);                   // the stale and the used deadline are dropped
+        assertEquals(1, events.size());
+        assertEquals(0, engine.pendingCount());
+    }
+
+    @Test
+    public void slotsAreIndependentAndEmptyingClears() {
+        AlertEngine engine = engine(
+                AlertRule.below("dry", AlertRule.Source.SLOT_MOISTURE, "Dry", 12f, 13f, 0),
+                AlertRule.above("done", AlertRule.Source.SLOT_COMPLETE, "Done", 1f, 1f, 0));
+        engine.onSlot(0, reading(1, 11f));
+        engine.onSlot(0, reading(2, 20f));
+        engine.onSlot(MIN, new SlotReading(2, "complete", 20f));
+        assertTrue(engine.isRaised("dry", 1));
+        assertFalse(engine.isRaised("dry", 2));
+
+        engine.onSlot(2 * MIN, new SlotReading(1, "inactive", 11f));
+        assertEquals(Arrays.asList("+dry@1/0", "+done@2/1", "-dry@1/2"), events);
+    }
+
+    @Test
+    public void restoredAlertsAreNotRaisedAgain() {
+        AlertEngine engine = engine(
+                AlertRule.below("dry", AlertRule.Source.SLOT_MOISTURE, "Dry", 12f, 13f, 0));
+        engine.restoreRaised("dry", 3);
+        engine.onSlot(0, reading(3, 10f));
+        assertTrue(events.isEmpty());
+        engine.onSlot(MIN, reading(3, 14f));
+        assertEquals(Collections.singletonList("-dry@3/1"), events);
+    }
+
+    private static SlotReading reading(int slot, float value) {
+        return new SlotReading(slot, "drying", value);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.drysync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class BatchIdGeneratorTest {
+
+    private static final TimeZone MANILA = TimeZone.getTimeZone("Asia/Manila");
+    private static final long T = 1_709_323_200_000L;   // 2024-03-01T20:00:00Z, already March 2 in Manila
+
+    @Test
+    public void formatCarriesTheLocalDay() {
+        String id = new BatchIdGenerator(MANILA, new Random(1)).next(T);
+        assertTrue(id, id.startsWith("BATCH-20240302-"));
+        assertEquals("BATCH-yyyyMMdd-".length() + 16, id.length());
+    }
+
+    @Test
+    public void idsInOneMillisecondAreUniqueAndIncreasing() {
+        BatchIdGenerator ids = new BatchIdGenerator(MANILA, new Random(2));
+        String previous = "";
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String id = ids.next(T);
+            assertTrue(id.compareTo(previous) > 0);
+            assertTrue(seen.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    public void clockSteppingBackKeepsIncreasing() {
+        BatchIdGenerator ids = new BatchIdGenerator(MANILA, new Random(3));
+        String a = ids.next(T + 5_000);
+        String b = ids.next(T);
+        String c = ids.next(T + 5_001);
+        assertTrue(b.compareTo(a) > 0);
+        assertTrue(c.compareTo(b) > 0);
+    }
+
+    @Test
+    public void idsFromSeveralDevicesSortByCreationTime() {
+        List<BatchIdGenerator> devices = new ArrayList<>();
+        for (int d = 0; d < 3; d++) devices.add(new BatchIdGenerator(MANILA, new Random(10 + d)));
+        Random r = new Random(4);
+
+        List<String> made = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        long t = T;
+        for (int i = 0; i < 5_000; i++) {
+            t += 1 + r.nextInt(100_000);   // whatever device, a later millisecond
+            String id = devices.get(r.nextInt(devices.size())).next(t);
+            assertTrue(seen.add(id));
+            made.add(id);
+        }
+        List<String> sorted = new ArrayList<>(made);
+        Collections.sort(sorted);
+        assertEquals(made, sorted);
+    }
+
+    @Test
+    public void oldFormatIdsStillSortByDay() {
+        String old = "BATCH-20240301-0042";
+        String fresh = new BatchIdGenerator(MANILA, new Random(5)).next(T);
+        assertTrue(old.compareTo(fresh) < 0);
+    }
+}
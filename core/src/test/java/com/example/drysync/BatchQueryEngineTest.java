@@ -0,0 +1,92 @@
+package com.example.drysync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BatchQueryEngineTest {
+
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    public void indexKeepsNewestFirstAndReportsTouchedRows() {
+        BatchIndex index = new BatchIndex();
+        List<String> events = new ArrayList<>();
+        index.setCallback(new BatchIndex.Callback() {
+            @Override public void onInserted(int position, WoodBatch b) { events.add("+" + position + b.getBatchId()); }
+            @Override public void onRemoved(int position, WoodBatch b) { events.add("-" + position + b.getBatchId()); }
+            @Override public void onChanged(int position, WoodBatch b) { events.add("~" + position + b.getBatchId()); }
+            @Override public void onMoved(int from, int to, WoodBatch b) { events.add(from + ">" + to + b.getBatchId()); }
+        });
+
+        index.upsert(batch("B", 2 * DAY, 10));
+        index.upsert(batch("A", DAY, 10));
+        index.upsert(batch("C", 3 * DAY, 10));
+        assertEquals("CBA", ids(index.asList()));
+
+        index.upsert(batch("A", DAY, 10));                          // unchanged: no event
+        index.upsert(batch("A", DAY, 10).withCounts(1, 0));         // same position
+        index.upsert(batch("A", 4 * DAY, 10));                      // arrival edited: moves up
+        index.remove("B");
+        assertEquals("AC", ids(index.asList()));
+        assertEquals(Arrays.asList("+0B", "+1A", "+0C", "~2A", "2>0A", "~0A", "-2B"), events);
+    }
+
+    @Test
+    public void equalArrivalsTieBreakOnId() {
+        BatchIndex index = new BatchIndex();
+        index.upsert(batch("b", DAY, 1));
+        index.upsert(batch("c", DAY, 1));
+        index.upsert(batch("a", DAY, 1));
+        assertEquals("abc", ids(index.asList()));
+    }
+
+    @Test
+    public void queriesComeBackInTheRequestedOrder() {
+        BatchQueryEngine engine = new BatchQueryEngine();
+        engine.upsert(batch("A", DAY, 30));
+        engine.upsert(batch("B", 3 * DAY, 10));
+        engine.upsert(batch("C", 2 * DAY, 20));
+
+        assertEquals("BCA", ids(engine.query(BatchQuery.ALL)));
+        assertEquals("ACB", ids(engine.query(BatchQuery.ALL.withSort(BatchSort.OLDEST_FIRST))));
+        assertEquals("ACB", ids(engine.query(BatchQuery.ALL.withSort(BatchSort.MOST_REMAINING))));
+        assertEquals("BCA", ids(engine.query(BatchQuery.ALL.withSort(BatchSort.LEAST_REMAINING))));
+
+        // a view built earlier follows later changes
+        engine.upsert(batch("A", 4 * DAY, 30));
+        engine.remove("C");
+        assertEquals("AB", ids(engine.query(BatchQuery.ALL)));
+        assertEquals("BA", ids(engine.query(BatchQuery.ALL.withSort(BatchSort.OLDEST_FIRST))));
+    }
+
+    @Test
+    public void textAndFiltersNarrowTheResult() {
+        BatchQueryEngine engine = new BatchQueryEngine();
+        // enough batches that a rare trigram goes through the posting lists
+        for (int i = 0; i < 100; i++) engine.upsert(batch("BATCH-" + (1000 + i), i * DAY, 10));
+        engine.upsert(batch("OAK-7", 500 * DAY, 10));
+        engine.upsert(batch("OAK-8", 400 * DAY, 10).withCounts(5, 0));
+
+        assertEquals("OAK-7OAK-8", ids(engine.query(BatchQuery.ALL.withText("oak"))));
+        assertEquals("OAK-8", ids(engine.query(BatchQuery.ALL.withText("oak").withState(BatchQuery.State.IN_RACK))));
+        assertEquals("OAK-8OAK-7", ids(engine.query(BatchQuery.ALL.withText("OAK").withSort(BatchSort.OLDEST_FIRST))));
+        assertEquals("BATCH-1099BATCH-1098",
+                ids(engine.query(BatchQuery.ALL.withText("batch").withArrival(98 * DAY, 99 * DAY))));
+        assertEquals("", ids(engine.query(BatchQuery.ALL.withText("pine"))));
+    }
+
+    private static WoodBatch batch(String id, long arrival, int total) {
+        return new WoodBatch(id, total, arrival);
+    }
+
+    private static String ids(List<WoodBatch> batches) {
+        StringBuilder sb = new StringBuilder();
+        for (WoodBatch b : batches) sb.append(b.getBatchId());
+        return sb.toString();
+    }
+}
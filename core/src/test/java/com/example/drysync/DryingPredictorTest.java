@@ -0,0 +1,80 @@
+package com.example.drysync;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DryingPredictorTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final float TARGET = 12f, EQUILIBRIUM = 8f;
+
+    /** M(t) = 8 + 22 exp(-0.02 t): reaches 12% at ln(22/4)/0.02 ~ 85.2 h. */
+    private static float curve(double hours) {
+        return (float) (EQUILIBRIUM + 22 * Math.exp(-0.02 * hours));
+    }
+
+    private static final double DRY_AT_HOURS = Math.log(22 / 4.0) / 0.02;
+
+    @Test
+    public void convergesOnANoisyExponential() {
+        DryingPredictor p = new DryingPredictor(TARGET, EQUILIBRIUM, 48);
+        Random r = new Random(5);
+        long t = 0;
+        for (int i = 0; i < 40 * 6; i++, t += 10 * 60_000L) {   // 40 h, every 10 minutes
+            p.add(t, curve(t / (double) HOUR) + (float) r.nextGaussian() * 0.1f);
+        }
+
+        assertEquals(0.02, p.ratePerHour(), 0.002);
+        DryingPredictor.Estimate e = p.estimate(t);
+        assertNotNull(e);
+        double left = DRY_AT_HOURS - t / (double) HOUR;
+        assertEquals(left, e.hours, 3);
+        assertTrue(e.lowHours <= e.hours && e.hours <= e.highHours);
+        assertTrue(e.lowHours < left && left < e.highHours);
+        assertTrue("band should be narrow after 40 h", e.highHours - e.lowHours < 20);
+    }
+
+    @Test
+    public void bandNarrowsAsSamplesArrive() {
+        DryingPredictor p = new DryingPredictor(TARGET, EQUILIBRIUM, 48);
+        Random r = new Random(9);
+        double previous = Double.POSITIVE_INFINITY;
+        long t = 0;
+        for (int hours = 2; hours <= 32; hours *= 2) {
+            for (; t <= hours * HOUR; t += 10 * 60_000L) {
+                p.add(t, curve(t / (double) HOUR) + (float) r.nextGaussian() * 0.2f);
+            }
+            DryingPredictor.Estimate e = p.estimate(t);
+            assertNotNull(e);
+            double width = e.highHours - e.lowHours;
+            assertTrue(hours + " h: " + width + " vs " + previous, width < previous);
+            previous = width;
+        }
+    }
+
+    @Test
+    public void noEstimateUntilThereIsEnoughToGoOn() {
+        DryingPredictor p = new DryingPredictor(TARGET, EQUILIBRIUM, 48);
+        assertNull(p.estimate(0));
+        for (int i = 0; i < 9; i++) p.add(i * 10 * 60_000L, curve(i / 6.0));
+        assertNull("fewer than ten samples", p.estimate(HOUR));
+        p.add(90 * 60_000L, curve(1.5));
+        assertNotNull(p.estimate(2 * HOUR));
+    }
+
+    @Test
+    public void reloadStartsOverAndDryIsZero() {
+        DryingPredictor p = new DryingPredictor(TARGET, EQUILIBRIUM, 48);
+        for (int i = 0; i < 60; i++) p.add(i * HOUR, curve(i));
+        assertEquals(60, p.sampleCount());
+
+        p.add(60 * HOUR, 30f);   // wet wood loaded
+        assertEquals(1, p.sampleCount());
+
+        p.add(61 * HOUR, 11f);
+        assertTrue(p.estimate(61 * HOUR).isDry());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.drysync;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LttbTest {
+
+    @Test
+    public void keepsBothEndpointsAndTheThreshold() {
+        PointBuffer in = new PointBuffer();
+        for (int i = 0; i < 1_000; i++) in.add(i * 60_000L, (float) Math.sin(i / 20.0));
+        PointBuffer out = new PointBuffer();
+
+        Lttb.downsample(in, 0, in.size(), 100, out);
+        assertEquals(100, out.size());
+        assertEquals(in.time(0), out.time(0));
+        assertEquals(in.value(0), out.value(0), 0f);
+        assertEquals(in.time(999), out.time(99));
+        assertEquals(in.value(999), out.value(99), 0f);
+        for (int i = 1; i < out.size(); i++) assertTrue(out.time(i) > out.time(i - 1));
+    }
+
+    @Test
+    public void endpointsOfASubrangeAreTheRangesOwn() {
+        PointBuffer in = new PointBuffer();
+        for (int i = 0; i < 500; i++) in.add(i, i % 10);
+        PointBuffer out = new PointBuffer();
+        out.add(-1, 0f);   // appended after whatever is there
+
+        Lttb.downsample(in, 100, 400, 20, out);
+        assertEquals(21, out.size());
+        assertEquals(100, out.time(1));
+        assertEquals(399, out.time(20));
+    }
+
+    @Test
+    public void aLonePeakSurvives() {
+        PointBuffer in = new PointBuffer();
+        for (int i = 0; i < 1_000; i++) in.add(i, i == 637 ? 90f : 20f);
+        PointBuffer out = new PointBuffer();
+
+        Lttb.downsample(in, 0, in.size(), 10, out);
+        boolean found = false;
+        for (int i = 0; i < out.size(); i++) found |= out.time(i) == 637 && out.value(i) == 90f;
+        assertTrue(found);
+    }
+
+    @Test
+    public void smallRangesAreCopied() {
+        PointBuffer in = new PointBuffer();
+        for (int i = 0; i < 5; i++) in.add(i, i);
+        PointBuffer out = new PointBuffer();
+
+        Lttb.downsample(in, 0, 5, 10, out);
+        assertEquals(5, out.size());
+        out.clear();
+        Lttb.downsample(in, 0, 5, 2, out);   // below 3 there's no bucket to pick from
+        assertEquals(5, out.size());
+        out.clear();
+        Lttb.downsample(in, 2, 2, 10, out);
+        assertTrue(out.isEmpty());
+    }
+}
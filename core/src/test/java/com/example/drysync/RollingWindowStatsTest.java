@@ -0,0 +1,98 @@
+package com.example.drysync;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RollingWindowStatsTest {
+
+    private static final long MIN = 60_000L;
+
+    @Test
+    public void minAndMaxFollowEvictions() {
+        RollingWindowStats s = new RollingWindowStats(10 * MIN, MIN, 5 * MIN);
+        s.add(0, 50f);
+        s.add(MIN, 10f);
+        s.add(2 * MIN, 30f);
+        s.add(3 * MIN, 20f);
+        assertEquals(10f, s.min(), 0f);
+        assertEquals(50f, s.max(), 0f);
+        assertEquals(27.5f, s.average(), 1e-4f);
+
+        s.advanceTo(11 * MIN);   // the 50 slides out
+        assertEquals(10f, s.min(), 0f);
+        assertEquals(30f, s.max(), 0f);
+
+        s.advanceTo(12 * MIN);   // the 10 slides out
+        assertEquals(20f, s.min(), 0f);
+        assertEquals(30f, s.max(), 0f);
+        assertEquals(25f, s.average(), 1e-4f);
+        assertEquals(2, s.sampleCount());
+    }
+
+    @Test
+    public void newestBucketNeverExpires() {
+        RollingWindowStats s = new RollingWindowStats(10 * MIN, MIN, 5 * MIN);
+        s.add(0, 40f);
+        s.add(3 * MIN, 20f);
+
+        s.advanceTo(1_000 * MIN);
+        assertEquals(20f, s.min(), 0f);
+        assertEquals(20f, s.max(), 0f);
+        assertEquals(1, s.sampleCount());
+        assertEquals(20f, s.latest(), 0f);
+    }
+
+    @Test
+    public void readingsInOneBucketFoldTogether() {
+        RollingWindowStats s = new RollingWindowStats(10 * MIN, MIN, 5 * MIN);
+        s.add(0, 15f);
+        s.add(10_000, 5f);
+        s.add(20_000, 25f);
+        s.add(30_000, 10f);
+        assertEquals(5f, s.min(), 0f);
+        assertEquals(25f, s.max(), 0f);
+        assertEquals(4, s.sampleCount());
+
+        // the whole bucket leaves at once, including its extremes
+        s.add(MIN, 12f);
+        s.advanceTo(11 * MIN);
+        assertEquals(12f, s.min(), 0f);
+        assertEquals(12f, s.max(), 0f);
+    }
+
+    @Test
+    public void ringWrapsWithoutLosingExtremes() {
+        RollingWindowStats s = new RollingWindowStats(10 * MIN, MIN, 5 * MIN);
+        // several windows' worth: the ring and the deques wrap many times
+        for (int i = 0; i < 100; i++) s.add(i * MIN, i % 7);
+        // buckets 89..99 are live: values (89..99) % 7
+        assertEquals(0f, s.min(), 0f);
+        assertEquals(6f, s.max(), 0f);
+        s.add(100 * MIN, 3f);   // 89 (a 5) leaves; 91 (a 0) is still in
+        assertEquals(0f, s.min(), 0f);
+        assertEquals(6f, s.max(), 0f);
+    }
+
+    @Test
+    public void deltaAgainstTheReadingDeltaMillisAgo() {
+        RollingWindowStats s = new RollingWindowStats(10 * MIN, MIN, 5 * MIN);
+        s.add(0, 30f);
+        assertTrue(Float.isNaN(s.delta()));
+        s.add(5 * MIN, 24f);
+        assertEquals(-6f, s.delta(), 0f);
+        s.add(6 * MIN, 23f);
+        assertEquals(-7f, s.delta(), 0f);   // still against t=0, the newest at or before t-5min
+    }
+
+    @Test
+    public void lateSamplesCountAsNowAndNaNIsIgnored() {
+        RollingWindowStats s = new RollingWindowStats(10 * MIN, MIN, 5 * MIN);
+        s.add(5 * MIN, 10f);
+        s.add(0, 2f);
+        s.add(6 * MIN, Float.NaN);
+        assertEquals(5 * MIN, s.latestTime());
+        assertEquals(2f, s.min(), 0f);
+        assertEquals(2, s.sampleCount());
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.drysync;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SlotConflatorTest {
+
+    private static final float EPSILON = 0.05f;
+
+    @Test
+    public void slowDriftGetsThroughOnceItAddsUpToEpsilon() {
+        SlotConflator c = new SlotConflator(EPSILON);
+        c.offer(reading(1, 20.00f));
+        c.drain();
+
+        // each step is under epsilon, but they're measured against the flushed 20.00
+        assertFalse(c.offer(reading(1, 20.02f)));
+        assertFalse(c.offer(reading(1, 20.04f)));
+        assertTrue(c.offer(reading(1, 20.06f)));
+        assertEquals(20.06f, c.drain().get(0).getValue(), 0f);
+        assertFalse(c.offer(reading(1, 20.08f)));
+    }
+
+    @Test
+    public void newestReadingPerSlotWins() {
+        SlotConflator c = new SlotConflator(EPSILON);
+        c.offer(reading(2, 30f));
+        c.offer(reading(1, 10f));
+        c.offer(reading(2, 31f));
+
+        List<SlotReading> out = c.drain();
+        assertEquals(2, out.size());
+        assertEquals(1, out.get(0).getSlot());
+        assertEquals(31f, out.get(1).getValue(), 0f);
+        assertTrue(c.drain().isEmpty());
+    }
+
+    @Test
+    public void returningToTheShownValueCancelsThePendingUpdate() {
+        SlotConflator c = new SlotConflator(EPSILON);
+        c.offer(reading(1, 20f));
+        c.drain();
+
+        c.offer(reading(1, 21f));
+        assertFalse(c.offer(reading(1, 20.01f)));
+        assertTrue(c.drain().isEmpty());
+    }
+
+    @Test
+    public void statusChangeAlwaysGetsThrough() {
+        SlotConflator c = new SlotConflator(EPSILON);
+        c.offer(reading(1, 20f));
+        c.drain();
+
+        assertTrue(c.offer(new SlotReading(1, "complete", 20f)));
+    }
+
+    @Test
+    public void removalDrainsAsEmptyReadingAndLeavesTheBaseline() {
+        SlotConflator c = new SlotConflator(EPSILON);
+        c.offer(reading(1, 20f));
+        c.offer(reading(2, 20f));
+        c.drain();
+
+        assertTrue(c.remove(1));
+        List<SlotReading> out = c.drain();
+        assertEquals(1, out.size());
+        assertFalse(out.get(0).hasValue());
+        assertNull(c.shown(1));
+        assertNotNull(c.shown(2));
+
+        // never shown: nothing to take back
+        c.offer(reading(3, 20f));
+        assertFalse(c.remove(3));
+    }
+
+    private static SlotReading reading(int slot, float value) {
+        return new SlotReading(slot, "drying", value);
+    }
+}
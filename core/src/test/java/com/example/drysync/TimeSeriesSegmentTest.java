@@ -0,0 +1,160 @@
+package com.example.drysync;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TimeSeriesSegmentTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void encodesAndDecodesEveryKindOfStep() throws IOException {
+        File f = tmp.newFile("0.seg");
+        f.delete();
+        TimeSeriesSegment s = TimeSeriesSegment.openForAppend(f, 0);
+        List<String> expected = new ArrayList<>();
+
+        Random r = new Random(3);
+        long t = 1_700_000_000L;
+        float v = 25f;
+        for (int i = 0; i < 5_000; i++) {
+            // regular minutes, jitter, long gaps (every delta-of-delta bucket) and all value patterns
+            switch (i % 5) {
+                case 0: t += 60; break;
+                case 1: t += 60 + r.nextInt(100) - 50; break;
+                case 2: t += r.nextInt(600); break;
+                case 3: t += r.nextInt(5_000); break;
+                default: t += r.nextInt(1_000_000); break;
+            }
+            if (i % 3 == 0) v = Math.round((v + (r.nextBoolean() ? 0.1f : -0.1f)) * 10) / 10f;
+            else if (i % 7 == 0) v = r.nextFloat() * 1e6f - 5e5f;
+            else if (i % 11 == 0) v = -0f;
+            assertTrue(s.append(t, v));
+            expected.add(point(t, v));
+        }
+        assertFalse("older than the last point", s.append(t - 1, 1f));
+
+        assertEquals(expected, read(s, Long.MIN_VALUE, Long.MAX_VALUE));
+        s.seal();
+        assertTrue(TimeSeriesSegment.isSealed(f));
+        assertEquals(expected, scan(f, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void scanHonoursTheRange() throws IOException {
+        File f = new File(tmp.getRoot(), "0.seg");
+        TimeSeriesSegment s = TimeSeriesSegment.openForAppend(f, 0);
+        for (int i = 0; i < 10; i++) s.append(100 + i * 10, i);
+        s.seal();
+
+        List<String> got = scan(f, 120, 150);
+        assertEquals(4, got.size());
+        assertEquals(point(120, 2), got.get(0));
+        assertEquals(point(150, 5), got.get(3));
+    }
+
+    @Test
+    public void reopenedSegmentContinuesAppending() throws IOException {
+        File f = new File(tmp.getRoot(), "0.seg");
+        TimeSeriesSegment s = TimeSeriesSegment.openForAppend(f, 0);
+        s.append(100, 20f);
+        s.append(160, 20.5f);
+        s.flush();
+        s.close();
+
+        s = TimeSeriesSegment.openForAppend(f, 0);
+        assertEquals(2, s.count());
+        s.append(220, 21f);
+        s.append(500, 19f);
+        s.close();
+
+        List<String> got = scan(f, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(4, got.size());
+        assertEquals(point(220, 21f), got.get(2));
+        assertEquals(point(500, 19f), got.get(3));
+    }
+
+    @Test
+    public void crashMidAppendLosesOnlyThatPoint() throws IOException {
+        File f = new File(tmp.getRoot(), "0.seg");
+        TimeSeriesSegment s = TimeSeriesSegment.openForAppend(f, 0);
+        for (int i = 0; i < 50; i++) s.append(100 + i * 60, 20f + i / 10f);
+        s.flush();
+        byte[] header = new byte[TimeSeriesSegment.HEADER_BYTES];
+        System.arraycopy(Files.readAllBytes(f.toPath()), 0, header, 0, header.length);
+
+        // the next point's bits reach the file, its header update doesn't
+        s.append(100 + 50 * 60, 99f);
+        s.flush();
+        s.close();
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.write(header);
+        }
+
+        s = TimeSeriesSegment.openForAppend(f, 0);
+        assertEquals(50, s.count());
+        assertTrue(s.append(100 + 50 * 60, 25f));   // overwrites the leftover bits
+        s.seal();
+
+        List<String> got = scan(f, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(51, got.size());
+        assertEquals(point(100 + 49 * 60, 20f + 49 / 10f), got.get(49));
+        assertEquals(point(100 + 50 * 60, 25f), got.get(50));
+    }
+
+    @Test
+    public void storeReopenAndCompactSealLeftoverSegments() throws IOException {
+        long week = TimeSeriesStore.SEGMENT_MILLIS;
+        long start = 2_000 * week;
+        TimeSeriesStore store = new TimeSeriesStore(tmp.getRoot());
+        store.append("slot-1", start, 10f);
+        store.append("slot-1", start + 60_000, 11f);
+        store.flush();
+        store.close();   // like a process that died: the week's segment is left open
+
+        store = new TimeSeriesStore(tmp.getRoot());
+        assertTrue(store.append("slot-1", start + 120_000, 12f));
+        assertFalse(store.append("slot-1", start, 0f));
+        assertTrue(store.append("slot-1", start + week, 13f));   // next week: the old one is sealed
+
+        assertEquals(0, store.compact(start + week, 10 * week));
+        assertTrue(TimeSeriesSegment.isSealed(new File(new File(tmp.getRoot(), "slot-1"), 2_000 + ".seg")));
+
+        List<Float> values = new ArrayList<>();
+        store.scan("slot-1", start, start + 2 * week, (t, v) -> values.add(v));
+        assertEquals(4, values.size());
+        assertEquals(13f, values.get(3), 0f);
+
+        assertEquals(1, store.compact(start + 11 * week, 10 * week));   // only the first week expires
+        store.close();
+    }
+
+    /** Compares raw bits, so -0f and 0f are told apart. */
+    private static String point(long t, float v) {
+        return t + "=" + Integer.toHexString(Float.floatToRawIntBits(v));
+    }
+
+    private static List<String> read(TimeSeriesSegment s, long from, long to) {
+        List<String> out = new ArrayList<>();
+        s.scanOpen(from, to, (t, v) -> out.add(point(t, v)));
+        return out;
+    }
+
+    private static List<String> scan(File f, long from, long to) throws IOException {
+        List<String> out = new ArrayList<>();
+        TimeSeriesSegment.scan(f, from, to, (t, v) -> out.add(point(t, v)));
+        return out;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.drysync;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class WoodBatchCodecTest {
+
+    @After
+    public void restoreAliases() {
+        WoodBatchCodec.setReadLegacyAliases(true);
+    }
+
+    @Test
+    public void encodeThenDecodeRoundTrips() {
+        WoodBatch b = new WoodBatch("BATCH-1", 120, 1_700_000_000_000L, 30, 45);
+        Map<String, Object> node = WoodBatchCodec.encode(b);
+
+        assertEquals(45, node.get(WoodBatchCodec.REMAINING));
+        assertTrue(b.sameContents(WoodBatchCodec.decode("key", node)));
+    }
+
+    @Test
+    public void missingBatchIdFallsBackToKey() {
+        Map<String, Object> node = node(50, 1L, 2L);
+        node.remove(WoodBatchCodec.BATCH_ID);
+
+        assertEquals("key", WoodBatchCodec.decode("key", node).getBatchId());
+        assertEquals("key", WoodBatchCodec.batchIdOf("key", node));
+    }
+
+    @Test
+    public void legacyAliasesFillMissingCounts() {
+        Map<String, Object> node = node(50, null, null);
+        node.put(WoodBatchCodec.LEGACY_IN_RACK, 7L);
+        node.put(WoodBatchCodec.LEGACY_FINISHED, "3");
+
+        WoodBatch b = WoodBatchCodec.decode("key", node);
+        assertEquals(7, b.getInRackCount());
+        assertEquals(3, b.getFinishedCount());
+    }
+
+    @Test
+    public void canonicalCountsWinOverAliases() {
+        Map<String, Object> node = node(50, 10L, 20L);
+        node.put(WoodBatchCodec.LEGACY_IN_RACK, 1L);
+        node.put(WoodBatchCodec.LEGACY_FINISHED, 2L);
+
+        WoodBatch b = WoodBatchCodec.decode("key", node);
+        assertEquals(10, b.getInRackCount());
+        assertEquals(20, b.getFinishedCount());
+    }
+
+    @Test
+    public void aliasesIgnoredOnceSwitchedOff() {
+        Map<String, Object> node = node(50, null, null);
+        node.put(WoodBatchCodec.LEGACY_IN_RACK, 7L);
+        WoodBatchCodec.setReadLegacyAliases(false);
+
+        assertEquals(0, WoodBatchCodec.decode("key", node).getInRackCount());
+    }
+
+    @Test
+    public void toleratesNumbersStoredAsStrings() {
+        Map<String, Object> node = node(0, null, null);
+        node.put(WoodBatchCodec.TOTAL, " 80 ");
+        node.put(WoodBatchCodec.IN_RACK, "12.0");
+        node.put(WoodBatchCodec.ARRIVAL, "1700000000000");
+
+        WoodBatch b = WoodBatchCodec.decode("key", node);
+        assertEquals(80, b.getTotalQuantity());
+        assertEquals(12, b.getInRackCount());
+        assertEquals(1_700_000_000_000L, b.getArrivalDateMillis());
+    }
+
+    @Test
+    public void tombstonesAndNonObjectsDecodeToNull() {
+        assertNull(WoodBatchCodec.decode("key", WoodBatchCodec.tombstone("key")));
+        assertNull(WoodBatchCodec.decode("key", "not a batch"));
+        assertNull(WoodBatchCodec.decode("key", null));
+    }
+
+    @Test
+    public void unchangedNodeReturnsPreviousInstance() {
+        Map<String, Object> node = node(50, 5L, 5L);
+        WoodBatch first = WoodBatchCodec.decode("key", node);
+
+        assertSame(first, WoodBatchCodec.decode("key", node, first));
+        node.put(WoodBatchCodec.IN_RACK, 6L);
+        assertNotSame(first, WoodBatchCodec.decode("key", node, first));
+    }
+
+    @Test
+    public void dropAliasesBackfillsOnlyMissingCounts() {
+        Map<String, Object> legacy = node(50, null, null);
+        legacy.put(WoodBatchCodec.LEGACY_IN_RACK, 40L);
+        legacy.put(WoodBatchCodec.LEGACY_FINISHED, 30L);   // over the total: clamped like decode
+
+        Map<String, Object> u = WoodBatchCodec.dropAliases("key", legacy);
+        assertTrue(u.containsKey(WoodBatchCodec.LEGACY_IN_RACK));
+        assertNull(u.get(WoodBatchCodec.LEGACY_IN_RACK));
+        assertEquals(40, u.get(WoodBatchCodec.IN_RACK));
+        assertEquals(10, u.get(WoodBatchCodec.FINISHED));
+
+        Map<String, Object> both = node(50, 1L, 2L);
+        both.put(WoodBatchCodec.LEGACY_IN_RACK, 1L);
+        assertFalse(WoodBatchCodec.dropAliases("key", both).containsKey(WoodBatchCodec.IN_RACK));
+
+        assertNull(WoodBatchCodec.dropAliases("key", node(50, 1L, 2L)));
+    }
+
+    @Test
+    public void repairRewritesCountsTheRulesRefuse() {
+        assertNull(WoodBatchCodec.repair("key", node(50, 10L, 40L)));
+        assertNull(WoodBatchCodec.repair("key", WoodBatchCodec.tombstone("key")));
+
+        Map<String, Object> u = WoodBatchCodec.repair("key", node(50, 30L, 30L));
+        assertEquals(50, u.get(WoodBatchCodec.TOTAL));
+        assertEquals(30, u.get(WoodBatchCodec.IN_RACK));
+        assertEquals(20, u.get(WoodBatchCodec.FINISHED));
+        assertEquals(0, u.get(WoodBatchCodec.REMAINING));
+
+        Map<String, Object> strings = node(50, null, null);
+        strings.put(WoodBatchCodec.IN_RACK, "5");
+        strings.put(WoodBatchCodec.LEGACY_FINISHED, 7L);
+        u = WoodBatchCodec.repair("key", strings);
+        assertEquals(5, u.get(WoodBatchCodec.IN_RACK));
+        assertEquals(7, u.get(WoodBatchCodec.FINISHED));
+        assertTrue(u.containsKey(WoodBatchCodec.LEGACY_FINISHED));
+        assertNull(u.get(WoodBatchCodec.LEGACY_FINISHED));
+
+        Map<String, Object> noTotal = node(0, -3L, 2L);
+        noTotal.remove(WoodBatchCodec.TOTAL);
+        u = WoodBatchCodec.repair("key", noTotal);
+        assertEquals(0, u.get(WoodBatchCodec.TOTAL));
+        assertEquals(0, u.get(WoodBatchCodec.IN_RACK));
+        assertEquals(0, u.get(WoodBatchCodec.FINISHED));
+    }
+
+    private static Map<String, Object> node(long total, Long inRack, Long finished) {
+        Map<String, Object> m = new HashMap<>();
+        m.put(WoodBatchCodec.BATCH_ID, "BATCH-1");
+        m.put(WoodBatchCodec.ARRIVAL, 1_700_000_000_000L);
+        m.put(WoodBatchCodec.TOTAL, total);
+        if (inRack != null) m.put(WoodBatchCodec.IN_RACK, inRack);
+        if (finished != null) m.put(WoodBatchCodec.FINISHED, finished);
+        return m;
+    }
+}
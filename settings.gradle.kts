@@ -21,4 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "drysync"
 include(":app")
+include(":core")
+include(":core-bench")
  
\ No newline at end of file